@@ -0,0 +1,48 @@
+package com.negassagisila.axeereraa;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class records the spans of the Instrumentation as JFR events, so they show up on the
+ * timeline of a flight recording next to the GC, class loading and I/O of the JVM. It's built
+ * apart from the rest of the application, since JFR isn't part of the JVMs it targets, and
+ * it's only loaded where it's there.
+ */
+
+final class JfrSpanListener implements SpanListener {
+  
+  @Override
+  public Object begin(String name) {
+    SpanEvent event = new SpanEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.name = name;
+    event.begin();
+    return event;
+  }
+  
+  @Override
+  public void end(Object event) {
+    SpanEvent spanEvent = (SpanEvent) event;
+    spanEvent.end();
+    spanEvent.commit();
+  }
+  
+  /**
+   * A single timed span.
+   */
+  
+  @Name("com.negassagisila.axeereraa.Span")
+  @Label("Axeereraa Span")
+  @Category("Axeereraa")
+  @StackTrace(false)
+  static final class SpanEvent extends Event {
+    @Label("Name")
+    String name;
+  }
+}
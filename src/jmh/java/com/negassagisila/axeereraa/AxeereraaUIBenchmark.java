@@ -0,0 +1,52 @@
+package com.negassagisila.axeereraa;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures what building one more note window costs. The uncached methods
+ * repeat the font parse and the two icon decodes every AxeereraaUI used to do on its own,
+ * the cached ones go through the UIResources shared by all the windows.
+ * constructWindow builds a whole AxeereraaUI, so it needs a display to run on.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AxeereraaUIBenchmark {
+  private Axeereraa axRunner;
+  
+  @Setup
+  public void setUp() {
+    axRunner = new Axeereraa(System.getProperty("java.io.tmpdir"), UIManager.getCrossPlatformLookAndFeelClassName());
+  }
+  
+  @Benchmark
+  public void uncachedWindowResources(Blackhole blackhole) throws IOException, FontFormatException {
+    try (InputStream resourceAsStream = Axeereraa.class.getResourceAsStream("/font/Roboto-Medium.ttf")) {
+      blackhole.consume(Font.createFont(Font.TRUETYPE_FONT, resourceAsStream).deriveFont(Font.PLAIN, 18));
+    }
+    blackhole.consume(ImageIO.read(Axeereraa.class.getResource("/images/icon.png")));
+    blackhole.consume(ImageIO.read(Axeereraa.class.getResource("/images/icon.png")));
+  }
+  
+  @Benchmark
+  public void cachedWindowResources(Blackhole blackhole) throws IOException, FontFormatException {
+    blackhole.consume(UIResources.getFont(UIResources.NOTE_FONT_SIZE));
+    blackhole.consume(UIResources.getIcon());
+  }
+  
+  @Benchmark
+  public void constructWindow() throws Exception {
+    new AxeereraaUI(axRunner).setNote(new Note("")).dispose();
+  }
+}
@@ -0,0 +1,34 @@
+package com.negassagisila.axeereraa;
+
+/**
+ * This class builds the synthetic note text the benchmarks run on.
+ */
+
+final class BenchmarkNotes {
+  private static final String PARAGRAPH =
+          "# a heading\n\n" +
+          "Some *written* text with a [link](https://github.com/NegassaB/Axeereraa) and `code`.\n\n" +
+          "* [ ] an open item\n" +
+          "* [x] a closed item\n\n" +
+          "| column | other column |\n" +
+          "|--------|--------------|\n" +
+          "| ~~old~~ | https://github.com/NegassaB |\n\n";
+  
+  private BenchmarkNotes() {
+  }
+  
+  /**
+   * This method is used to get markdown text of exactly the given length.
+   * @param length the number of characters of the text.
+   * @return the text.
+   */
+  
+  static String text(int length) {
+    StringBuilder text = new StringBuilder(length + PARAGRAPH.length());
+    while (text.length() < length) {
+      text.append(PARAGRAPH);
+    }
+    text.setLength(length);
+    return text.toString();
+  }
+}
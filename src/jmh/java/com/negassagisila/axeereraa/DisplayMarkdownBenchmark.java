@@ -0,0 +1,55 @@
+package com.negassagisila.axeereraa;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures DisplayMarkdown.convertToMarkdown on a small and a large document.
+ * The warm benchmark is the steady state, which is served by the RenderedHtmlCache, the render
+ * benchmark parses and renders with the shared Parser & HtmlRenderer every time, as the cache
+ * misses do, and the cold one is the first conversion of a fresh JVM, which also pays for
+ * building them.
+ */
+
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DisplayMarkdownBenchmark {
+  
+  @Param({"2048", "1048576"})
+  private int documentSize;
+  
+  private String document;
+  
+  @Setup
+  public void setUp() {
+    document = BenchmarkNotes.text(documentSize);
+  }
+  
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @Warmup(iterations = 3)
+  @Measurement(iterations = 5)
+  public String warmConvertToMarkdown() {
+    return DisplayMarkdown.convertToMarkdown(document);
+  }
+  
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @Warmup(iterations = 3)
+  @Measurement(iterations = 5)
+  public StringBuilder render() {
+    StringBuilder html = new StringBuilder(documentSize * 2);
+    DisplayMarkdown.renderTo(document, html);
+    return html;
+  }
+  
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  @Fork(10)
+  public String coldConvertToMarkdown() {
+    return DisplayMarkdown.convertToMarkdown(document);
+  }
+}
@@ -0,0 +1,68 @@
+package com.negassagisila.axeereraa;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.GapContent;
+import javax.swing.text.PlainDocument;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures what typing a character and deleting it again costs in notes of
+ * 10 KB and 10 MB, on top of the GapContent of Swing and of the PieceTableContent of the large
+ * note mode. typeAtOneSpot keeps typing at the same place, typeAcrossTheNote jumps between two
+ * places at either end of the note, which is where moving the gap of a GapContent shows up.
+ * takeSnapshot measures what the autosave of a large note costs the text area.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LargeNoteDocumentBenchmark {
+
+  @Param({"10240", "10485760"})
+  private int noteSize;
+
+  @Param({"gap", "pieceTable"})
+  private String content;
+
+  private PieceTableContent pieceTableContent;
+  private PlainDocument document;
+  private int spot;
+
+  @Setup
+  public void setUp() throws BadLocationException {
+    AbstractDocument.Content documentContent;
+    if (content.equals("gap")) {
+      documentContent = new GapContent();
+    } else {
+      pieceTableContent = new PieceTableContent();
+      documentContent = pieceTableContent;
+    }
+    document = new PlainDocument(documentContent);
+    document.insertString(0, BenchmarkNotes.text(noteSize), null);
+  }
+
+  @Benchmark
+  public void typeAtOneSpot() throws BadLocationException {
+    int offset = noteSize / 2;
+    document.insertString(offset, "x", null);
+    document.remove(offset, 1);
+  }
+
+  @Benchmark
+  public void typeAcrossTheNote() throws BadLocationException {
+    int offset = spot == 0 ? 16 : noteSize - 16;
+    spot ^= 1;
+    document.insertString(offset, "x", null);
+    document.remove(offset, 1);
+  }
+
+  @Benchmark
+  public Object takeSnapshot() {
+    return pieceTableContent == null ? null : pieceTableContent.snapshot();
+  }
+}
@@ -0,0 +1,50 @@
+package com.negassagisila.axeereraa;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures Note.hashCode and Note.equals, which every map and list of notes
+ * goes through, on notes of 1 KB and 100 KB. The equal note is a copy with its own text, so
+ * the texts aren't the same String object, although each caches its own hash code after the
+ * first call, so this is the steady state of comparing notes that were compared before.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NoteBenchmark {
+  
+  @Param({"1024", "102400"})
+  private int noteSize;
+  
+  private Note note;
+  private Note equalNote;
+  private Note otherNote;
+  
+  @Setup
+  public void setUp() {
+    String text = BenchmarkNotes.text(noteSize);
+    note = new Note(text, NoteColor.lightGreen);
+    equalNote = new Note(new String(text.toCharArray()), NoteColor.lightGreen);
+    otherNote = new Note(text.substring(1) + "x", NoteColor.lightGreen);
+  }
+  
+  @Benchmark
+  public int hashCodeOfNote() {
+    return note.hashCode();
+  }
+  
+  @Benchmark
+  public boolean equalsEqualNote() {
+    return note.equals(equalNote);
+  }
+  
+  @Benchmark
+  public boolean equalsOtherNote() {
+    return note.equals(otherNote);
+  }
+}
@@ -0,0 +1,63 @@
+package com.negassagisila.axeereraa;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark compares the BinaryNoteCodec against the java serialization the
+ * NoteSaver and NoteReader used before it, on notes of 1 KB, 100 KB and 5 MB.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NoteCodecBenchmark {
+  
+  @Param({"1024", "102400", "5242880"})
+  private int noteSize;
+  
+  private final NoteCodec noteCodec = new BinaryNoteCodec();
+  private Note note;
+  private byte[] binaryNote;
+  private byte[] serializedNote;
+  
+  @Setup
+  public void setUp() throws IOException {
+    note = new Note(BenchmarkNotes.text(noteSize), NoteColor.lightGreen);
+    binaryNote = binaryEncode();
+    serializedNote = serializationEncode();
+  }
+  
+  @Benchmark
+  public byte[] binaryEncode() throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    noteCodec.encode(note, outputStream);
+    return outputStream.toByteArray();
+  }
+  
+  @Benchmark
+  public Note binaryDecode() throws IOException {
+    return noteCodec.decode(ByteBuffer.wrap(binaryNote));
+  }
+  
+  @Benchmark
+  public byte[] serializationEncode() throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+      objectOutputStream.writeObject(note);
+    }
+    return outputStream.toByteArray();
+  }
+  
+  @Benchmark
+  public Note serializationDecode() throws IOException, ClassNotFoundException {
+    try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(serializedNote))) {
+      return (Note) objectInputStream.readObject();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.negassagisila.axeereraa;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures loading the note journal with the large notes compressed against
+ * the journal written without compression. The typical note set is 2k notes of 512 bytes to
+ * 16 KB, about half of which are above the compression threshold, the large one is 50 notes of
+ * 1 MB. The notes are the markdown of BenchmarkNotes, which repeats itself a lot more than
+ * real notes do, so it compresses better than they would.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NoteJournalCompressionBenchmark {
+
+  @Param({"typical", "large"})
+  private String noteSet;
+
+  @Param({"true", "false"})
+  private boolean compressed;
+
+  private File journalFolder;
+  private NoteJournal noteJournal;
+
+  @Setup
+  public void setUp() throws IOException {
+    journalFolder = Files.createTempDirectory("axeereraa-compression-benchmark").toFile();
+    NoteJournal writer = NoteJournal.open(journalFolder);
+    if (!compressed) {
+      writer.setCompressionThreshold(Integer.MAX_VALUE);
+    }
+    List<Note> notes = new ArrayList<>();
+    if (noteSet.equals("typical")) {
+      for (int i = 0; i < 2000; i++) {
+        notes.add(new Note(BenchmarkNotes.text(512 << (i % 6)), NoteColor.values()[i % NoteColor.values().length]));
+      }
+    } else {
+      for (int i = 0; i < 50; i++) {
+        notes.add(new Note(BenchmarkNotes.text(1 << 20), NoteColor.values()[i % NoteColor.values().length]));
+      }
+    }
+    writer.appendAll(notes);
+    writer.close();
+
+    noteJournal = NoteJournal.open(journalFolder);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    noteJournal.close();
+    for (File f : journalFolder.listFiles()) {
+      f.delete();
+    }
+    journalFolder.delete();
+  }
+
+  @Benchmark
+  public List<Note> replay() throws IOException {
+    return noteJournal.replay();
+  }
+}
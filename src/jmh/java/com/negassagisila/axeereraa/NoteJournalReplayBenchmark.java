@@ -0,0 +1,73 @@
+package com.negassagisila.axeereraa;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures replaying the note journal, i.e. reading and decoding every saved
+ * note, with the journal mapped into memory against the journal read into the heap, at 1k
+ * and 50k notes of 1 KB. The warm benchmark is the steady state, the cold one is the first
+ * replay of a fresh JVM.
+ */
+
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NoteJournalReplayBenchmark {
+  private static final int NOTE_SIZE = 1024;
+  
+  @Param({"1000", "50000"})
+  private int noteCount;
+  
+  @Param({"true", "false"})
+  private boolean memoryMapped;
+  
+  private File journalFolder;
+  private NoteJournal noteJournal;
+  
+  @Setup
+  public void setUp() throws IOException {
+    journalFolder = Files.createTempDirectory("axeereraa-journal-benchmark").toFile();
+    NoteJournal writer = NoteJournal.open(journalFolder);
+    List<Note> notes = new ArrayList<>();
+    for (int i = 0; i < noteCount; i++) {
+      notes.add(new Note(BenchmarkNotes.text(NOTE_SIZE), NoteColor.values()[i % NoteColor.values().length]));
+    }
+    writer.appendAll(notes);
+    writer.close();
+    
+    noteJournal = NoteJournal.open(journalFolder);
+    noteJournal.setMemoryMapped(memoryMapped);
+  }
+  
+  @TearDown
+  public void tearDown() throws IOException {
+    noteJournal.close();
+    for (File f : journalFolder.listFiles()) {
+      f.delete();
+    }
+    journalFolder.delete();
+  }
+  
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @Warmup(iterations = 3)
+  @Measurement(iterations = 5)
+  public List<Note> warmReplay() throws IOException {
+    return noteJournal.replay();
+  }
+  
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  @Fork(10)
+  public List<Note> coldReplay() throws IOException {
+    return noteJournal.replay();
+  }
+}
@@ -0,0 +1,79 @@
+package com.negassagisila.axeereraa;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures what Axeereraa.getExistingNotes does at startup, loading the
+ * NoteMetadata of every saved note through the NoteLoader, over 100 to 100k notes of 1 KB.
+ * The clean startup reads the metadata file the journal wrote when it was closed, the one
+ * after a crash finds no metadata file and replays the whole journal.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NoteLoaderBenchmark {
+  private static final int NOTE_SIZE = 1024;
+  
+  @Param({"100", "1000", "10000", "100000"})
+  private int noteCount;
+  
+  @Param({"true", "false"})
+  private boolean cleanlyClosed;
+  
+  private File notesFolder;
+  private NoteJournal noteJournal;
+  
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    notesFolder = Files.createTempDirectory("axeereraa-loader-benchmark").toFile();
+    NoteJournal writer = NoteJournal.open(notesFolder);
+    List<Note> notes = new ArrayList<>();
+    for (int i = 0; i < noteCount; i++) {
+      notes.add(new Note(BenchmarkNotes.text(NOTE_SIZE), NoteColor.values()[i % NoteColor.values().length]));
+    }
+    writer.appendAll(notes);
+    writer.loadMetadata();
+    writer.close();
+  }
+  
+  /**
+   * Every load deletes the metadata file, so the journal is closed, which writes it again,
+   * and re-opened before every load, unless it's to be loaded as after a crash.
+   */
+  
+  @Setup(Level.Invocation)
+  public void openJournal() throws IOException {
+    if (noteJournal != null) {
+      noteJournal.close();
+    }
+    if (!cleanlyClosed) {
+      new File(notesFolder, NoteJournal.METADATA_FILE_NAME).delete();
+    }
+    noteJournal = NoteJournal.open(notesFolder);
+  }
+  
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    noteJournal.close();
+    for (File f : notesFolder.listFiles()) {
+      f.delete();
+    }
+    notesFolder.delete();
+  }
+  
+  @Benchmark
+  public int getExistingNotes(Blackhole blackhole) {
+    return new NoteLoader(noteJournal, notesFolder).load(blackhole::consume);
+  }
+}
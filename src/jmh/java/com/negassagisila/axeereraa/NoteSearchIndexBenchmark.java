@@ -0,0 +1,68 @@
+package com.negassagisila.axeereraa;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures the latency of a NoteSearchIndex query, the one that runs on every
+ * keystroke of the search box, over 10k and 100k notes of random words.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NoteSearchIndexBenchmark {
+  private static final int VOCABULARY_SIZE = 20_000;
+  private static final int WORDS_PER_NOTE = 60;
+  
+  @Param({"10000", "100000"})
+  private int noteCount;
+  
+  private NoteSearchIndex searchIndex;
+  
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    searchIndex = new NoteSearchIndex();
+    for (int i = 0; i < noteCount; i++) {
+      StringBuilder writtenText = new StringBuilder();
+      for (int j = 0; j < WORDS_PER_NOTE; j++) {
+        writtenText.append(word(random.nextInt(VOCABULARY_SIZE))).append(' ');
+      }
+      searchIndex.update(new Note(writtenText.toString()));
+    }
+  }
+  
+  /**
+   * @return the word of the vocabulary with the given number, e.g. "bcd" for 123.
+   */
+  
+  private static String word(int number) {
+    StringBuilder word = new StringBuilder();
+    do {
+      word.append((char) ('a' + number % 10));
+      number /= 10;
+    } while (number > 0);
+    return word.reverse().toString();
+  }
+  
+  @Benchmark
+  public List<NoteSearchIndex.SearchResult> wholeWord() {
+    return searchIndex.search(word(1234), NoteSearchDialog.MAX_RESULTS);
+  }
+  
+  @Benchmark
+  public List<NoteSearchIndex.SearchResult> shortPrefix() {
+    return searchIndex.search("bc", NoteSearchDialog.MAX_RESULTS);
+  }
+  
+  @Benchmark
+  public List<NoteSearchIndex.SearchResult> twoWords() {
+    return searchIndex.search(word(1234) + " " + word(567), NoteSearchDialog.MAX_RESULTS);
+  }
+}
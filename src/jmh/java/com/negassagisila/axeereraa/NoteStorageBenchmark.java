@@ -0,0 +1,90 @@
+package com.negassagisila.axeereraa;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures saving and reading notes of 1 KB through the NoteSaver and the
+ * NoteReader: saving a single note to the journal, which forces it to disk, saving a single
+ * note into a file of its own, reading a single note back from its file, and loading every
+ * note of a journal of 100 to 100k notes.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NoteStorageBenchmark {
+  private static final int NOTE_SIZE = 1024;
+  
+  @Param({"100", "10000", "100000"})
+  private int noteCount;
+  
+  private final NoteCodec noteCodec = new BinaryNoteCodec();
+  private File storageFolder;
+  private File noteFile;
+  private NoteJournal noteJournal;
+  private Note note;
+  
+  @Setup
+  public void setUp() throws IOException {
+    storageFolder = Files.createTempDirectory("axeereraa-storage-benchmark").toFile();
+    note = new Note(BenchmarkNotes.text(NOTE_SIZE), NoteColor.lightGreen);
+    
+    NoteJournal writer = NoteJournal.open(storageFolder);
+    List<Note> notes = new ArrayList<>();
+    for (int i = 0; i < noteCount; i++) {
+      notes.add(new Note(BenchmarkNotes.text(NOTE_SIZE), NoteColor.values()[i % NoteColor.values().length]));
+    }
+    writer.appendAll(notes);
+    writer.close();
+    noteJournal = NoteJournal.open(storageFolder);
+    
+    noteFile = new File(storageFolder, "single.note");
+    new NoteSaver(new FileOutputStream(noteFile), noteCodec).save(note);
+  }
+  
+  @TearDown
+  public void tearDown() throws IOException {
+    noteJournal.close();
+    for (File f : storageFolder.listFiles()) {
+      f.delete();
+    }
+    storageFolder.delete();
+  }
+  
+  /**
+   * Every save of the same note supersedes the one before, so the journal doesn't keep
+   * growing, it's compacted in the background like it is in the application.
+   */
+  
+  @Benchmark
+  public void saveToJournal() {
+    new NoteSaver(noteJournal).save(note);
+  }
+  
+  @Benchmark
+  public void saveToFile() throws IOException {
+    new NoteSaver(new FileOutputStream(noteFile), noteCodec).save(note);
+  }
+  
+  @Benchmark
+  public Note readFromFile() throws IOException, ClassNotFoundException {
+    return new NoteReader(new FileInputStream(noteFile), noteCodec).read();
+  }
+  
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public List<Note> loadJournal() {
+    return new NoteReader(noteJournal).load();
+  }
+}
@@ -0,0 +1,258 @@
+package com.negassagisila.axeereraa;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * This class is responsible for saving the notes automatically. The UI marks a note as dirty
+ * whenever it's edited, and a single background writer thread saves every dirty note once the
+ * coalescing window has passed, all of them in one write and one fsync. Deleting notes goes
+ * through the same thread, so the UI thread never touches the disk and a note is never saved
+ * after it was deleted.
+ *
+ * A large note is marked as dirty with a LargeNote instead, which holds a snapshot of its text
+ * rather than the text itself. It's streamed into the journal on its own, without ever being
+ * read into one String, and is handed to its own consumer once it's saved.
+ */
+
+class AutoSaver {
+  static final long DEFAULT_COALESCE_MILLIS = Long.getLong("axeereraa.autosave.millis", 1000);
+  
+  private final NoteSaver noteSaver;
+  private final NoteDeleter noteDeleter;
+  private final long coalesceMillis;
+  private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "Axeereraa-autosave-writer");
+    t.setDaemon(true);
+    return t;
+  });
+  
+  /**
+   * the dirty notes, each with the way to take a snapshot of it once it's saved.
+   */
+  
+  private final Map<UUID, Supplier<Note>> dirtyNotes = new LinkedHashMap<>();
+  private final Map<UUID, Supplier<LargeNote>> dirtyLargeNotes = new LinkedHashMap<>();
+  private ScheduledFuture<?> scheduledFlush;
+  private volatile Consumer<Note> onNoteSaved = note -> { };
+  private volatile Consumer<LargeNote> onLargeNoteSaved = largeNote -> { };
+  private volatile Consumer<Note> onNoteDeleted = note -> { };
+  
+  AutoSaver(NoteJournal noteJournal, long coalesceMillis) {
+    this.noteSaver = new NoteSaver(noteJournal);
+    this.noteDeleter = new NoteDeleter(noteJournal);
+    this.coalesceMillis = coalesceMillis;
+  }
+  
+  /**
+   * @param onNoteSaved called on the writer thread with every note once it's saved.
+   */
+  
+  void setOnNoteSaved(Consumer<Note> onNoteSaved) {
+    this.onNoteSaved = onNoteSaved;
+  }
+  
+  /**
+   * @param onLargeNoteSaved called on the writer thread with every large note once it's saved.
+   */
+  
+  void setOnLargeNoteSaved(Consumer<LargeNote> onLargeNoteSaved) {
+    this.onLargeNoteSaved = onLargeNoteSaved;
+  }
+  
+  /**
+   * @param onNoteDeleted called on the writer thread with every note once it's deleted.
+   */
+  
+  void setOnNoteDeleted(Consumer<Note> onNoteDeleted) {
+    this.onNoteDeleted = onNoteDeleted;
+  }
+  
+  /**
+   * This method marks the note as dirty, so it's saved by the next flush. Marking it again
+   * before that only replaces the way its snapshot is taken.
+   * @param id the id of the note.
+   * @param snapshot takes the snapshot of the note that is saved, called on the writer thread.
+   */
+  
+  synchronized void markDirty(UUID id, Supplier<Note> snapshot) {
+    dirtyLargeNotes.remove(id);
+    dirtyNotes.put(id, snapshot);
+    scheduleFlush();
+  }
+  
+  /**
+   * This method marks the large note as dirty, so it's streamed into the journal by the next
+   * flush, replacing the way its snapshot is taken if it's already dirty.
+   * @param id the id of the note.
+   * @param snapshot takes the snapshot of the note that is saved, called on the writer thread.
+   */
+  
+  synchronized void markLargeNoteDirty(UUID id, Supplier<LargeNote> snapshot) {
+    dirtyNotes.remove(id);
+    dirtyLargeNotes.put(id, snapshot);
+    scheduleFlush();
+  }
+  
+  private void scheduleFlush() {
+    if (scheduledFlush == null) {
+      scheduledFlush = writer.schedule(this::flushDirtyNotes, coalesceMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+  
+  /**
+   * This method saves the note, together with the rest of the dirty notes, right away
+   * on the writer thread.
+   * @param note the Note object to be saved.
+   */
+  
+  void save(Note note) {
+    markDirty(note.getId(), () -> note);
+    flush();
+  }
+  
+  /**
+   * This method deletes the note on the writer thread, dropping its pending save.
+   * @param note the Note object to be deleted.
+   * @return the Future of the deletion.
+   */
+  
+  Future<?> delete(Note note) {
+    synchronized (this) {
+      dirtyNotes.remove(note.getId());
+      dirtyLargeNotes.remove(note.getId());
+    }
+    return writer.submit(() -> {
+      if (noteDeleter.deleteNote(note)) {
+        onNoteDeleted.accept(note);
+      }
+    });
+  }
+  
+  /**
+   * This method saves all the dirty notes right away on the writer thread.
+   * @return the Future of the flush.
+   */
+  
+  Future<?> flush() {
+    return writer.submit(this::flushDirtyNotes);
+  }
+  
+  /**
+   * This method saves all the dirty notes and waits until they, and everything that was
+   * handed to the writer thread before them, are on the disk. It's used when the application
+   * shuts down.
+   */
+  
+  void close() {
+    try {
+      flush().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | RejectedExecutionException e) {
+      e.printStackTrace();
+    } finally {
+      writer.shutdown();
+    }
+  }
+  
+  /**
+   * This method takes the snapshots of all the dirty notes and saves them in one write, the
+   * large notes are streamed one after the other after them. If that fails, the notes are
+   * marked as dirty again, unless they were edited since.
+   */
+  
+  private void flushDirtyNotes() {
+    List<Supplier<Note>> snapshots;
+    List<Supplier<LargeNote>> largeNoteSnapshots;
+    synchronized (this) {
+      snapshots = new ArrayList<>(dirtyNotes.values());
+      largeNoteSnapshots = new ArrayList<>(dirtyLargeNotes.values());
+      dirtyNotes.clear();
+      dirtyLargeNotes.clear();
+      if (scheduledFlush != null) {
+        scheduledFlush.cancel(false);
+        scheduledFlush = null;
+      }
+    }
+    
+    if (!snapshots.isEmpty()) {
+      List<Note> notes = new ArrayList<>();
+      for (Supplier<Note> snapshot : snapshots) {
+        notes.add(snapshot.get());
+      }
+      
+      if (noteSaver.saveAll(notes)) {
+        for (Note note : notes) {
+          onNoteSaved.accept(note);
+        }
+      } else {
+        synchronized (this) {
+          for (Note note : notes) {
+            if (!isDirty(note.getId())) {
+              dirtyNotes.put(note.getId(), () -> note);
+            }
+          }
+          scheduleFlush();
+        }
+      }
+    }
+    
+    for (Supplier<LargeNote> snapshot : largeNoteSnapshots) {
+      LargeNote largeNote = snapshot.get();
+      if (noteSaver.save(largeNote.getId(), largeNote.getNoteColor(), largeNote.getText())) {
+        onLargeNoteSaved.accept(largeNote);
+      } else {
+        synchronized (this) {
+          if (!isDirty(largeNote.getId())) {
+            dirtyLargeNotes.put(largeNote.getId(), () -> largeNote);
+          }
+          scheduleFlush();
+        }
+      }
+    }
+  }
+  
+  private boolean isDirty(UUID id) {
+    return dirtyNotes.containsKey(id) || dirtyLargeNotes.containsKey(id);
+  }
+  
+  /**
+   * A large note as it's saved: its id, its color and a snapshot of its text, which keeps
+   * reading the same text however the note is edited after it's taken.
+   */
+  
+  static final class LargeNote {
+    private final UUID id;
+    private final NoteColor noteColor;
+    private final PieceTableContent.Snapshot text;
+    
+    LargeNote(UUID id, NoteColor noteColor, PieceTableContent.Snapshot text) {
+      this.id = id;
+      this.noteColor = noteColor;
+      this.text = text;
+    }
+    
+    UUID getId() {
+      return id;
+    }
+    
+    NoteColor getNoteColor() {
+      return noteColor;
+    }
+    
+    PieceTableContent.Snapshot getText() {
+      return text;
+    }
+    
+    /**
+     * @return the note with its text read into one String, for where it's needed as a whole.
+     */
+    
+    Note toNote() {
+      return new Note(id, text.toString(), noteColor);
+    }
+  }
+}
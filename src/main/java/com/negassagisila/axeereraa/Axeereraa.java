@@ -4,18 +4,91 @@ import javax.swing.*;
 import java.awt.*;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class Axeereraa {
   private final String lookAndFeel;
   private final String appHome;
-  private static final List<Note> notes = new ArrayList<>();
   private static File APP_HOME_FILE = null;
+  private static NoteJournal noteJournal;
+  private static AutoSaver autoSaver;
+  private static NoteBodies noteBodies;
+  private static NoteHistory noteHistory;
+  private static NoteWatcher noteWatcher;
+  private static SingleInstance singleInstance;
+  
+  /**
+   * the options that have the running instance, or this one if none is running, open a new
+   * note or bring a saved one to the front.
+   */
+  
+  private static final String NEW_NOTE_FLAG = "--new";
+  private static final String OPEN_NOTE_FLAG = "--open";
+  
+  /**
+   * how the windows of the notes were left, saved with the metadata of the notes.
+   */
+  
+  private static final Map<UUID, NoteViewState> viewStates = new ConcurrentHashMap<>();
+  
+  /**
+   * the saved notes are displayed a batch at a time, each batch built and shown in a single
+   * EDT task, the batches growing from a single note up to this many.
+   */
+  
+  private static final int MAX_DISPLAY_BATCH_SIZE = 64;
+  private static final NoteSearchIndex searchIndex = new NoteSearchIndex();
+  
+  /**
+   * the single thread the search index is loaded, updated & saved on, so neither the loading
+   * of the notes nor the autosave ever wait for it.
+   */
+  
+  private static final ExecutorService searchIndexer = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "Axeereraa-search-indexer");
+    t.setDaemon(true);
+    return t;
+  });
+  
+  /**
+   * the thread the revision history is read & compared on when it's shown, so that the
+   * event dispatch thread never waits for the disk.
+   */
+  
+  private static final ExecutorService historyReader = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "Axeereraa-history-reader");
+    t.setDaemon(true);
+    return t;
+  });
+  
+  /**
+   * the large notes that were saved since the search index & the history last read them.
+   */
+  
+  private static final Set<UUID> largeNotesToIndex = ConcurrentHashMap.newKeySet();
   private static String theSystem;
   private static String theFileSeparator;
   private static String theUserHome;
   
+  /**
+   * shows all the notes on a single NoteBoard instead of a window per note,
+   * when the "axeereraa.board" system property is set.
+   */
+  
+  private static final boolean BOARD_MODE = Boolean.getBoolean("axeereraa.board");
+  
   private static String getTheSystem() {
     return theSystem;
   }
@@ -42,15 +115,51 @@ public class Axeereraa {
   }
   
   public static void main(String[] args) {
+    StartupMetrics.started();
     //TODO: create and instantiate a new concrete Note object for every UI instance
     //TODO: perhaps using a builder for the UI instance that will call a factory method for the Note object
     theSystem = System.getProperty("os.name");
     theFileSeparator = System.getProperty("file.separator");
     theUserHome = System.getProperty("user.home");
-
-    String theLookAndFeel = UIManager.getSystemLookAndFeelClassName();
+    
+    List<String> arguments = new ArrayList<>(Arrays.asList(args));
+    if (arguments.remove(Instrumentation.STARTUP_REPORT_FLAG)) {
+      Instrumentation.requestStartupReport();
+    }
+    String request = SingleInstance.REQUEST_SHOW;
+    if (arguments.remove(NEW_NOTE_FLAG)) {
+      request = SingleInstance.REQUEST_NEW;
+    }
+    int openNoteFlag = arguments.indexOf(OPEN_NOTE_FLAG);
+    if (openNoteFlag >= 0 && openNoteFlag + 1 < arguments.size()) {
+      request = SingleInstance.REQUEST_OPEN + " " + arguments.get(openNoteFlag + 1);
+      arguments.subList(openNoteFlag, openNoteFlag + 2).clear();
+    }
+    if (!arguments.isEmpty()) {
+      String notesFolder = getAxEnvironment(getTheSystem(), getTheFileSeparator(), getTheUserHome());
+      System.exit(new NoteCommandLine(System.out, System.err).run(
+              arguments.toArray(new String[0]), new File(notesFolder)));
+    }
+    Instrumentation.Span mainSpan = Instrumentation.start("Axeereraa.main");
 
     String theAppHome = getAxEnvironment(getTheSystem(), getTheFileSeparator(), getTheUserHome());
+    APP_HOME_FILE = new File(theAppHome);
+    
+    /**
+     * checks if the folder exists or not & if it's empty or not,
+     * and creates it if it doesn't exist.
+     */
+    
+    boolean isFirstRun = !APP_HOME_FILE.exists() || !APP_HOME_FILE.isDirectory();
+    if (isFirstRun) {
+      APP_HOME_FILE.mkdir();
+    }
+    
+    if (!becomeSingleInstance(request)) {
+      System.exit(0);
+    }
+
+    String theLookAndFeel = UIManager.getSystemLookAndFeelClassName();
     
     Axeereraa axRunner = new Axeereraa(theAppHome, theLookAndFeel);
   
@@ -67,53 +176,654 @@ public class Axeereraa {
             IOException e) {
       e.printStackTrace();
     }
-  
-    APP_HOME_FILE = new File(axRunner.getAppHome());
     
-    /**
-     * checks if the folder exists or not & if it's empty or not,
-     * and creates it if it doesn't exist.
-     */
+    try {
+      noteJournal = Instrumentation.call("NoteJournal.open", () -> NoteJournal.open(APP_HOME_FILE));
+      autoSaver = new AutoSaver(noteJournal, AutoSaver.DEFAULT_COALESCE_MILLIS);
+      noteBodies = new NoteBodies(noteJournal);
+      autoSaver.setOnNoteSaved(n -> {
+        noteBodies.put(n);
+        recordRevision(n);
+        searchIndexer.submit(() -> searchIndex.update(n));
+        EventQueue.invokeLater(() -> AxeereraaUI.noteSaved(n));
+      });
+      autoSaver.setOnLargeNoteSaved(n -> {
+        noteBodies.remove(n.getId());
+        indexLargeNote(n.getId());
+        EventQueue.invokeLater(() -> AxeereraaUI.largeNoteSaved(n));
+      });
+      autoSaver.setOnNoteDeleted(n -> {
+        noteBodies.remove(n.getId());
+        viewStates.remove(n.getId());
+        deleteHistory(n.getId());
+        searchIndexer.submit(() -> searchIndex.remove(n.getId()));
+      });
+    } catch (IOException e) {
+      e.printStackTrace();
+      exitWithError("Axeereraa can't open the notes in " + APP_HOME_FILE + ": " + e.getMessage());
+    }
     
-    if (!APP_HOME_FILE.exists() || !APP_HOME_FILE.isDirectory()) {
-      APP_HOME_FILE.mkdir();
+    try {
+      noteHistory = NoteHistory.open(APP_HOME_FILE);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    
+    loadPreviewCache();
+    searchIndexer.submit(Axeereraa::loadSearchIndex);
+    Runtime.getRuntime().addShutdownHook(new Thread(Axeereraa::shutDown, "Axeereraa-shutdown"));
+    
+    if (BOARD_MODE) {
+      displayBoard(axRunner);
+    } else if (isFirstRun) {
       assert axUI != null;
       axUI.setNote(new Note("")).showAx();
+      StartupMetrics.expectWindows(1);
     } else {
-      displayExistingNotes(axRunner, theFileSeparator, axUI);
+      displayExistingNotes(axRunner, axUI);
+    }
+    watchNotes(axRunner);
+    if (!SingleInstance.REQUEST_SHOW.equals(request) && !(isFirstRun && SingleInstance.REQUEST_NEW.equals(request))) {
+      String launchRequest = request;
+      EventQueue.invokeLater(() -> handleRequest(axRunner, launchRequest));
+    }
+    if (singleInstance != null) {
+      singleInstance.setOnRequest(r -> EventQueue.invokeLater(() -> handleRequest(axRunner, r)));
     }
+    mainSpan.close();
 
   }
   
   /**
-   * used to save a single Note instance
+   * used to save a single Note instance right away, together with the rest of the
+   * edited notes, on the autosave writer thread.
    */
   
   static void saveNote(Note n) {
+    autoSaver.save(n);
+  }
+  
+  /**
+   * used to mark a Note instance as edited, so that it's saved by the next autosave.
+   * @param n the note as it is after the edit.
+   */
+  
+  static void noteEdited(Note n) {
+    autoSaver.markDirty(n.getId(), () -> n);
+  }
+  
+  /**
+   * used to mark a large note as edited, so that its text is streamed into the journal by the
+   * next autosave.
+   * @param largeNote the note with a snapshot of its text as it is after the edit.
+   */
+  
+  static void largeNoteEdited(AutoSaver.LargeNote largeNote) {
+    autoSaver.markLargeNoteDirty(largeNote.getId(), () -> largeNote);
+  }
+  
+  /**
+   * used to save a large note right away, together with the rest of the edited notes.
+   */
+  
+  static void saveLargeNote(AutoSaver.LargeNote largeNote) {
+    largeNoteEdited(largeNote);
+    autoSaver.flush();
+  }
+  
+  /**
+   * used to remember how the window of a note was left, e.g. where it was moved to.
+   * @param id the id of the note.
+   * @param viewState the view state of the window.
+   */
+  
+  static void viewStateChanged(UUID id, NoteViewState viewState) {
+    viewStates.put(id, viewState);
+  }
+  
+  /**
+   * @return the NoteBodies the written text of the saved notes is read through.
+   */
+  
+  static NoteBodies getNoteBodies() {
+    return noteBodies;
+  }
+  
+  /**
+   * used to save the edited notes right away, without waiting for the next autosave.
+   */
+  
+  static void flushNotes() {
+    autoSaver.flush();
+  }
+  
+  /**
+   * used to delete a single Note instance from the note journal, by its id.
+   */
+  
+  static void deleteNote(Note n) {
+    autoSaver.delete(n);
+  }
+  
+  /**
+   * This method runs when the application exits, it waits until the edited notes are saved
+   * and then saves the rendered previews.
+   */
+  
+  private static void shutDown() {
+    stopWatchingNotes();
+    if (autoSaver != null) {
+      autoSaver.close();
+    }
+    closeHistory();
+    saveSearchIndex();
+    closeJournal();
+    savePreviewCache();
+    releaseSingleInstance();
+  }
+  
+  /**
+   * This method makes this the single running instance of the application, unless one is
+   * running already, then the request of this launch is handed over to it. If the running
+   * instance can't be reached, the failure is reported and this launch exits, so that two
+   * instances never work on the same notes. Only if the lock itself can't be taken, e.g. on a
+   * file system without locks, this one runs on its own, as if there were no other.
+   * @param request what this launch asks for.
+   * @return true if this instance is to go on, false if it's to exit.
+   */
+  
+  private static boolean becomeSingleInstance(String request) {
+    try {
+      singleInstance = SingleInstance.acquire(APP_HOME_FILE);
+      if (singleInstance != null) {
+        return true;
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+      return true;
+    }
     try {
-      final String noteName = "Axeereraa".concat(String.valueOf(n.hashCode())).concat(".ser");
-      new NoteSaver(new FileOutputStream(APP_HOME_FILE + theFileSeparator + noteName)).save(n);
-    } catch (FileNotFoundException e) {
+      SingleInstance.handOff(APP_HOME_FILE, request);
+    } catch (IOException e) {
       e.printStackTrace();
+      exitWithError("Axeereraa is already running, but didn't answer: " + e.getMessage());
     }
+    return false;
   }
   
   /**
-   * This method is used to load and display the
-   * pre-existing notes that were already saved.
+   * This method reports an error this launch can't go on after, on the console and in a
+   * dialog unless there's no screen, and exits.
+   * @param message what went wrong.
+   */
+  
+  private static void exitWithError(String message) {
+    System.err.println(message);
+    if (!GraphicsEnvironment.isHeadless()) {
+      JOptionPane.showMessageDialog(null, message, "Axeereraa", JOptionPane.ERROR_MESSAGE);
+    }
+    System.exit(1);
+  }
+  
+  private static void releaseSingleInstance() {
+    if (singleInstance == null) {
+      return;
+    }
+    try {
+      singleInstance.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+  
+  /**
+   * This method carries out the request of a launch, on the EDT: it opens a new note, brings
+   * a saved note to the front, or brings every window to the front, opening a new note if
+   * none is shown.
+   * @param runner the Axeereraa object needed to display the notes.
+   * @param request the request of the launch.
+   */
+  
+  private static void handleRequest(Axeereraa runner, String request) {
+    if (request.startsWith(SingleInstance.REQUEST_OPEN + " ")) {
+      try {
+        openNote(runner, UUID.fromString(request.substring(SingleInstance.REQUEST_OPEN.length() + 1).trim()));
+      } catch (IllegalArgumentException e) {
+        e.printStackTrace();
+      }
+    } else if (SingleInstance.REQUEST_NEW.equals(request) || AxeereraaUI.getOpenWindows().isEmpty()) {
+      displayNote(runner, new Note(""));
+    } else {
+      for (AxeereraaUI openWindow : AxeereraaUI.getOpenWindows()) {
+        openWindow.setState(Frame.NORMAL);
+        openWindow.toFront();
+      }
+    }
+  }
+  
+  /**
+   * This method closes the note journal, which saves the metadata of the notes, together with
+   * how their windows were left, so the next run doesn't need to read the notes themselves.
+   */
+  
+  private static void closeJournal() {
+    if (noteJournal == null) {
+      return;
+    }
+    for (Map.Entry<UUID, NoteViewState> viewState : viewStates.entrySet()) {
+      noteJournal.setViewState(viewState.getKey().toString(), viewState.getValue());
+    }
+    try {
+      noteJournal.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+  
+  /**
+   * This method starts watching the folder of the notes, so that the notes other processes
+   * change are picked up while the application runs.
+   * @param runner the Axeereraa object needed to display the notes other processes created.
+   */
+  
+  private static void watchNotes(Axeereraa runner) {
+    if (noteJournal == null) {
+      return;
+    }
+    noteWatcher = new NoteWatcher(APP_HOME_FILE, noteJournal, NoteWatcher.DEFAULT_DEBOUNCE_MILLIS,
+            changes -> notesChangedExternally(runner, changes));
+    try {
+      noteWatcher.start();
+    } catch (IOException e) {
+      noteWatcher = null;
+      e.printStackTrace();
+    }
+  }
+  
+  private static void stopWatchingNotes() {
+    if (noteWatcher == null) {
+      return;
+    }
+    try {
+      noteWatcher.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+  
+  /**
+   * This method brings the read notes and the search index up to date with the notes other
+   * processes changed, on the watcher thread, and then the windows that show them, on the EDT.
+   * @param runner the Axeereraa object needed to display the notes other processes created.
+   * @param changes the notes that were changed.
+   */
+  
+  private static void notesChangedExternally(Axeereraa runner, List<NoteJournal.ExternalChange> changes) {
+    for (NoteJournal.ExternalChange change : changes) {
+      Note n = change.getNote();
+      if (n == null) {
+        UUID id = UUID.fromString(change.getKey());
+        noteBodies.remove(id);
+        searchIndexer.submit(() -> searchIndex.remove(id));
+      } else {
+        noteBodies.put(n);
+        searchIndexer.submit(() -> searchIndex.update(n));
+      }
+    }
+    EventQueue.invokeLater(() -> {
+      for (NoteJournal.ExternalChange change : changes) {
+        showExternalChange(runner, change);
+      }
+    });
+  }
+  
+  /**
+   * This method updates the window of a note another process changed, on the EDT. A note that
+   * was edited here as well, since the window last loaded or saved it, is a conflict, and the
+   * version of the other process is kept as a copy in a window of its own rather than dropping
+   * either of them. A note another process created gets a window of its own.
+   * @param runner the Axeereraa object needed to set up the windows.
+   * @param change the note that was changed.
+   */
+  
+  private static void showExternalChange(Axeereraa runner, NoteJournal.ExternalChange change) {
+    AxeereraaUI openWindow = AxeereraaUI.getOpenWindow(UUID.fromString(change.getKey()));
+    if (openWindow != null) {
+      if (!openWindow.noteChangedExternally(change.getNote(), change.isOverwritten())) {
+        displayConflictingCopy(runner, change.getNote());
+      }
+    } else if (change.isCreated() && change.getNote() != null && !BOARD_MODE) {
+      displayNote(runner, change.getNote());
+    }
+  }
+  
+  /**
+   * This method saves the version of a note another process saved as a new note, and displays
+   * it next to the window of the note it conflicts with.
    * @param runner the Axeereraa object needed to set it up.
+   * @param n the note as the other process saved it.
+   */
+  
+  private static void displayConflictingCopy(Axeereraa runner, Note n) {
+    Note copy = new Note(n.getWrittenText(), n.getColor());
+    saveNote(copy);
+    try {
+      AxeereraaUI ui = new AxeereraaUI(runner).setNote(copy);
+      ui.setTitle("Axeereraa (conflicting copy)");
+      ui.showAx();
+    } catch (IllegalAccessException |
+            InstantiationException |
+            UnsupportedLookAndFeelException |
+            ClassNotFoundException |
+            NullPointerException |
+            FontFormatException |
+            IOException e) {
+      e.printStackTrace();
+    }
+  }
+  
+  /**
+   * This method updates the search index & the history of a large note once it's saved. They
+   * need its whole text, which its save doesn't read, so the saved note is read back from the
+   * journal on the search indexer thread, once for all the saves of the note waiting for it.
+   */
+  
+  private static void indexLargeNote(UUID id) {
+    if (!largeNotesToIndex.add(id)) {
+      return;
+    }
+    searchIndexer.submit(() -> {
+      largeNotesToIndex.remove(id);
+      try {
+        Note note = noteBodies.get(id);
+        if (note != null) {
+          recordRevision(note);
+          searchIndex.update(note);
+        }
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    });
+  }
+  
+  /**
+   * This method saves the text of a note that was just saved as its next revision, on the
+   * autosave writer thread, or on the search indexer thread for a large note.
    */
-  private static void displayExistingNotes(Axeereraa runner, String theFileSeparator, AxeereraaUI ui) {
-    List<Note> result;
+  
+  private static void recordRevision(Note n) {
+    if (noteHistory == null) {
+      return;
+    }
+    try {
+      noteHistory.record(n);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+  
+  private static void deleteHistory(UUID id) {
+    if (noteHistory == null) {
+      return;
+    }
+    try {
+      noteHistory.delete(id);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+  
+  private static void closeHistory() {
+    if (noteHistory == null) {
+      return;
+    }
     try {
-      result = runner.getExistingNotes(theFileSeparator);
-      for (Note n : result) {
-        new AxeereraaUI(runner).setNote(n)
-                .showAx();
+      noteHistory.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+  
+  /**
+   * This method opens the revision history of a note on top of its window, and lists its
+   * revisions on the history reader once the edits that weren't saved yet are, and the
+   * revisions of the large notes are recorded by the search indexer, so that they're its
+   * latest revision.
+   * @param owner the window of the note.
+   * @param id the id of the note.
+   * @param onRestore called with the text of the revision that's restored.
+   */
+  
+  static void showHistory(Frame owner, UUID id, Consumer<String> onRestore) {
+    if (noteHistory == null) {
+      return;
+    }
+    NoteHistoryDialog dialog = new NoteHistoryDialog(owner, noteHistory, historyReader, id, onRestore);
+    dialog.setVisible(true);
+    historyReader.execute(() -> {
+      try {
+        autoSaver.flush().get();
+        searchIndexer.submit(() -> { }).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        e.printStackTrace();
       }
-      if (result.isEmpty()) {
-        ui.setNote(new Note("")).showAx();
+      dialog.loadRevisions();
+    });
+  }
+  
+  /**
+   * This method opens the search box on top of the given window.
+   * @param runner the Axeereraa object needed to display the notes that are found.
+   * @param owner the window the search box belongs to.
+   */
+  
+  static void showSearch(Axeereraa runner, Frame owner) {
+    new NoteSearchDialog(owner, searchIndex, result -> openNote(runner, result.getId())).setVisible(true);
+  }
+  
+  /**
+   * This method brings the window of the note to the front, or reads the note in the
+   * background & displays it in a new window if it isn't shown yet. It's called on the EDT.
+   * @param runner the Axeereraa object needed to set it up.
+   * @param id the id of the note.
+   */
+  
+  static void openNote(Axeereraa runner, UUID id) {
+    if (toFront(id)) {
+      return;
+    }
+    noteBodies.load(id, n -> {
+      if (!toFront(id)) {
+        displayNote(runner, n);
       }
+    }, () -> searchIndexer.submit(() -> searchIndex.remove(id)));
+  }
+  
+  /**
+   * @return true if the note is already shown, in which case its window is brought to the front.
+   */
+  
+  private static boolean toFront(UUID id) {
+    AxeereraaUI openWindow = AxeereraaUI.getOpenWindow(id);
+    if (openWindow == null) {
+      return false;
+    }
+    openWindow.setState(Frame.NORMAL);
+    openWindow.toFront();
+    openWindow.requestFocus();
+    return true;
+  }
+  
+  /**
+   * This method loads the search index saved by the last run, on the search indexer thread.
+   */
+  
+  private static void loadSearchIndex() {
+    try {
+      searchIndex.load(new File(APP_HOME_FILE, NoteSearchIndex.INDEX_FILE_NAME));
+    } catch (IOException e) {
+      searchIndex.clear();
+      e.printStackTrace();
+    }
+  }
+  
+  /**
+   * This method saves the search index next to the notes for the next run, once every update
+   * that's still queued has been made. If that can't be done, the saved index is deleted
+   * so the next run builds it again instead of trusting an outdated one.
+   */
+  
+  private static void saveSearchIndex() {
+    File indexFile = new File(APP_HOME_FILE, NoteSearchIndex.INDEX_FILE_NAME);
+    searchIndexer.shutdown();
+    try {
+      if (searchIndexer.awaitTermination(5, TimeUnit.SECONDS)) {
+        searchIndex.save(indexFile);
+        return;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    indexFile.delete();
+  }
+  
+  /**
+   * This method checks the search index against the notes that were loaded, on the search
+   * indexer thread. The notes that aren't indexed yet are read and indexed, and so is every
+   * note if the journal wasn't closed cleanly, since the index might have missed the last saves.
+   * @param loadedIds the ids of the notes that were loaded.
+   * @param checkEveryNote true if every note is to be read and checked.
+   */
+  
+  private static void reconcileSearchIndex(Set<UUID> loadedIds, boolean checkEveryNote) {
+    for (UUID id : loadedIds) {
+      if (checkEveryNote || !searchIndex.contains(id)) {
+        try {
+          Note n = noteJournal.read(id.toString());
+          if (n != null) {
+            searchIndex.ensureIndexed(n);
+          }
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+    }
+    searchIndex.retainOnly(loadedIds);
+  }
+  
+  /**
+   * This method loads the rendered previews saved by the last run in the background, so that
+   * the previews of the notes that didn't change since then come up without rendering them.
+   */
+  
+  private static void loadPreviewCache() {
+    Thread loader = new Thread(() -> {
+      try {
+        DisplayMarkdown.getRenderedHtmlCache().load(new File(APP_HOME_FILE, RenderedHtmlCache.CACHE_FILE_NAME));
+      } catch (IOException e) {
+        DisplayMarkdown.getRenderedHtmlCache().clear();
+        e.printStackTrace();
+      }
+    }, "Axeereraa-preview-cache-loader");
+    loader.setDaemon(true);
+    loader.start();
+  }
+  
+  /**
+   * This method saves the rendered previews next to the notes for the next run.
+   */
+  
+  private static void savePreviewCache() {
+    try {
+      DisplayMarkdown.getRenderedHtmlCache().save(new File(APP_HOME_FILE, RenderedHtmlCache.CACHE_FILE_NAME));
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+  
+  /**
+   * This method is used to load and display the
+   * pre-existing notes that were already saved. The windows are displayed on the EDT a batch
+   * at a time as their metadata is loaded, and the text of a note is read once it's visible.
+   * @param runner the Axeereraa object needed to set it up.
+   */
+  private static void displayExistingNotes(Axeereraa runner, AxeereraaUI ui) {
+    List<NoteMetadata> batch = new ArrayList<>();
+    AtomicInteger batchSize = new AtomicInteger(1);
+    int loaded = runner.getExistingNotes(n -> {
+      batch.add(n);
+      if (batch.size() >= batchSize.get()) {
+        List<NoteMetadata> fullBatch = new ArrayList<>(batch);
+        batch.clear();
+        batchSize.set(Math.min(batchSize.get() * 2, MAX_DISPLAY_BATCH_SIZE));
+        EventQueue.invokeLater(() -> displayNotes(runner, fullBatch));
+      }
+    });
+    if (!batch.isEmpty()) {
+      EventQueue.invokeLater(() -> displayNotes(runner, batch));
+    }
+    if (loaded == 0) {
+      ui.setNote(new Note("")).showAx();
+    }
+    StartupMetrics.expectWindows(Math.max(loaded, 1));
+  }
+  
+  /**
+   * This method is used to display the saved notes as the cards of a single NoteBoard.
+   * Every card is added on the EDT as soon as the metadata of its note is loaded.
+   * @param runner the Axeereraa object needed to set it up.
+   */
+  private static void displayBoard(Axeereraa runner) {
+    try {
+      NoteBoard board = new NoteBoard(runner);
+      board.showBoard();
+      StartupMetrics.expectWindows(1);
+      runner.getExistingNotes(n -> EventQueue.invokeLater(() -> board.addNote(n)));
+    } catch (FontFormatException | IOException e) {
+      e.printStackTrace();
+    }
+  }
+  
+  /**
+   * This method is used to display a batch of saved notes, each in its own UI, on the EDT.
+   * Every window is built and laid out as it was left before any of them is made visible,
+   * so they come up in place at once, and the text of a note is read once it's visible.
+   * @param runner the Axeereraa object needed to set it up.
+   * @param batch the NoteMetadata of the notes to be displayed.
+   */
+  private static void displayNotes(Axeereraa runner, List<NoteMetadata> batch) {
+    List<AxeereraaUI> windows = new ArrayList<>();
+    for (NoteMetadata noteMetadata : batch) {
+      try {
+        windows.add(new AxeereraaUI(runner).setNote(noteMetadata));
+      } catch (IllegalAccessException |
+              InstantiationException |
+              UnsupportedLookAndFeelException |
+              ClassNotFoundException |
+              NullPointerException |
+              FontFormatException |
+              IOException e) {
+        e.printStackTrace();
+      }
+    }
+    for (AxeereraaUI window : windows) {
+      window.display();
+    }
+  }
+  
+  /**
+   * This method is used to display a single saved note in its own UI.
+   * @param runner the Axeereraa object needed to set it up.
+   * @param n the note to be displayed.
+   */
+  private static void displayNote(Axeereraa runner, Note n) {
+    try {
+      new AxeereraaUI(runner).setNote(n)
+              .showAx();
     } catch (IllegalAccessException |
             InstantiationException |
             UnsupportedLookAndFeelException |
@@ -151,23 +861,20 @@ public class Axeereraa {
 
   /**
    * This method is responsible for getting the saved Notes from the file system.
-   * It calls the read() from the NoteReader class.
-   * @return a List\<Note\> populated with the saved Notes.
-   * @throws FileNotFoundException if it can't find the folder in which the files are saved in.
-   */
-  private List<Note> getExistingNotes(String theFileSeparator) throws FileNotFoundException {
-    File savedNotesLocation = new File(APP_HOME_FILE + theFileSeparator);
-    for (File f: Objects.requireNonNull(savedNotesLocation.listFiles())) {
-      NoteReader noteReader = new NoteReader(new FileInputStream(f));
-      synchronized (notes) {
-        try {
-          notes.add(noteReader.read());
-        } catch (IOException | ClassNotFoundException e) {
-          e.printStackTrace();
-        }
-      }
-    }
-    
-    return notes;
+   * It calls the load() from the NoteLoader class, which hands over the NoteMetadata of every
+   * note as soon as it's loaded, and then checks the saved search index against the notes.
+   * @param onNoteLoaded called once for every saved note.
+   * @return the number of saved notes.
+   */
+  private int getExistingNotes(Consumer<NoteMetadata> onNoteLoaded) {
+    Set<UUID> loadedIds = new HashSet<>();
+    int loaded = Instrumentation.call("Axeereraa.getExistingNotes",
+            () -> new NoteLoader(noteJournal, APP_HOME_FILE).load(noteMetadata -> {
+              loadedIds.add(noteMetadata.getId());
+              onNoteLoaded.accept(noteMetadata);
+            }));
+    boolean checkEveryNote = !noteJournal.wasCleanlyClosed();
+    searchIndexer.submit(() -> reconcileSearchIndex(loadedIds, checkEveryNote));
+    return loaded;
   }
-}
\ No newline at end of file
+}
@@ -3,13 +3,25 @@ package com.negassagisila.axeereraa;
 import com.intellij.uiDesigner.core.GridConstraints;
 import com.intellij.uiDesigner.core.GridLayoutManager;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * The actual user interface for the Axeereraa application.
@@ -22,7 +34,75 @@ public class AxeereraaUI extends JFrame {
   private JMenuBar axMenuBar;
   private Axeereraa axRunner;
   private static int COUNTER;
+  
+  /**
+   * the windows that are showing a note, by the id of the note.
+   */
+  
+  private static final Map<UUID, AxeereraaUI> OPEN_WINDOWS = new ConcurrentHashMap<>();
+  
+  /**
+   * the length from which a note is edited in the large note mode, on top of a PieceTableContent.
+   */
+  
+  static final int LARGE_NOTE_LENGTH = Integer.getInteger("axeereraa.largenote.chars", 1 << 20);
+  
   private JPopupMenu rightClickOptions;
+  private Note note;
+  private MarkdownPreview livePreview;
+  private JSplitPane livePreviewSplitPane;
+  private boolean editsTracked;
+  private DocumentListener editListener;
+  
+  /**
+   * the content of the text area while it's in the large note mode, otherwise null.
+   */
+  
+  private volatile PieceTableContent largeNoteContent;
+  
+  /**
+   * true once an edit made the note large enough, until the text area is switched to the
+   * large note mode.
+   */
+  
+  private boolean largeNoteSwitchPending;
+  
+  /**
+   * false while the window only shows the NoteMetadata of its note, before the text is read.
+   */
+  
+  private boolean bodyLoaded;
+  
+  /**
+   * the note as it was last read or saved, the text area holds edits of its own
+   * as long as it differs from it.
+   */
+  
+  private Note savedNote;
+  
+  /**
+   * the large note as it was last saved, which stands in for savedNote until its text is
+   * needed, so that saving a large note doesn't read its text into a String.
+   */
+  
+  private AutoSaver.LargeNote savedLargeNote;
+  
+  /**
+   * true while the text area is set to a version of the note that's already saved.
+   */
+  
+  private boolean settingSavedText;
+  private boolean boundsRestored;
+  private NoteViewState.ViewMode viewMode = NoteViewState.ViewMode.RAW_TEXT;
+  
+  /**
+   * the view state the window was left in the last time, its caret & scroll position are only
+   * restored once the text of the note is read, and they're kept as they were until then.
+   */
+  
+  private NoteViewState restoredViewState;
+  private boolean textViewStateRestored;
+  private Consumer<Note> onNoteRemoved;
   
   /**
    * A constructor that runs every time a new Axeereraa note is needed or built
@@ -32,18 +112,26 @@ public class AxeereraaUI extends JFrame {
   //especially if it's run from a saved file location
   public AxeereraaUI(Axeereraa axRunner) throws ClassNotFoundException, UnsupportedLookAndFeelException, InstantiationException, IllegalAccessException, IOException, FontFormatException {
     
+    Instrumentation.Span constructorSpan = Instrumentation.start("AxeereraaUI.<init>");
     this.axRunner = axRunner;
-    UIManager.setLookAndFeel(axRunner.getLookAndFeel());
-  
-    InputStream resourceAsStream = Axeereraa.class.getResourceAsStream(
-            "/font/Roboto-Medium.ttf"
-    );
-    
-    Font font = Font.createFont(
-            Font.TRUETYPE_FONT,
-            resourceAsStream).deriveFont(Font.PLAIN, 18);
+    Instrumentation.Span lookAndFeelSpan = Instrumentation.start("AxeereraaUI.lookAndFeel");
+    try {
+      LookAndFeel currentLookAndFeel = UIManager.getLookAndFeel();
+      if (currentLookAndFeel == null
+              || !currentLookAndFeel.getClass().getName().equals(axRunner.getLookAndFeel())) {
+        UIManager.setLookAndFeel(axRunner.getLookAndFeel());
+      }
+    } finally {
+      lookAndFeelSpan.close();
+    }
     
-    resourceAsStream.close();
+    Font font;
+    Instrumentation.Span fontSpan = Instrumentation.start("UIResources.getFont");
+    try {
+      font = UIResources.getFont(UIResources.NOTE_FONT_SIZE);
+    } finally {
+      fontSpan.close();
+    }
     
     axRootPanel.setFont(font);
     axRootTextArea.setFont(font);
@@ -54,10 +142,25 @@ public class AxeereraaUI extends JFrame {
     setSize(300, 250);
     setTitle("Axeereraa");
     
-    buildUI();
+    Instrumentation.run("AxeereraaUI.buildUI", this::buildUI);
     setJMenuBar(axMenuBar);
+    
+    addComponentListener(new ComponentAdapter() {
+      @Override
+      public void componentMoved(ComponentEvent e) {
+        viewStateChanged();
+      }
+      
+      @Override
+      public void componentResized(ComponentEvent e) {
+        viewStateChanged();
+      }
+    });
+    axRootTextArea.addCaretListener(e -> viewStateChanged());
+    axRootScrollPane.getVerticalScrollBar().addAdjustmentListener(e -> viewStateChanged());
   
     AxeereraaUI.COUNTER++;
+    constructorSpan.close();
   }
   
   /**
@@ -120,13 +223,7 @@ public class AxeereraaUI extends JFrame {
     rightClickOptions.add(markdownOption);
     rightClickOptions.add(changeNoteColorMenu);
     
-    AxeereraaUI.this.setIconImage(
-            ImageIO.read(
-                    this.getClass().getResource(
-                            "/images/icon.png"
-                    )
-            )
-    );
+    AxeereraaUI.this.setIconImage(UIResources.getIcon());
     
     axRootTextArea.setComponentPopupMenu(rightClickOptions);
   }
@@ -139,19 +236,381 @@ public class AxeereraaUI extends JFrame {
    */
   
   AxeereraaUI setNote(Note note) {
+    if (this.note != null) {
+      OPEN_WINDOWS.remove(this.note.getId(), this);
+    }
+    this.note = note;
+    this.savedNote = note;
+    this.savedLargeNote = null;
+    this.bodyLoaded = true;
+    OPEN_WINDOWS.put(note.getId(), this);
+    axRootTextArea.setEditable(true);
     setAxRootTextAreaText(note.getWrittenText());
     setAxRootTexAreaColor(note.getNoteColor());
+    trackEdits();
+    return this;
+  }
+  
+  /**
+   * This method is responsible for setting a saved note to the UI by its NoteMetadata. Until
+   * the window is visible and the text of the note is read, the window only shows the title
+   * of the note and can't be edited. The window is laid out as it was left before it's shown,
+   * and the caret & scroll position are restored once the text is read.
+   *
+   * @param noteMetadata the NoteMetadata of the note that will be set to the UI.
+   * @return the UI object that will be displayed.
+   */
+  
+  AxeereraaUI setNote(NoteMetadata noteMetadata) {
+    this.note = new Note(noteMetadata.getId(), noteMetadata.getTitle(), noteMetadata.getColor());
+    OPEN_WINDOWS.put(note.getId(), this);
+    axRootTextArea.setEditable(false);
+    setAxRootTextAreaText(noteMetadata.getTitle());
+    setAxRootTexAreaColor(note.getNoteColor());
+    
+    NoteViewState viewState = noteMetadata.getViewState();
+    restoredViewState = viewState;
+    if (viewState.getBounds() != null) {
+      setBounds(viewState.getBounds());
+      boundsRestored = true;
+    }
+    if (viewState.isAlwaysOnTop()) {
+      stayOnTop(true);
+    }
+    if (viewState.getViewMode() == NoteViewState.ViewMode.LIVE_PREVIEW) {
+      showLivePreview();
+    }
+    
+    addWindowListener(new WindowAdapter() {
+      @Override
+      public void windowOpened(WindowEvent e) {
+        Axeereraa.getNoteBodies().load(noteMetadata.getId(), loadedNote -> {
+          if (!bodyLoaded && isVisible()) {
+            setNote(loadedNote);
+            restoreTextViewState();
+          }
+        });
+      }
+    });
     return this;
   }
   
+  /**
+   * This method puts the caret & the scroll bar back where they were left, and shows the
+   * markdown if it was shown, once the text of the note is read.
+   */
+  
+  private void restoreTextViewState() {
+    NoteViewState viewState = restoredViewState;
+    axRootTextArea.setCaretPosition(Math.min(Math.max(viewState.getCaretPosition(), 0),
+            axRootTextArea.getDocument().getLength()));
+    if (viewState.getViewMode() == NoteViewState.ViewMode.MARKDOWN) {
+      showMarkdown();
+    }
+    EventQueue.invokeLater(() -> {
+      axRootScrollPane.getVerticalScrollBar().setValue(viewState.getScrollPosition());
+      textViewStateRestored = true;
+    });
+  }
+  
+  /**
+   * This method is used to get how the window is left, to open it the same way the next time.
+   *
+   * @return the view state of the window.
+   */
+  
+  NoteViewState getViewState() {
+    NoteViewState restored = restoredViewState;
+    boolean restoredYet = restored == null || textViewStateRestored;
+    return new NoteViewState(getBounds(), isAlwaysOnTop(), viewMode,
+            restoredYet ? axRootTextArea.getCaretPosition() : restored.getCaretPosition(),
+            restoredYet ? axRootScrollPane.getVerticalScrollBar().getValue() : restored.getScrollPosition());
+  }
+  
+  /**
+   * This method is responsible for marking the note as edited on every change to its text,
+   * so that the autosave picks it up, and for saving the edited notes once the window is closed.
+   * It's called after the saved text is set, so setting it doesn't count as an edit.
+   */
+  
+  private void trackEdits() {
+    if (editsTracked) {
+      return;
+    }
+    editsTracked = true;
+    
+    editListener = new DocumentListener() {
+      @Override
+      public void insertUpdate(DocumentEvent e) {
+        if (largeNoteContent == null && !largeNoteSwitchPending
+                && e.getDocument().getLength() >= LARGE_NOTE_LENGTH) {
+          largeNoteSwitchPending = true;
+          EventQueue.invokeLater(AxeereraaUI.this::switchToLargeNoteDocument);
+        }
+        noteEdited();
+      }
+      
+      @Override
+      public void removeUpdate(DocumentEvent e) {
+        noteEdited();
+      }
+      
+      @Override
+      public void changedUpdate(DocumentEvent e) {
+        // attribute changes don't change the note
+      }
+    };
+    axRootTextArea.getDocument().addDocumentListener(editListener);
+    
+    addWindowListener(new WindowAdapter() {
+      @Override
+      public void windowClosing(WindowEvent e) {
+        Axeereraa.flushNotes();
+      }
+      
+      @Override
+      public void windowClosed(WindowEvent e) {
+        OPEN_WINDOWS.remove(note.getId(), AxeereraaUI.this);
+      }
+    });
+  }
+  
+  /**
+   * This method marks the note as edited. The snapshot of the note is taken right away on the
+   * EDT, so that the autosave writer thread never reads the text area. A large note only
+   * copies its list of pieces for it, not its text.
+   */
+  
+  private void noteEdited() {
+    if (bodyLoaded && !settingSavedText) {
+      if (largeNoteContent != null) {
+        Axeereraa.largeNoteEdited(getLargeNote());
+      } else {
+        Axeereraa.noteEdited(getNote());
+      }
+    }
+  }
+  
+  /**
+   * This method is called on the EDT once a note is saved, so that its window knows which of
+   * its edits are saved.
+   *
+   * @param savedNote the note as it was saved.
+   */
+  
+  static void noteSaved(Note savedNote) {
+    AxeereraaUI openWindow = OPEN_WINDOWS.get(savedNote.getId());
+    if (openWindow != null && openWindow.bodyLoaded) {
+      openWindow.savedNote = savedNote;
+      openWindow.savedLargeNote = null;
+    }
+  }
+  
+  /**
+   * This method is called on the EDT once a large note is saved, so that its window knows
+   * which of its edits are saved.
+   *
+   * @param savedLargeNote the large note as it was saved.
+   */
+  
+  static void largeNoteSaved(AutoSaver.LargeNote savedLargeNote) {
+    AxeereraaUI openWindow = OPEN_WINDOWS.get(savedLargeNote.getId());
+    if (openWindow != null && openWindow.bodyLoaded) {
+      openWindow.savedNote = null;
+      openWindow.savedLargeNote = savedLargeNote;
+    }
+  }
+  
+  /**
+   * @return the note as it was last read or saved, reading the text of a saved large note
+   * into a String the first time it's needed.
+   */
+  
+  private Note getSavedNote() {
+    if (savedNote == null && savedLargeNote != null) {
+      savedNote = savedLargeNote.toNote();
+      savedLargeNote = null;
+    }
+    return savedNote;
+  }
+  
+  /**
+   * This method updates the window with the version of its note another process saved. It's
+   * only shown if the window has no edits of its own, which includes edits that were saved
+   * over the version of the other process before it was noticed, otherwise the window is
+   * left as it is.
+   *
+   * @param externalNote the note as the other process saved it, or null if it deleted it.
+   * @param overwritten true if this process saved the note again after the other process did.
+   * @return false if the version of the other process conflicts with the edits of the window,
+   * and has to be kept some other way.
+   */
+  
+  boolean noteChangedExternally(Note externalNote, boolean overwritten) {
+    if (!bodyLoaded) {
+      if (externalNote == null) {
+        closeDeletedNote();
+      } else {
+        setNote(externalNote);
+      }
+      return true;
+    }
+    Note shownNote = getNote();
+    boolean edited = overwritten || !hasSameContent(shownNote, getSavedNote());
+    if (externalNote == null) {
+      if (edited) {
+        saveNote();
+      } else {
+        closeDeletedNote();
+      }
+      return true;
+    }
+    if (hasSameContent(shownNote, externalNote)) {
+      savedNote = externalNote;
+      savedLargeNote = null;
+      return true;
+    }
+    if (edited) {
+      return false;
+    }
+    settingSavedText = true;
+    try {
+      setAxRootTextAreaText(externalNote.getWrittenText());
+      setAxRootTexAreaColor(externalNote.getNoteColor());
+    } finally {
+      settingSavedText = false;
+    }
+    savedNote = externalNote;
+    savedLargeNote = null;
+    return true;
+  }
+  
+  private static boolean hasSameContent(Note note, Note otherNote) {
+    return note.getWrittenText().equals(otherNote.getWrittenText())
+            && note.getColor() == otherNote.getColor();
+  }
+  
+  /**
+   * This method closes the window of a note another process deleted, without deleting it again.
+   */
+  
+  private void closeDeletedNote() {
+    setVisible(false);
+    OPEN_WINDOWS.remove(note.getId(), this);
+    AxeereraaUI.COUNTER--;
+    if (onNoteRemoved != null) {
+      onNoteRemoved.accept(note);
+    }
+    dispose();
+  }
+  
+  /**
+   * This method is responsible for saving the note right away.
+   */
+  
+  private void saveNote() {
+    if (!bodyLoaded) {
+      return;
+    }
+    if (largeNoteContent != null) {
+      Axeereraa.saveLargeNote(getLargeNote());
+    } else {
+      Axeereraa.saveNote(getNote());
+    }
+  }
+  
+  /**
+   * This method opens the revision history of the note, restoring a revision puts its text
+   * back into the text area, which saves it like any other edit.
+   */
+  
+  private void showHistory() {
+    if (bodyLoaded) {
+      Axeereraa.showHistory(this, note.getId(), this::setAxRootTextAreaText);
+    }
+  }
+  
+  /**
+   * This method remembers how the window of the note is left, e.g. where it is, so it's opened
+   * the same way the next time.
+   */
+  
+  private void viewStateChanged() {
+    if (note != null && isVisible()) {
+      Axeereraa.viewStateChanged(note.getId(), getViewState());
+    }
+  }
+  
+  /**
+   * This method is responsible for changing the color of the note.
+   *
+   * @param noteColor the new color of the note.
+   */
+  
+  private void changeNoteColor(NoteColor noteColor) {
+    axRootTextArea.setBackground(NoteColor.getTheColorOfTheNote(noteColor));
+    noteEdited();
+  }
+  
   /**
    * This method is responsible for setting the written text from the saved Note object.
+   * A text of a large note switches the text area to the large note mode first.
    *
    * @param text written text from the saved Note
    */
   
   private void setAxRootTextAreaText(String text) {
+    if (text != null && text.length() >= LARGE_NOTE_LENGTH && largeNoteContent == null) {
+      useLargeNoteDocument();
+    }
+    axRootTextArea.setText(text);
+  }
+  
+  /**
+   * This method switches the text area to the large note mode once an edit, e.g. pasting a
+   * log of several megabytes, made the note large enough. It's called after the edit is
+   * done, since the document can't be replaced while it's notifying its listeners. The text
+   * is moved over to the new document as an edit, and the caret & scroll bar stay where they
+   * were.
+   */
+  
+  private void switchToLargeNoteDocument() {
+    largeNoteSwitchPending = false;
+    if (largeNoteContent != null || axRootTextArea.getDocument().getLength() < LARGE_NOTE_LENGTH) {
+      return;
+    }
+    int caretPosition = axRootTextArea.getCaretPosition();
+    int scrollPosition = axRootScrollPane.getVerticalScrollBar().getValue();
+    String text = axRootTextArea.getText();
+    useLargeNoteDocument();
     axRootTextArea.setText(text);
+    axRootTextArea.setCaretPosition(Math.min(caretPosition, text.length()));
+    EventQueue.invokeLater(() -> axRootScrollPane.getVerticalScrollBar().setValue(scrollPosition));
+  }
+  
+  /**
+   * This method switches the text area to a document on top of a PieceTableContent, so that
+   * editing a note of several megabytes doesn't copy the text around every edit, and saving it
+   * takes a snapshot of the text instead of reading it out of the text area. The listeners of
+   * the previous document are moved over to the new one.
+   */
+  
+  private void useLargeNoteDocument() {
+    if (livePreview != null) {
+      livePreview.stop();
+    }
+    Document previousDocument = axRootTextArea.getDocument();
+    largeNoteContent = new PieceTableContent();
+    PlainDocument largeNoteDocument = new PlainDocument(largeNoteContent);
+    largeNoteDocument.putProperty(PlainDocument.tabSizeAttribute, previousDocument.getProperty(PlainDocument.tabSizeAttribute));
+    if (editListener != null) {
+      previousDocument.removeDocumentListener(editListener);
+      largeNoteDocument.addDocumentListener(editListener);
+    }
+    axRootTextArea.setDocument(largeNoteDocument);
+    if (livePreview != null) {
+      livePreview.start();
+    }
   }
   
   /**
@@ -176,26 +635,52 @@ public class AxeereraaUI extends JFrame {
      * AxeereraaUI on the EDT.
      */
     
+    Instrumentation.Span span = Instrumentation.start("AxeereraaUI.showAx");
     EventQueue.invokeLater(() -> {
-              try {
-                buildUI();
-                setLocationByPlatform(true);
-                setVisible(true);
-              } catch (IOException e) {
-                e.printStackTrace();
-              }
+              display();
+              span.close();
             }
     );
   }
   
   /**
-   * This method is used to get a single instance of the Note object from the UI
+   * This method makes the window visible right away, it's called on the EDT.
+   */
+  
+  void display() {
+    if (!boundsRestored) {
+      setLocationByPlatform(true);
+    }
+    setVisible(true);
+    StartupMetrics.windowVisible();
+  }
+  
+  /**
+   * This method is used to get a single instance of the Note object from the UI.
+   * It keeps the id of the note that was set to the UI, so that saving it replaces
+   * the previously saved version instead of adding a new one. It's called on the EDT, the
+   * text of a large note is read from a snapshot of its content, but the autosave saves a
+   * large note through getLargeNote() instead.
    *
-   * @return new Note(written text, NoteColor)
+   * @return new Note(id, written text, NoteColor)
    */
   
-  private Note getNote() {
-    return new Note(axRootTextArea.getText(), getAxRooTextAreaColor(axRootTextArea.getBackground()));
+  Note getNote() {
+    PieceTableContent content = largeNoteContent;
+    String writtenText = content == null ? axRootTextArea.getText() : content.snapshot().toString();
+    return new Note(note.getId(), writtenText, getAxRooTextAreaColor(axRootTextArea.getBackground()));
+  }
+  
+  /**
+   * This method is used to get a large note from the UI without reading its text, it's called
+   * on the EDT, and the autosave writer thread streams the snapshot of the text into the journal.
+   *
+   * @return the LargeNote with a snapshot of the text.
+   */
+  
+  private AutoSaver.LargeNote getLargeNote() {
+    return new AutoSaver.LargeNote(note.getId(), getAxRooTextAreaColor(axRootTextArea.getBackground()),
+            largeNoteContent.snapshot());
   }
   
   /**
@@ -231,6 +716,7 @@ public class AxeereraaUI extends JFrame {
      */
     
     setAlwaysOnTop(status);
+    viewStateChanged();
   
     /**
      * changes the icon to lock to show that the result
@@ -249,7 +735,7 @@ public class AxeereraaUI extends JFrame {
     //todo: find a way to display the lock.png image on the axRootPanel or axRootTextArea
     if (status) {
       try {
-        Image lockIcon = ImageIO.read(getClass().getResource("/images/lock.png"));
+        Image lockIcon = UIResources.getLockIcon();
         
       } catch (IOException e) {
         e.printStackTrace();
@@ -263,12 +749,45 @@ public class AxeereraaUI extends JFrame {
   
   private void removeNote() {
     setVisible(false);
+    OPEN_WINDOWS.remove(note.getId(), this);
     AxeereraaUI.COUNTER--;
-    //TODO: delete the Note file
-    if (AxeereraaUI.COUNTER == 0) {
+    Axeereraa.deleteNote(note);
+    if (onNoteRemoved != null) {
+      onNoteRemoved.accept(note);
+      dispose();
+    } else if (AxeereraaUI.COUNTER == 0) {
       System.exit(0);
     }
-    //NoteDeleter.deleteNote();
+  }
+  
+  /**
+   * This method is used to get the window that's showing the note with the given id.
+   *
+   * @param id the id of the note.
+   * @return the window, or null if the note isn't shown.
+   */
+  
+  static AxeereraaUI getOpenWindow(UUID id) {
+    return OPEN_WINDOWS.get(id);
+  }
+  
+  /**
+   * @return the windows that are showing a note.
+   */
+  
+  static Collection<AxeereraaUI> getOpenWindows() {
+    return new ArrayList<>(OPEN_WINDOWS.values());
+  }
+  
+  /**
+   * This method is used when the note is shown from a NoteBoard, the board is told about
+   * the deleted note instead of the application exiting with the last window.
+   *
+   * @param onNoteRemoved called with the note once it's deleted.
+   */
+  
+  void setOnNoteRemoved(Consumer<Note> onNoteRemoved) {
+    this.onNoteRemoved = onNoteRemoved;
   }
   
   /**
@@ -279,18 +798,82 @@ public class AxeereraaUI extends JFrame {
    * @param jEditorPane the editor pane that contains the markdown that will be displayed
    */
   private void showMarkdown(JEditorPane jEditorPane) {
+    viewMode = NoteViewState.ViewMode.MARKDOWN;
+    viewStateChanged();
     jEditorPane.setComponentPopupMenu(rightClickOptions);
     axRootScrollPane.getViewport().remove(axRootTextArea);
     axRootScrollPane.getViewport().add(jEditorPane);
   }
   
+  /**
+   * This method is responsible for rendering the written text in the background, and
+   * displaying it once it's rendered, so the window doesn't freeze on large notes.
+   */
+  private void showMarkdown() {
+    MarkdownPreview.renderInBackground(
+            axRootTextArea.getText(),
+            html -> showMarkdown(new DisplayMarkdown().displayRenderedMarkdown(html))
+    );
+  }
+  
   /**
    * This method is responsible for showing the raw text instead of the markdown.
    */
   private void showRawText() {
+    viewMode = livePreview == null ? NoteViewState.ViewMode.RAW_TEXT : NoteViewState.ViewMode.LIVE_PREVIEW;
+    viewStateChanged();
     axRootScrollPane.getViewport().add(axRootTextArea);
   }
   
+  /**
+   * This method is responsible for splitting the window between the raw text and a live
+   * preview of its markdown, which follows the edits as they are made.
+   */
+  private void showLivePreview() {
+    if (livePreview != null) {
+      return;
+    }
+    showRawText();
+    
+    JEditorPane previewPane = new JEditorPane("text/html", "");
+    previewPane.setEditable(false);
+    previewPane.setComponentPopupMenu(rightClickOptions);
+    
+    GridConstraints constraints = ((GridLayoutManager) axRootPanel.getLayout())
+            .getConstraintsForComponent(axRootScrollPane);
+    axRootPanel.remove(axRootScrollPane);
+    livePreviewSplitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, axRootScrollPane, new JScrollPane(previewPane));
+    livePreviewSplitPane.setResizeWeight(0.5);
+    axRootPanel.add(livePreviewSplitPane, constraints);
+    axRootPanel.revalidate();
+    
+    livePreview = new MarkdownPreview(axRootTextArea, previewPane);
+    livePreview.start();
+    viewMode = NoteViewState.ViewMode.LIVE_PREVIEW;
+    viewStateChanged();
+  }
+  
+  /**
+   * This method is responsible for closing the live preview and giving the whole window
+   * back to the raw text.
+   */
+  private void hideLivePreview() {
+    if (livePreview == null) {
+      return;
+    }
+    livePreview.stop();
+    livePreview = null;
+    
+    GridConstraints constraints = ((GridLayoutManager) axRootPanel.getLayout())
+            .getConstraintsForComponent(livePreviewSplitPane);
+    axRootPanel.remove(livePreviewSplitPane);
+    livePreviewSplitPane = null;
+    axRootPanel.add(axRootScrollPane, constraints);
+    axRootPanel.revalidate();
+    viewMode = NoteViewState.ViewMode.RAW_TEXT;
+    viewStateChanged();
+  }
+  
   /**
    * This method creates and displays a JDialog that
    * contains the necessary info about the application.
@@ -407,17 +990,19 @@ public class AxeereraaUI extends JFrame {
               }
       );
       fileMenuItems[1].addActionListener(e -> removeNote());
-      fileMenuItems[2].addActionListener(e -> Axeereraa.saveNote(getNote()));
+      fileMenuItems[2].addActionListener(e -> saveNote());
       
       for (JMenuItem m : fileMenuItems) {
         fileMenu.add(m);
       }
       
-      JMenuItem[] editMenuItems = new JMenuItem[4];
+      JMenuItem[] editMenuItems = new JMenuItem[6];
       editMenuItems[0] = new JMenuItem("Select All");
       editMenuItems[1] = new JMenuItem("Cut");
       editMenuItems[2] = new JMenuItem("Copy");
       editMenuItems[3] = new JMenuItem("Paste");
+      editMenuItems[4] = new JMenuItem("Search Notes");
+      editMenuItems[5] = new JMenuItem("Revision History");
       
       editMenuItems[0].setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_A, InputEvent.CTRL_MASK));
       editMenuItems[0].addActionListener(e -> axRootTextArea.selectAll());
@@ -431,16 +1016,26 @@ public class AxeereraaUI extends JFrame {
       editMenuItems[3].setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_V, InputEvent.CTRL_MASK));
       editMenuItems[3].addActionListener(e -> axRootTextArea.paste());
       
+      editMenuItems[4].setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F, InputEvent.CTRL_MASK));
+      editMenuItems[4].addActionListener(e -> Axeereraa.showSearch(axRunner, AxeereraaUI.this));
+      
+      editMenuItems[5].setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_H, InputEvent.CTRL_MASK));
+      editMenuItems[5].addActionListener(e -> showHistory());
+      
       for (JMenuItem m : editMenuItems) {
         editMenu.add(m);
       }
       
       JMenu previewMenu = new JMenu("preview");
-      JMenuItem[] previewMenuItems = new JMenuItem[2];
+      JMenuItem[] previewMenuItems = new JMenuItem[4];
       previewMenuItems[0] = new JMenuItem("show markdown");
-      previewMenuItems[0].addActionListener(e -> showMarkdown(new DisplayMarkdown().displayMarkdown(axRootTextArea.getText())));
+      previewMenuItems[0].addActionListener(e -> showMarkdown());
       previewMenuItems[1] = new JMenuItem("show raw text");
       previewMenuItems[1].addActionListener(e -> showRawText());
+      previewMenuItems[2] = new JMenuItem("live preview");
+      previewMenuItems[2].addActionListener(e -> showLivePreview());
+      previewMenuItems[3] = new JMenuItem("close live preview");
+      previewMenuItems[3].addActionListener(e -> hideLivePreview());
       
       for (JMenuItem m : previewMenuItems) {
         previewMenu.add(m);
@@ -522,17 +1117,11 @@ public class AxeereraaUI extends JFrame {
       noteColorMenuItems[1] = new JMenuItem("light yellow");
       noteColorMenuItems[2] = new JMenuItem("light red");
       
-      noteColorMenuItems[0].addActionListener(e -> axRootTextArea.setBackground(
-              NoteColor.getTheColorOfTheNote(NoteColor.lightGreen)
-      ));
+      noteColorMenuItems[0].addActionListener(e -> changeNoteColor(NoteColor.lightGreen));
       
-      noteColorMenuItems[1].addActionListener(e -> axRootTextArea.setBackground(
-              NoteColor.getTheColorOfTheNote(NoteColor.lightYellow)
-      ));
+      noteColorMenuItems[1].addActionListener(e -> changeNoteColor(NoteColor.lightYellow));
       
-      noteColorMenuItems[2].addActionListener(e -> axRootTextArea.setBackground(
-              NoteColor.getTheColorOfTheNote(NoteColor.lightRed)
-      ));
+      noteColorMenuItems[2].addActionListener(e -> changeNoteColor(NoteColor.lightRed));
       
       for (JMenuItem m : noteColorMenuItems) {
         changeNoteColorMenu.add(m);
@@ -540,7 +1129,7 @@ public class AxeereraaUI extends JFrame {
       
       JMenuItem[] markdownOptions = new JMenuItem[2];
       markdownOptions[0] = new JMenuItem("show markdown");
-      markdownOptions[0].addActionListener(e -> showMarkdown(new DisplayMarkdown().displayMarkdown(axRootTextArea.getText())));
+      markdownOptions[0].addActionListener(e -> showMarkdown());
       markdownOptions[1] = new JMenuItem("back to raw text");
       markdownOptions[1].addActionListener(e -> showRawText());
       
@@ -0,0 +1,128 @@
+package com.negassagisila.axeereraa;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * This class is the compact binary NoteCodec. A note is laid out as:
+ * the schema version (1 byte), the id (16 bytes), the NoteColor ordinal (varint),
+ * the length of the text in bytes (varint) and the text itself in UTF-8.
+ *
+ * Unlike java serialization it writes no class descriptors, and a new field only needs
+ * a new schema version instead of breaking every saved note.
+ */
+
+class BinaryNoteCodec implements NoteCodec {
+  static final byte SCHEMA_VERSION = 1;
+  
+  /**
+   * the most bytes the part of a note before its text can take.
+   */
+  
+  static final int MAX_HEADER_SIZE = 1 + 16 + 5 + 5;
+  
+  private static final NoteColor[] NOTE_COLORS = NoteColor.values();
+  
+  @Override
+  public void encode(Note note, OutputStream outputStream) throws IOException {
+    byte[] text = note.getWrittenText() == null
+            ? new byte[0]
+            : note.getWrittenText().getBytes(StandardCharsets.UTF_8);
+    ByteBuffer header = ByteBuffer.allocate(MAX_HEADER_SIZE);
+    encodeHeader(note.getId(), note.getColor(), text.length, header);
+    
+    outputStream.write(header.array(), 0, header.position());
+    outputStream.write(text);
+  }
+  
+  /**
+   * This method writes the part of a note that comes before its text, for the saves that
+   * stream the UTF-8 text right after it instead of encoding it up front.
+   * @param id the id of the note.
+   * @param noteColor the color of the note.
+   * @param textLength the length of the text in UTF-8 bytes.
+   * @param buffer where it's written to, with at least MAX_HEADER_SIZE bytes remaining.
+   */
+  
+  static void encodeHeader(UUID id, NoteColor noteColor, int textLength, ByteBuffer buffer) {
+    buffer.put(SCHEMA_VERSION);
+    buffer.putLong(id.getMostSignificantBits());
+    buffer.putLong(id.getLeastSignificantBits());
+    putVarInt(buffer, noteColor.ordinal());
+    putVarInt(buffer, textLength);
+  }
+  
+  @Override
+  public Note decode(ByteBuffer buffer) throws IOException {
+    try {
+      UUID id = readId(buffer);
+      int colorOrdinal = getVarInt(buffer);
+      if (colorOrdinal >= NOTE_COLORS.length) {
+        throw new IOException("unknown note color " + colorOrdinal);
+      }
+      int textLength = getVarInt(buffer);
+      if (textLength > buffer.remaining()) {
+        throw new IOException("the note text is cut off");
+      }
+      return new Note(id, readText(buffer, textLength), NOTE_COLORS[colorOrdinal]);
+    } catch (RuntimeException e) {
+      throw new IOException("malformed note", e);
+    }
+  }
+  
+  @Override
+  public UUID readId(ByteBuffer buffer) throws IOException {
+    try {
+      byte schemaVersion = buffer.get();
+      if (schemaVersion != SCHEMA_VERSION) {
+        throw new IOException("unsupported note schema version " + schemaVersion);
+      }
+      return new UUID(buffer.getLong(), buffer.getLong());
+    } catch (RuntimeException e) {
+      throw new IOException("malformed note", e);
+    }
+  }
+  
+  /**
+   * This method decodes the UTF-8 text straight out of the buffer, without copying it into
+   * an intermediate array first when the buffer is backed by one. A buffer that isn't, e.g. the
+   * mapped journal, is copied out in one bulk get, which is a lot faster than decoding it
+   * through a CharsetDecoder.
+   */
+  
+  private static String readText(ByteBuffer buffer, int textLength) {
+    String text;
+    if (buffer.hasArray()) {
+      text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), textLength, StandardCharsets.UTF_8);
+    } else {
+      byte[] textBytes = new byte[textLength];
+      buffer.duplicate().get(textBytes);
+      text = new String(textBytes, StandardCharsets.UTF_8);
+    }
+    buffer.position(buffer.position() + textLength);
+    return text;
+  }
+  
+  static void putVarInt(ByteBuffer buffer, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+  
+  static int getVarInt(ByteBuffer buffer) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("malformed varint");
+  }
+}
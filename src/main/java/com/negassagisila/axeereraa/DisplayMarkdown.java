@@ -1,6 +1,10 @@
 package com.negassagisila.axeereraa;
 
+import com.vladsch.flexmark.Extension;
+import com.vladsch.flexmark.ext.autolink.AutolinkExtension;
+import com.vladsch.flexmark.ext.gfm.strikethrough.StrikethroughExtension;
 import com.vladsch.flexmark.ext.gfm.tasklist.TaskListExtension;
+import com.vladsch.flexmark.ext.tables.TablesExtension;
 import com.vladsch.flexmark.html.HtmlRenderer;
 import com.vladsch.flexmark.parser.Parser;
 import com.vladsch.flexmark.util.ast.Node;
@@ -8,30 +12,121 @@ import com.vladsch.flexmark.util.options.MutableDataHolder;
 import com.vladsch.flexmark.util.options.MutableDataSet;
 
 import javax.swing.*;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 /**
- *
+ * This class is responsible for turning the written markdown into HTML. The flexmark Parser
+ * and HtmlRenderer are built once, from one shared set of options, and reused by every call
+ * and every window, since building them costs more than parsing a typical note. Both are
+ * immutable once built, so they are safe to use from any thread.
  */
 
 class DisplayMarkdown {
   
   /**
-   * This method is responsible for changing the written raw text into Markdown. It instantiates
-   * a new MutableDataSet() that will hold a DataKey, and it's value that would properly parse
-   * task list items when the Parser & HtmlRenderer objects are built with it.
+   * The markdown extensions that can be turned on, on top of plain CommonMark.
+   */
+  
+  enum MarkdownExtension {
+    TABLES {
+      @Override
+      Extension create() {
+        return TablesExtension.create();
+      }
+    },
+    STRIKETHROUGH {
+      @Override
+      Extension create() {
+        return StrikethroughExtension.create();
+      }
+    },
+    AUTOLINK {
+      @Override
+      Extension create() {
+        return AutolinkExtension.create();
+      }
+    },
+    TASK_LIST {
+      @Override
+      Extension create() {
+        return TaskListExtension.create();
+      }
+    };
+    
+    abstract Extension create();
+  }
+  
+  private static volatile Converter converter = new Converter(EnumSet.allOf(MarkdownExtension.class));
+  private static final RenderedHtmlCache renderedHtmlCache = new RenderedHtmlCache();
+  
+  /**
+   * This method is used to choose which markdown extensions are used from now on. It rebuilds
+   * the shared Parser & HtmlRenderer once, the conversions already running finish with the
+   * previous ones.
+   * @param extensions the extensions to be used.
+   */
+  
+  static void setExtensions(Set<MarkdownExtension> extensions) {
+    converter = new Converter(extensions);
+  }
+  
+  /**
+   * This method is used to get the markdown extensions that are currently used.
+   * @return an unmodifiable Set of the extensions.
+   */
+  
+  static Set<MarkdownExtension> getExtensions() {
+    return converter.extensions;
+  }
+  
+  /**
+   * This method is used to get the cache of the HTML rendered from the written texts.
+   * @return the shared RenderedHtmlCache.
+   */
+  
+  static RenderedHtmlCache getRenderedHtmlCache() {
+    return renderedHtmlCache;
+  }
+  
+  /**
+   * This method is responsible for changing the written raw text into Markdown. It parses the
+   * text with the shared Parser and renders it with the shared HtmlRenderer, which were built
+   * with the options of the chosen extensions, e.g. properly parsing task list items.
+   * A text that was already rendered with the same extensions is taken from the cache instead.
    * @param writtenMarkdownText markdown document to be parsed by
    * com.vladsch.flexmark.parser.Parser.parse() method
    * @return a String representation of the written markdown text
    */
   static String convertToMarkdown(String writtenMarkdownText) {
-    MutableDataHolder option = new MutableDataSet();
-    option.set(Parser.EXTENSIONS, Collections.singletonList(TaskListExtension.create()));
-    
-    Parser parser = Parser.builder(option).build();
-    Node document = parser.parse(writtenMarkdownText);
-    HtmlRenderer renderer = HtmlRenderer.builder(option).build();
-    return renderer.render(document);
+    Converter current = converter;
+    String key = RenderedHtmlCache.keyOf(current.extensions.toString(), writtenMarkdownText);
+    String html = renderedHtmlCache.get(key);
+    if (html == null) {
+      html = Instrumentation.call("DisplayMarkdown.render", () -> {
+        Node document = current.parser.parse(writtenMarkdownText);
+        return current.renderer.render(document);
+      });
+      renderedHtmlCache.put(key, html);
+    }
+    return html;
+  }
+  
+  /**
+   * This method is responsible for rendering the written markdown straight into the given
+   * output, e.g. a file, with the shared Parser & HtmlRenderer. It bypasses the cache, so that
+   * rendering many notes once, as an export does, doesn't push out the previews of the notes
+   * that are open.
+   * @param writtenMarkdownText the markdown to be rendered.
+   * @param output where the HTML is written to.
+   */
+  static void renderTo(String writtenMarkdownText, Appendable output) {
+    Converter current = converter;
+    Instrumentation.run("DisplayMarkdown.render",
+            () -> current.renderer.render(current.parser.parse(writtenMarkdownText), output));
   }
   
   /**
@@ -41,8 +136,45 @@ class DisplayMarkdown {
    * @return a JEditorPane that will be displayed
    */
   JEditorPane displayMarkdown(String writtenMarkDownText) {
-    JEditorPane markdownPane = new JEditorPane("text/html", DisplayMarkdown.convertToMarkdown(writtenMarkDownText));
+    return displayRenderedMarkdown(DisplayMarkdown.convertToMarkdown(writtenMarkDownText));
+  }
+  
+  /**
+   * This method is responsible for instantiating a new JEditorPane that contains markdown
+   * that was already rendered, e.g. in the background by MarkdownPreview.
+   * @param renderedMarkdown the HTML rendered from the markdown text
+   * @return a JEditorPane that will be displayed
+   */
+  JEditorPane displayRenderedMarkdown(String renderedMarkdown) {
+    JEditorPane markdownPane = new JEditorPane("text/html", renderedMarkdown);
     markdownPane.setEditable(true);
     return markdownPane;
   }
-}
\ No newline at end of file
+  
+  /**
+   * The Parser & HtmlRenderer built from the options of one set of extensions.
+   */
+  
+  private static final class Converter {
+    private final Set<MarkdownExtension> extensions;
+    private final Parser parser;
+    private final HtmlRenderer renderer;
+    
+    Converter(Set<MarkdownExtension> extensions) {
+      this.extensions = Collections.unmodifiableSet(
+              extensions.isEmpty() ? EnumSet.noneOf(MarkdownExtension.class) : EnumSet.copyOf(extensions)
+      );
+      
+      List<Extension> flexmarkExtensions = new ArrayList<>();
+      for (MarkdownExtension e : this.extensions) {
+        flexmarkExtensions.add(e.create());
+      }
+      
+      MutableDataHolder option = new MutableDataSet();
+      option.set(Parser.EXTENSIONS, flexmarkExtensions);
+      
+      parser = Parser.builder(option).build();
+      renderer = HtmlRenderer.builder(option).build();
+    }
+  }
+}
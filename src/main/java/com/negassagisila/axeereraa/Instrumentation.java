@@ -0,0 +1,329 @@
+package com.negassagisila.axeereraa;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class times the spans of the application that the startup and the rendering spend
+ * their time in, e.g. the setup of the look and feel, the loading of the notes or the building
+ * of a window. Every span is counted and its durations are kept in a histogram, which are
+ * exposed as the "com.negassagisila.axeereraa:type=Instrumentation" MXBean, and every span is
+ * also recorded as a JFR event when the application runs on a JVM that has JFR.
+ *
+ * It's turned on by the "axeereraa.instrumentation" system property, or by starting the
+ * application with "--startup-report", which also prints where the startup went once every
+ * window is visible. While it's off a span is a shared object that does nothing.
+ */
+
+final class Instrumentation {
+  static final String STARTUP_REPORT_FLAG = "--startup-report";
+  static final String OBJECT_NAME = "com.negassagisila.axeereraa:type=Instrumentation";
+
+  /**
+   * the histogram of a span has a bucket for every power of two microseconds,
+   * the last one holding everything from about 8 seconds on.
+   */
+
+  static final int HISTOGRAM_BUCKETS = 24;
+
+  private static final Map<String, SpanStatistics> statistics = new ConcurrentHashMap<>();
+  private static volatile boolean enabled;
+  private static volatile boolean startupReportRequested;
+  private static SpanListener spanListener;
+
+  static {
+    if (Boolean.getBoolean("axeereraa.instrumentation")) {
+      enable();
+    }
+  }
+
+  private Instrumentation() {
+  }
+
+  /**
+   * This method turns the instrumentation on, registering the MXBean and, where the JVM has
+   * JFR, the JFR events. Turning it on again does nothing.
+   */
+
+  static synchronized void enable() {
+    if (enabled) {
+      return;
+    }
+    spanListener = loadJfrSpanListener();
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(
+              new InstrumentationBean(), new ObjectName(OBJECT_NAME));
+    } catch (JMException e) {
+      e.printStackTrace();
+    }
+    enabled = true;
+  }
+
+  /**
+   * This method turns the instrumentation on and has the startup report printed once every
+   * window of the startup is visible.
+   */
+
+  static void requestStartupReport() {
+    enable();
+    startupReportRequested = true;
+  }
+
+  static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * This method starts timing a span, which ends once it's closed.
+   * @param name the name of the span, e.g. the method it times.
+   * @return the started span, to be closed once the timed work is done.
+   */
+
+  static Span start(String name) {
+    if (!enabled) {
+      return Span.DISABLED;
+    }
+    SpanListener listener = spanListener;
+    return new Span(name, listener, listener == null ? null : listener.begin(name));
+  }
+
+  /**
+   * This method times the given work as a span.
+   * @param name the name of the span, e.g. the method it times.
+   * @param work the timed work.
+   * @return what the work returned.
+   * @throws E whatever the work throws.
+   */
+
+  static <T, E extends Exception> T call(String name, TimedWork<T, E> work) throws E {
+    Span span = start(name);
+    try {
+      return work.call();
+    } finally {
+      span.close();
+    }
+  }
+
+  /**
+   * This method times the given action as a span.
+   * @param name the name of the span, e.g. the method it times.
+   * @param action the timed action.
+   * @throws E whatever the action throws.
+   */
+
+  static <E extends Exception> void run(String name, TimedAction<E> action) throws E {
+    Span span = start(name);
+    try {
+      action.run();
+    } finally {
+      span.close();
+    }
+  }
+
+  /**
+   * This method is called once every window of the startup is visible, it prints the startup
+   * report if it was asked for.
+   */
+
+  static void startupFinished() {
+    if (startupReportRequested) {
+      startupReportRequested = false;
+      System.out.print(report());
+    }
+  }
+
+  /**
+   * This method is used to get the breakdown of where the time went, the spans that took the
+   * longest altogether first.
+   * @return the report as a table.
+   */
+
+  static String report() {
+    List<Map.Entry<String, SpanStatistics>> spans = new ArrayList<>(statistics.entrySet());
+    spans.sort((a, b) -> Long.compare(b.getValue().getTotalNanos(), a.getValue().getTotalNanos()));
+
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("Axeereraa startup: first window visible after %d ms, all windows visible after %d ms%n",
+            StartupMetrics.getFirstWindowVisibleMillis(), StartupMetrics.getAllWindowsVisibleMillis()));
+    report.append(String.format("%-36s %8s %12s %12s %12s%n", "span", "count", "total ms", "mean ms", "max ms"));
+    for (Map.Entry<String, SpanStatistics> span : spans) {
+      SpanStatistics spanStatistics = span.getValue();
+      long count = spanStatistics.getCount();
+      report.append(String.format("%-36s %8d %12.3f %12.3f %12.3f%n", span.getKey(), count,
+              spanStatistics.getTotalNanos() / 1e6,
+              count == 0 ? 0 : spanStatistics.getTotalNanos() / 1e6 / count,
+              spanStatistics.getMaxNanos() / 1e6));
+    }
+    return report.toString();
+  }
+
+  static SpanStatistics getStatistics(String name) {
+    return statistics.get(name);
+  }
+
+  static Set<String> getSpanNames() {
+    return new TreeSet<>(statistics.keySet());
+  }
+
+  /**
+   * This method clears every recorded span, it's mainly there for the tests.
+   */
+
+  static void reset() {
+    statistics.clear();
+  }
+
+  /**
+   * This method loads the JFR events, which are compiled apart for the JVMs that have JFR.
+   * @return the listener that records the spans as JFR events, or null if there's no JFR.
+   */
+
+  private static SpanListener loadJfrSpanListener() {
+    try {
+      return (SpanListener) Class.forName("com.negassagisila.axeereraa.JfrSpanListener")
+              .getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return null;
+    }
+  }
+
+  /**
+   * The work timed by call(), which may throw a checked exception.
+   */
+
+  interface TimedWork<T, E extends Exception> {
+    T call() throws E;
+  }
+
+  /**
+   * The action timed by run(), which may throw a checked exception.
+   */
+
+  interface TimedAction<E extends Exception> {
+    void run() throws E;
+  }
+
+  /**
+   * A single timed span.
+   */
+
+  static class Span implements AutoCloseable {
+    static final Span DISABLED = new Span(null, null, null) {
+      @Override
+      public void close() {
+        // nothing is timed while the instrumentation is off
+      }
+    };
+
+    private final String name;
+    private final SpanListener listener;
+    private final Object event;
+    private final long startNanos = System.nanoTime();
+
+    private Span(String name, SpanListener listener, Object event) {
+      this.name = name;
+      this.listener = listener;
+      this.event = event;
+    }
+
+    @Override
+    public void close() {
+      long durationNanos = System.nanoTime() - startNanos;
+      statistics.computeIfAbsent(name, k -> new SpanStatistics()).record(durationNanos);
+      if (event != null) {
+        listener.end(event);
+      }
+    }
+  }
+
+  /**
+   * How many times a span ran and how long it took.
+   */
+
+  static final class SpanStatistics {
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+    private final long[] histogram = new long[HISTOGRAM_BUCKETS];
+
+    synchronized void record(long durationNanos) {
+      count++;
+      totalNanos += durationNanos;
+      maxNanos = Math.max(maxNanos, durationNanos);
+      long micros = Math.max(durationNanos / 1000, 1);
+      histogram[Math.min(63 - Long.numberOfLeadingZeros(micros), HISTOGRAM_BUCKETS - 1)]++;
+    }
+
+    synchronized long getCount() {
+      return count;
+    }
+
+    synchronized long getTotalNanos() {
+      return totalNanos;
+    }
+
+    synchronized long getMaxNanos() {
+      return maxNanos;
+    }
+
+    /**
+     * @return how many times the span took from 2^i to 2^(i+1) microseconds, for every i.
+     */
+
+    synchronized long[] getHistogram() {
+      return histogram.clone();
+    }
+  }
+
+  /**
+   * The MXBean the spans are exposed through.
+   */
+
+  private static final class InstrumentationBean implements InstrumentationMXBean {
+
+    @Override
+    public Map<String, Long> getSpanCounts() {
+      Map<String, Long> counts = new TreeMap<>();
+      statistics.forEach((name, spanStatistics) -> counts.put(name, spanStatistics.getCount()));
+      return counts;
+    }
+
+    @Override
+    public Map<String, Long> getSpanTotalMicros() {
+      Map<String, Long> totals = new TreeMap<>();
+      statistics.forEach((name, spanStatistics) -> totals.put(name, spanStatistics.getTotalNanos() / 1000));
+      return totals;
+    }
+
+    @Override
+    public Map<String, Long> getSpanMaxMicros() {
+      Map<String, Long> maxima = new TreeMap<>();
+      statistics.forEach((name, spanStatistics) -> maxima.put(name, spanStatistics.getMaxNanos() / 1000));
+      return maxima;
+    }
+
+    @Override
+    public long[] getSpanHistogram(String span) {
+      SpanStatistics spanStatistics = statistics.get(span);
+      return spanStatistics == null ? new long[HISTOGRAM_BUCKETS] : spanStatistics.getHistogram();
+    }
+
+    @Override
+    public long getFirstWindowVisibleMillis() {
+      return StartupMetrics.getFirstWindowVisibleMillis();
+    }
+
+    @Override
+    public long getAllWindowsVisibleMillis() {
+      return StartupMetrics.getAllWindowsVisibleMillis();
+    }
+
+    @Override
+    public String getReport() {
+      return report();
+    }
+  }
+}
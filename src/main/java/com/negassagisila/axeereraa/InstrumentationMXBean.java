@@ -0,0 +1,46 @@
+package com.negassagisila.axeereraa;
+
+import java.util.Map;
+
+/**
+ * The management interface of the Instrumentation, registered as
+ * "com.negassagisila.axeereraa:type=Instrumentation" once it's turned on.
+ */
+
+public interface InstrumentationMXBean {
+  
+  /**
+   * @return how many times every span ran, by its name.
+   */
+  
+  Map<String, Long> getSpanCounts();
+  
+  /**
+   * @return how many microseconds every span took altogether, by its name.
+   */
+  
+  Map<String, Long> getSpanTotalMicros();
+  
+  /**
+   * @return the most microseconds a single run of every span took, by its name.
+   */
+  
+  Map<String, Long> getSpanMaxMicros();
+  
+  /**
+   * @param span the name of the span.
+   * @return how many times the span took from 2^i to 2^(i+1) microseconds, for every i.
+   */
+  
+  long[] getSpanHistogram(String span);
+  
+  long getFirstWindowVisibleMillis();
+  
+  long getAllWindowsVisibleMillis();
+  
+  /**
+   * @return the breakdown of where the time went, as printed by --startup-report.
+   */
+  
+  String getReport();
+}
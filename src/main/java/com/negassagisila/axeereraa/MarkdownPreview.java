@@ -0,0 +1,227 @@
+package com.negassagisila.axeereraa;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.DefaultCaret;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * This class is responsible for the live markdown preview of a note. The edits to the text
+ * area are debounced, and once the typing pauses the text is parsed and rendered on a
+ * background worker and the result is posted back to the JEditorPane on the EDT. Only the
+ * top-level blocks that changed since the last render are rendered again, and a render that
+ * is still running when newer keystrokes arrive is cancelled, so the EDT never waits on it.
+ */
+
+class MarkdownPreview implements DocumentListener {
+  static final int DEBOUNCE_MILLIS = 300;
+
+  private static final ExecutorService RENDERER = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "Axeereraa-markdown-renderer");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private static final Pattern FENCE = Pattern.compile("^ {0,3}(```|~~~).*");
+  private static final Pattern LIST_ITEM = Pattern.compile("^ {0,3}([*+-]|\\d{1,9}[.)])(\\s.*)?$");
+  private static final Pattern REFERENCE_DEFINITION = Pattern.compile("(?m)^ {0,3}\\[[^\\]]+\\]:");
+
+  private final JTextArea source;
+  private final JEditorPane target;
+  private final Timer debounceTimer;
+  private final AtomicLong generation = new AtomicLong();
+  private Future<?> pendingRender;
+
+  /**
+   * the HTML of every block of the last render, only touched on the renderer thread.
+   */
+
+  private Map<String, String> renderedBlocks = new HashMap<>();
+
+  MarkdownPreview(JTextArea source, JEditorPane target) {
+    this.source = source;
+    this.target = target;
+    this.debounceTimer = new Timer(DEBOUNCE_MILLIS, e -> renderNow());
+    this.debounceTimer.setRepeats(false);
+    ((DefaultCaret) target.getCaret()).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+  }
+
+  /**
+   * This method starts following the edits of the text area, and renders what's already written.
+   */
+
+  void start() {
+    source.getDocument().addDocumentListener(this);
+    renderNow();
+  }
+
+  /**
+   * This method stops following the edits of the text area and cancels the pending render.
+   */
+
+  void stop() {
+    source.getDocument().removeDocumentListener(this);
+    debounceTimer.stop();
+    generation.incrementAndGet();
+    if (pendingRender != null) {
+      pendingRender.cancel(true);
+    }
+  }
+
+  @Override
+  public void insertUpdate(DocumentEvent e) {
+    debounceTimer.restart();
+  }
+
+  @Override
+  public void removeUpdate(DocumentEvent e) {
+    debounceTimer.restart();
+  }
+
+  @Override
+  public void changedUpdate(DocumentEvent e) {
+    // attribute changes don't change the markdown
+  }
+
+  /**
+   * This method is responsible for rendering the given markdown on the background worker and
+   * handing the HTML to the given consumer on the EDT, for the one-off previews.
+   * @param writtenMarkdownText the markdown to be rendered.
+   * @param onRendered called on the EDT with the rendered HTML.
+   * @return the Future of the render, to cancel it with.
+   */
+
+  static Future<?> renderInBackground(String writtenMarkdownText, Consumer<String> onRendered) {
+    return RENDERER.submit(() -> {
+      String html = DisplayMarkdown.convertToMarkdown(writtenMarkdownText);
+      EventQueue.invokeLater(() -> onRendered.accept(html));
+    });
+  }
+
+  /**
+   * This method cancels the render that's still running, takes a snapshot of the text on the
+   * EDT and hands it to the background worker.
+   */
+
+  private void renderNow() {
+    if (pendingRender != null) {
+      pendingRender.cancel(true);
+    }
+    long renderGeneration = generation.incrementAndGet();
+    String writtenMarkdownText = source.getText();
+
+    pendingRender = RENDERER.submit(() -> {
+      String html = renderIncrementally(writtenMarkdownText);
+      if (html == null) {
+        return;
+      }
+      EventQueue.invokeLater(() -> {
+        if (generation.get() == renderGeneration) {
+          target.setText(html);
+        }
+      });
+    });
+  }
+
+  /**
+   * This method renders the markdown block by block, reusing the HTML of the blocks that didn't
+   * change since the last render.
+   * @return the HTML of the whole text, or null if the render was cancelled.
+   */
+
+  private String renderIncrementally(String writtenMarkdownText) {
+    Map<String, String> blocks = new HashMap<>();
+    StringBuilder html = new StringBuilder();
+
+    for (String block : splitIntoBlocks(writtenMarkdownText)) {
+      if (Thread.currentThread().isInterrupted()) {
+        return null;
+      }
+      String blockHtml = blocks.get(block);
+      if (blockHtml == null) {
+        blockHtml = renderedBlocks.get(block);
+      }
+      if (blockHtml == null) {
+        blockHtml = DisplayMarkdown.convertToMarkdown(block);
+      }
+      blocks.put(block, blockHtml);
+      html.append(blockHtml);
+    }
+
+    renderedBlocks = blocks;
+    return html.toString();
+  }
+
+  /**
+   * This method splits the markdown into its top-level blocks, the ones that render the same
+   * on their own as they do inside the whole text. A block ends at a blank line that isn't
+   * inside a fenced code block and isn't followed by an indented line or, inside a list, by
+   * another list item. Link reference definitions can be used from anywhere in the text,
+   * so a text that has any is kept in one block.
+   * @param writtenMarkdownText the markdown to be split.
+   * @return the blocks, which put back together give the whole text.
+   */
+
+  static List<String> splitIntoBlocks(String writtenMarkdownText) {
+    List<String> blocks = new ArrayList<>();
+    if (REFERENCE_DEFINITION.matcher(writtenMarkdownText).find()) {
+      blocks.add(writtenMarkdownText);
+      return blocks;
+    }
+
+    String[] lines = writtenMarkdownText.split("(?<=\n)");
+    StringBuilder block = new StringBuilder();
+    boolean insideFence = false;
+    boolean insideList = false;
+    boolean afterBlankLine = false;
+
+    for (String line : lines) {
+      boolean isBlank = line.trim().isEmpty();
+
+      if (afterBlankLine && !isBlank && !insideFence
+              && !Character.isWhitespace(line.charAt(0))
+              && !(insideList && LIST_ITEM.matcher(stripNewline(line)).matches())) {
+        blocks.add(block.toString());
+        block.setLength(0);
+        insideList = false;
+      }
+
+      if (block.length() == 0 && !isBlank) {
+        insideList = LIST_ITEM.matcher(stripNewline(line)).matches();
+      }
+      if (FENCE.matcher(stripNewline(line)).matches()) {
+        insideFence = !insideFence;
+      }
+      if (!isBlank) {
+        afterBlankLine = false;
+      } else if (!insideFence) {
+        afterBlankLine = true;
+      }
+      block.append(line);
+    }
+
+    if (block.length() > 0) {
+      blocks.add(block.toString());
+    }
+    return blocks;
+  }
+
+  private static String stripNewline(String line) {
+    int end = line.length();
+    while (end > 0 && (line.charAt(end - 1) == '\n' || line.charAt(end - 1) == '\r')) {
+      end--;
+    }
+    return line.substring(0, end);
+  }
+}
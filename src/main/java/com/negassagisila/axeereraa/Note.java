@@ -1,8 +1,11 @@
 package com.negassagisila.axeereraa;
 
 import java.awt.*;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Objects;
+import java.util.UUID;
 
 /**
 *  This class is defines the actual Note object that will be used through out this
@@ -11,22 +14,43 @@ import java.util.Objects;
 
 public class Note implements Serializable {
   
+  /**
+   * kept at the value computed for the fields of the first version, so that the notes saved
+   * by it can still be deserialized.
+   */
+  
+  private static final long serialVersionUID = -272501416701088582L;
+  
+  /**
+   * this identifies the note for its whole life, it's what the note is saved and deleted under.
+   */
+  
+  private UUID id;
+  
   /**
    * this will hold the written text.
    */
 
   private String writtenText;
   private NoteColor noteColor;
-  private static final NoteColor DEFAULT_NOTE_COLOR = NoteColor.lightYellow;
+  static final NoteColor DEFAULT_NOTE_COLOR = NoteColor.lightYellow;
 
-  public Note(String writtenText, NoteColor noteColor) {
+  Note(UUID id, String writtenText, NoteColor noteColor) {
+    this.id = id;
     this.writtenText = writtenText;
     this.noteColor = noteColor;
   }
 
+  public Note(String writtenText, NoteColor noteColor) {
+    this(UUID.randomUUID(), writtenText, noteColor);
+  }
+
   public Note(String writtenText) {
-    this.writtenText = writtenText;
-    noteColor = DEFAULT_NOTE_COLOR;
+    this(writtenText, DEFAULT_NOTE_COLOR);
+  }
+  
+  UUID getId() {
+      return id;
   }
   
   void setNoteColor(NoteColor chosenColor) {
@@ -45,6 +69,22 @@ public class Note implements Serializable {
       return NoteColor.getTheColorOfTheNote(noteColor);
   }
 
+  NoteColor getColor() {
+      return noteColor;
+  }
+
+  /**
+   * Notes saved before the id existed don't carry one, so they are given a new id
+   * the first time they are read.
+   */
+  
+  private void readObject(ObjectInputStream objectInputStream) throws IOException, ClassNotFoundException {
+    objectInputStream.defaultReadObject();
+    if (id == null) {
+      id = UUID.randomUUID();
+    }
+  }
+
   @Override
   public int hashCode() {
       return Objects.hashCode(writtenText) + Objects.hashCode(noteColor);
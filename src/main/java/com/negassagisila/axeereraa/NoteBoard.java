@@ -0,0 +1,212 @@
+package com.negassagisila.axeereraa;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+
+/**
+ * The board mode of the Axeereraa application, a single window that shows every note as a
+ * card instead of opening a window per note. The cards are the cells of a JList, so a single
+ * renderer paints only the ones that are scrolled into view, and every card has the same fixed
+ * size, so the list never measures them. The board only holds the NoteMetadata of the notes,
+ * the text of a note is read once its card is painted. Opening a card shows its note in its
+ * own AxeereraaUI, and the card is updated once that window is closed.
+ */
+
+class NoteBoard extends JFrame {
+  static final int CARD_WIDTH = 220;
+  static final int CARD_HEIGHT = 160;
+  
+  /**
+   * the most characters of a note that are shown on its card.
+   */
+  
+  static final int CARD_TEXT_LENGTH = 280;
+  
+  private final Axeereraa axRunner;
+  private final DefaultListModel<NoteMetadata> notes = new DefaultListModel<>();
+  private final JList<NoteMetadata> cards = new JList<>(notes);
+  
+  NoteBoard(Axeereraa axRunner) throws IOException, FontFormatException {
+    this.axRunner = axRunner;
+    
+    cards.setLayoutOrientation(JList.HORIZONTAL_WRAP);
+    cards.setVisibleRowCount(-1);
+    cards.setFixedCellWidth(CARD_WIDTH);
+    cards.setFixedCellHeight(CARD_HEIGHT);
+    cards.setCellRenderer(new NoteCard(UIResources.getFont(UIResources.NOTE_FONT_SIZE - 4)));
+    cards.addMouseListener(new MouseAdapter() {
+      @Override
+      public void mouseClicked(MouseEvent e) {
+        if (e.getClickCount() == 2) {
+          int index = cards.locationToIndex(e.getPoint());
+          if (index >= 0 && cards.getCellBounds(index, index).contains(e.getPoint())) {
+            Axeereraa.getNoteBodies().load(notes.get(index).getId(), NoteBoard.this::openNote);
+          }
+        }
+      }
+    });
+    
+    JMenuItem newNoteMenuItem = new JMenuItem("New Note");
+    newNoteMenuItem.addActionListener(e -> {
+      Note note = new Note("");
+      Axeereraa.getNoteBodies().put(note);
+      addNote(NoteMetadata.of(note, System.currentTimeMillis(), null));
+      openNote(note);
+    });
+    JMenuItem searchMenuItem = new JMenuItem("Search Notes");
+    searchMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F, InputEvent.CTRL_MASK));
+    searchMenuItem.addActionListener(e -> Axeereraa.showSearch(axRunner, this));
+    JMenu fileMenu = new JMenu("file");
+    fileMenu.add(newNoteMenuItem);
+    fileMenu.add(searchMenuItem);
+    JMenuBar menuBar = new JMenuBar();
+    menuBar.add(fileMenu);
+    setJMenuBar(menuBar);
+    
+    setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+    getContentPane().add(new JScrollPane(cards,
+            ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED,
+            ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER));
+    setSize(4 * CARD_WIDTH + 30, 3 * CARD_HEIGHT + 60);
+    setTitle("Axeereraa");
+    setIconImage(UIResources.getIcon());
+  }
+  
+  /**
+   * This method adds a card for the note to the board, it's called on the EDT.
+   * @param noteMetadata the NoteMetadata of the note to be shown.
+   */
+  
+  void addNote(NoteMetadata noteMetadata) {
+    notes.addElement(noteMetadata);
+  }
+  
+  /**
+   * This method displays the board to the user on the EDT.
+   */
+  
+  void showBoard() {
+    EventQueue.invokeLater(() -> {
+      setLocationByPlatform(true);
+      setVisible(true);
+      StartupMetrics.windowVisible();
+    });
+  }
+  
+  /**
+   * This method opens the note of a card in its own AxeereraaUI. The card is updated with the
+   * edited note once the window is closed, or removed if the note is deleted in it. A note
+   * that's already open is brought to the front instead, so it's never edited in two windows.
+   * @param note the Note object of the card.
+   */
+  
+  private void openNote(Note note) {
+    AxeereraaUI openWindow = AxeereraaUI.getOpenWindow(note.getId());
+    if (openWindow != null) {
+      openWindow.setState(Frame.NORMAL);
+      openWindow.toFront();
+      openWindow.requestFocus();
+      return;
+    }
+    try {
+      AxeereraaUI axUI = new AxeereraaUI(axRunner).setNote(note);
+      axUI.setOnNoteRemoved(this::removeNote);
+      axUI.addWindowListener(new WindowAdapter() {
+        @Override
+        public void windowClosed(WindowEvent e) {
+          replaceNote(axUI.getNote(), axUI.getViewState());
+        }
+      });
+      axUI.showAx();
+    } catch (IllegalAccessException |
+            InstantiationException |
+            UnsupportedLookAndFeelException |
+            ClassNotFoundException |
+            FontFormatException |
+            IOException e) {
+      e.printStackTrace();
+    }
+  }
+  
+  private void replaceNote(Note note, NoteViewState viewState) {
+    int index = indexOf(note);
+    if (index >= 0) {
+      Axeereraa.getNoteBodies().put(note);
+      notes.set(index, NoteMetadata.of(note, System.currentTimeMillis(), viewState));
+    }
+  }
+  
+  private void removeNote(Note note) {
+    int index = indexOf(note);
+    if (index >= 0) {
+      notes.remove(index);
+    }
+  }
+  
+  /**
+   * the cards are found by the id of their note, the text of the note might have changed.
+   */
+  
+  private int indexOf(Note note) {
+    for (int i = 0; i < notes.size(); i++) {
+      if (notes.get(i).getId().equals(note.getId())) {
+        return i;
+      }
+    }
+    return -1;
+  }
+  
+  /**
+   * This method is used to get the text shown on the card of a note, which is cut short so
+   * that painting a card costs the same however long the note is.
+   * @param note the Note object of the card.
+   * @return the beginning of the written text.
+   */
+  
+  static String cardText(Note note) {
+    String writtenText = note.getWrittenText();
+    if (writtenText.length() <= CARD_TEXT_LENGTH) {
+      return writtenText;
+    }
+    return writtenText.substring(0, CARD_TEXT_LENGTH) + "\u2026";
+  }
+  
+  /**
+   * The renderer that paints every card of the board, it's one component that's set up
+   * with the note of each visible card in turn.
+   */
+  
+  private static class NoteCard extends JTextArea implements ListCellRenderer<NoteMetadata> {
+    
+    NoteCard(Font font) {
+      setFont(font);
+      setLineWrap(true);
+      setWrapStyleWord(true);
+    }
+    
+    @Override
+    public Component getListCellRendererComponent(JList<? extends NoteMetadata> list, NoteMetadata noteMetadata,
+                                                  int index, boolean isSelected, boolean cellHasFocus) {
+      Note note = Axeereraa.getNoteBodies().getIfLoaded(noteMetadata.getId());
+      if (note == null) {
+        setText(noteMetadata.getTitle());
+        Axeereraa.getNoteBodies().load(noteMetadata.getId(), loadedNote -> list.repaint());
+      } else {
+        setText(cardText(note));
+      }
+      setBackground(NoteColor.getTheColorOfTheNote(noteMetadata.getColor()));
+      setBorder(BorderFactory.createCompoundBorder(
+              BorderFactory.createMatteBorder(4, 4, 4, 4,
+                      isSelected ? list.getSelectionBackground() : list.getBackground()),
+              BorderFactory.createEmptyBorder(6, 6, 6, 6)));
+      return this;
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package com.negassagisila.axeereraa;
+
+import java.awt.*;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * This class is responsible for the written text of the notes, which is only read from the
+ * NoteJournal once a note is shown. The notes that were read are kept behind soft references,
+ * so the garbage collector can drop the ones that aren't shown anymore when memory runs low,
+ * and they're just read again the next time. A note that's being edited is held by its
+ * window, so it's never dropped.
+ */
+
+class NoteBodies {
+  private static final int MAX_THREADS = 4;
+  
+  private final NoteJournal noteJournal;
+  private final Map<UUID, SoftReference<Note>> loadedNotes = new ConcurrentHashMap<>();
+  
+  /**
+   * the consumers waiting for the notes that are being read, by the id of the note. They're
+   * handed null if there's no note with the id.
+   */
+  
+  private final Map<UUID, List<Consumer<Note>>> waitingConsumers = new HashMap<>();
+  private final ExecutorService loader = Executors.newFixedThreadPool(
+          Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()),
+          r -> {
+            Thread t = new Thread(r, "Axeereraa-note-body-loader");
+            t.setDaemon(true);
+            return t;
+          });
+  
+  NoteBodies(NoteJournal noteJournal) {
+    this.noteJournal = noteJournal;
+  }
+  
+  /**
+   * @return the note with the given id if it's already read, or null if it isn't.
+   */
+  
+  Note getIfLoaded(UUID id) {
+    SoftReference<Note> loadedNote = loadedNotes.get(id);
+    return loadedNote == null ? null : loadedNote.get();
+  }
+  
+  /**
+   * This method gets the note with the given id, reading it from the journal if it isn't
+   * already read.
+   * @param id the id of the note.
+   * @return the note, or null if there's no note with the id.
+   * @throws IOException if the note can't be read.
+   */
+  
+  Note get(UUID id) throws IOException {
+    Note note = getIfLoaded(id);
+    if (note == null) {
+      note = Instrumentation.call("NoteJournal.read", () -> noteJournal.read(id.toString()));
+      if (note != null) {
+        note = install(note);
+      }
+    }
+    return note;
+  }
+  
+  /**
+   * This method reads the note with the given id in the background, and hands it to the given
+   * consumer on the EDT. Asking for a note that's already being read doesn't read it again,
+   * the consumer just waits for the same read.
+   * @param id the id of the note.
+   * @param onLoaded called on the EDT with the note.
+   */
+  
+  void load(UUID id, Consumer<Note> onLoaded) {
+    load(id, onLoaded, () -> { });
+  }
+  
+  /**
+   * This method reads the note with the given id in the background like load(UUID, Consumer),
+   * and tells the given Runnable on the EDT if there's no note with the id.
+   * @param id the id of the note.
+   * @param onLoaded called on the EDT with the note.
+   * @param onNotFound called on the EDT if there's no note with the id.
+   */
+  
+  void load(UUID id, Consumer<Note> onLoaded, Runnable onNotFound) {
+    Note note = getIfLoaded(id);
+    if (note != null) {
+      EventQueue.invokeLater(() -> onLoaded.accept(note));
+      return;
+    }
+    Consumer<Note> consumer = n -> {
+      if (n != null) {
+        onLoaded.accept(n);
+      } else {
+        onNotFound.run();
+      }
+    };
+    synchronized (waitingConsumers) {
+      List<Consumer<Note>> waiting = waitingConsumers.get(id);
+      if (waiting != null) {
+        waiting.add(consumer);
+        return;
+      }
+      waiting = new ArrayList<>();
+      waiting.add(consumer);
+      waitingConsumers.put(id, waiting);
+    }
+    
+    loader.submit(() -> {
+      Note loadedNote = null;
+      boolean read = false;
+      try {
+        loadedNote = get(id);
+        read = true;
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      List<Consumer<Note>> waiting;
+      synchronized (waitingConsumers) {
+        waiting = waitingConsumers.remove(id);
+      }
+      if (read) {
+        Note n = loadedNote;
+        EventQueue.invokeLater(() -> waiting.forEach(c -> c.accept(n)));
+      }
+    });
+  }
+  
+  /**
+   * This method keeps the given note as the latest version of it, e.g. once it's saved.
+   * @param note the Note object.
+   */
+  
+  void put(Note note) {
+    loadedNotes.put(note.getId(), new SoftReference<>(note));
+  }
+  
+  /**
+   * This method keeps a note that was read from the journal, unless a newer version of it was
+   * put while it was being read, e.g. by an autosave, which is kept instead.
+   * @return the note that's kept.
+   */
+  
+  private Note install(Note readNote) {
+    Note[] keptNote = new Note[1];
+    loadedNotes.compute(readNote.getId(), (id, loadedNote) -> {
+      keptNote[0] = loadedNote == null ? null : loadedNote.get();
+      if (keptNote[0] != null) {
+        return loadedNote;
+      }
+      keptNote[0] = readNote;
+      return new SoftReference<>(readNote);
+    });
+    return keptNote[0];
+  }
+  
+  /**
+   * This method forgets the note with the given id, e.g. once it's deleted.
+   * @param id the id of the note.
+   */
+  
+  void remove(UUID id) {
+    loadedNotes.remove(id);
+  }
+}
@@ -0,0 +1,43 @@
+package com.negassagisila.axeereraa;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * This interface is implemented by the classes that turn a Note into bytes and back.
+ * It's what the NoteJournal, NoteSaver and NoteReader use to store the notes.
+ */
+
+interface NoteCodec {
+  
+  /**
+   * This method is responsible for writing a single note to the given stream.
+   * @param note the Note object to be encoded.
+   * @param outputStream the stream the encoded note is written to.
+   * @throws IOException if the note can't be written.
+   */
+  
+  void encode(Note note, OutputStream outputStream) throws IOException;
+  
+  /**
+   * This method is responsible for reading a single note from the given buffer, starting at
+   * its position. The position is left right after the note that was read.
+   * @param buffer the buffer holding the encoded note.
+   * @return the decoded Note object.
+   * @throws IOException if the bytes aren't a note this codec can read.
+   */
+  
+  Note decode(ByteBuffer buffer) throws IOException;
+  
+  /**
+   * This method is responsible for reading only the id of the note encoded in the given buffer,
+   * without decoding the rest of it.
+   * @param buffer the buffer holding the encoded note, positioned at its start.
+   * @return the id of the note.
+   * @throws IOException if the bytes aren't a note this codec can read.
+   */
+  
+  UUID readId(ByteBuffer buffer) throws IOException;
+}
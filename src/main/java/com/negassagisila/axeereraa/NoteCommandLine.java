@@ -0,0 +1,296 @@
+package com.negassagisila.axeereraa;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * This class is the headless command line of Axeereraa, it runs instead of the windows when
+ * the application is started with arguments, so a note folder can be migrated, backed up or
+ * seeded from scripts and on servers without a display:
+ *
+ *   import FOLDER            saves every .md file of the folder as a note
+ *   export FOLDER [--json]   writes every note into the folder as a .md file, or into a single
+ *                            notes.json file
+ *   site FOLDER              publishes every note as a page of a static HTML site inside the
+ *                            folder, rendering only the notes that changed since the last time
+ *   compact                  drops the records of the journal that aren't alive anymore
+ *   verify                   replays the whole journal and decodes every note
+ *
+ * The notes are read from and saved to the usual folder, unless "--dir FOLDER" is given.
+ * The files are imported and exported in batches, which are read or written in parallel,
+ * so only a single batch of notes is ever held in memory.
+ */
+
+class NoteCommandLine {
+  static final int BATCH_SIZE = 1024;
+
+  static final int EXIT_OK = 0;
+  static final int EXIT_FAILED = 1;
+  static final int EXIT_USAGE = 2;
+
+  private final PrintStream out;
+  private final PrintStream err;
+
+  NoteCommandLine(PrintStream out, PrintStream err) {
+    this.out = out;
+    this.err = err;
+  }
+
+  /**
+   * This method runs the command given by the arguments.
+   * @param args the command line arguments.
+   * @param defaultNotesFolder the folder the notes are saved in, unless "--dir" is given.
+   * @return the exit status of the command.
+   */
+
+  int run(String[] args, File defaultNotesFolder) {
+    List<String> arguments = new ArrayList<>();
+    File notesFolder = defaultNotesFolder;
+    boolean json = false;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--dir") && i + 1 < args.length) {
+        notesFolder = new File(args[++i]);
+      } else if (args[i].equals("--json")) {
+        json = true;
+      } else {
+        arguments.add(args[i]);
+      }
+    }
+    if (arguments.isEmpty()) {
+      return usage();
+    }
+
+    String command = arguments.get(0);
+    boolean needsFolder = command.equals("import") || command.equals("export") || command.equals("site");
+    if (needsFolder != (arguments.size() == 2) || arguments.size() > 2) {
+      return usage();
+    }
+    if (!notesFolder.isDirectory() && !notesFolder.mkdirs()) {
+      err.println(notesFolder + " can't be created");
+      return EXIT_FAILED;
+    }
+
+    try (NoteJournal noteJournal = NoteJournal.open(notesFolder)) {
+      switch (command) {
+        case "import":
+          return importNotes(noteJournal, new File(arguments.get(1)));
+        case "export":
+          return exportNotes(noteJournal, new File(arguments.get(1)), json);
+        case "site":
+          out.println(new NoteSiteExporter(new File(arguments.get(1))).export(noteJournal));
+          return EXIT_OK;
+        case "compact":
+          int compacted = noteJournal.loadMetadata().size();
+          noteJournal.compact();
+          out.println("compacted " + compacted + " notes");
+          return EXIT_OK;
+        case "verify":
+          return verify(noteJournal);
+        default:
+          return usage();
+      }
+    } catch (IOException | UncheckedIOException e) {
+      err.println(e.getMessage());
+      return EXIT_FAILED;
+    }
+  }
+
+  /**
+   * This method saves every .md file of the folder as a note. A file named after the id of a
+   * note, the way they're exported, replaces that note instead of adding a new one, keeping
+   * its color.
+   */
+
+  private int importNotes(NoteJournal noteJournal, File folder) throws IOException {
+    if (!folder.isDirectory()) {
+      err.println(folder + " is not a folder");
+      return EXIT_FAILED;
+    }
+    Map<UUID, NoteColor> savedColors = new HashMap<>();
+    for (NoteMetadata noteMetadata : noteJournal.loadMetadata()) {
+      savedColors.put(noteMetadata.getId(), noteMetadata.getColor());
+    }
+    NoteSaver noteSaver = new NoteSaver(noteJournal);
+
+    int imported = 0;
+    List<Path> batch = new ArrayList<>(BATCH_SIZE);
+    try (DirectoryStream<Path> markdownFiles = Files.newDirectoryStream(folder.toPath(), "*.md")) {
+      for (Path markdownFile : markdownFiles) {
+        batch.add(markdownFile);
+        if (batch.size() == BATCH_SIZE) {
+          imported += importBatch(noteSaver, batch, savedColors);
+          batch.clear();
+        }
+      }
+    }
+    imported += importBatch(noteSaver, batch, savedColors);
+
+    out.println("imported " + imported + " notes");
+    return EXIT_OK;
+  }
+
+  private static int importBatch(NoteSaver noteSaver, List<Path> batch, Map<UUID, NoteColor> savedColors)
+          throws IOException {
+    List<Note> notes = batch.parallelStream()
+            .map(markdownFile -> readMarkdownFile(markdownFile, savedColors))
+            .collect(Collectors.toList());
+    if (!notes.isEmpty() && !noteSaver.saveAll(notes)) {
+      throw new IOException("the notes can't be saved");
+    }
+    return notes.size();
+  }
+
+  private static Note readMarkdownFile(Path markdownFile, Map<UUID, NoteColor> savedColors) {
+    try {
+      String text = new String(Files.readAllBytes(markdownFile), StandardCharsets.UTF_8);
+      String fileName = markdownFile.getFileName().toString();
+      UUID id = parseId(fileName.substring(0, fileName.length() - ".md".length()));
+      return id == null ? new Note(text) : new Note(id, text, savedColors.getOrDefault(id, Note.DEFAULT_NOTE_COLOR));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static UUID parseId(String name) {
+    try {
+      UUID id = UUID.fromString(name);
+      return id.toString().equals(name) ? id : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * This method writes every note into the folder, reading them one batch at a time.
+   */
+
+  private int exportNotes(NoteJournal noteJournal, File folder, boolean json) throws IOException {
+    if (!folder.isDirectory() && !folder.mkdirs()) {
+      err.println(folder + " can't be created");
+      return EXIT_FAILED;
+    }
+    List<NoteMetadata> noteMetadata = noteJournal.loadMetadata();
+
+    if (json) {
+      try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+              new FileOutputStream(new File(folder, "notes.json")), StandardCharsets.UTF_8))) {
+        writer.write("[");
+        boolean first = true;
+        for (int start = 0; start < noteMetadata.size(); start += BATCH_SIZE) {
+          for (Note note : readBatch(noteJournal, noteMetadata, start)) {
+            writer.write(first ? "\n  " : ",\n  ");
+            writeJson(writer, note);
+            first = false;
+          }
+        }
+        writer.write("\n]\n");
+      }
+    } else {
+      for (int start = 0; start < noteMetadata.size(); start += BATCH_SIZE) {
+        readBatch(noteJournal, noteMetadata, start).parallelStream().forEach(note -> {
+          try {
+            Files.write(new File(folder, note.getId() + ".md").toPath(),
+                    note.getWrittenText().getBytes(StandardCharsets.UTF_8));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      }
+    }
+
+    out.println("exported " + noteMetadata.size() + " notes");
+    return EXIT_OK;
+  }
+
+  private static List<Note> readBatch(NoteJournal noteJournal, List<NoteMetadata> noteMetadata, int start)
+          throws IOException {
+    List<Note> notes = new ArrayList<>();
+    for (NoteMetadata metadata : noteMetadata.subList(start, Math.min(start + BATCH_SIZE, noteMetadata.size()))) {
+      Note note = noteJournal.read(metadata.getId().toString());
+      if (note != null) {
+        notes.add(note);
+      }
+    }
+    return notes;
+  }
+
+  private static void writeJson(Writer writer, Note note) throws IOException {
+    writer.write("{\"id\": \"");
+    writer.write(note.getId().toString());
+    writer.write("\", \"color\": \"");
+    writer.write(note.getColor().name());
+    writer.write("\", \"text\": \"");
+    String text = note.getWrittenText();
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '"':
+          writer.write("\\\"");
+          break;
+        case '\\':
+          writer.write("\\\\");
+          break;
+        case '\n':
+          writer.write("\\n");
+          break;
+        case '\r':
+          writer.write("\\r");
+          break;
+        case '\t':
+          writer.write("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            writer.write(String.format("\\u%04x", (int) c));
+          } else {
+            writer.write(c);
+          }
+      }
+    }
+    writer.write("\"}");
+  }
+
+  /**
+   * This method replays the whole journal, without the shortcut of the metadata file, and
+   * decodes every note in parallel.
+   */
+
+  private int verify(NoteJournal noteJournal) throws IOException {
+    List<Callable<Note>> decodeTasks = noteJournal.replayLazily();
+    AtomicInteger corrupted = new AtomicInteger();
+    decodeTasks.parallelStream().forEach(decodeTask -> {
+      try {
+        NoteJournal.decode(decodeTask);
+      } catch (IOException | RuntimeException e) {
+        corrupted.incrementAndGet();
+      }
+    });
+
+    if (corrupted.get() > 0) {
+      err.println(corrupted.get() + " of " + decodeTasks.size() + " notes can't be decoded");
+      return EXIT_FAILED;
+    }
+    out.println("verified " + decodeTasks.size() + " notes");
+    return EXIT_OK;
+  }
+
+  private int usage() {
+    err.println("usage: axeereraa [--dir FOLDER] import FOLDER");
+    err.println("       axeereraa [--dir FOLDER] export FOLDER [--json]");
+    err.println("       axeereraa [--dir FOLDER] site FOLDER");
+    err.println("       axeereraa [--dir FOLDER] compact");
+    err.println("       axeereraa [--dir FOLDER] verify");
+    return EXIT_USAGE;
+  }
+}
@@ -1,30 +1,41 @@
 package com.negassagisila.axeereraa;
 
 import java.io.File;
+import java.io.IOException;
 
 /**
- * The class responsible for the deletion of the notes. It has no constructor and thus
- * does the only thing it's responsible for, i.e deleting files.
+ * The class responsible for the deletion of the notes. It either removes a note
+ * from the NoteJournal by its id, or deletes a single file.
  */
 
 class NoteDeleter {
 
   private File file;
+  private NoteJournal noteJournal;
   
   public NoteDeleter(File file) {
     this.file = file;
   }
   
+  NoteDeleter(NoteJournal noteJournal) {
+    this.noteJournal = noteJournal;
+  }
+  
   /**
-   * The actual method that is responsible for deleting the file. It receives the file
-   * to delete as a parameter and proceeds on from there.
+   * The actual method that is responsible for deleting the note. It receives the note
+   * to delete as a parameter and removes whatever is saved under its id from the journal.
    * @param note to be deleted, and it
    * @return a boolean if the operation was successful/un-successful.
    */
   
-  static boolean deleteNote(Note note) {
-    note = null;
-    return true;
+  boolean deleteNote(Note note) {
+    try {
+      noteJournal.delete(NoteJournal.keyOf(note));
+      return true;
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
   }
   
   void deleteNote() {
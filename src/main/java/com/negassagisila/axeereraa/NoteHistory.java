@@ -0,0 +1,656 @@
+package com.negassagisila.axeereraa;
+
+import java.io.*;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * This class is responsible for the revision history of the notes. Every saved version of a
+ * note is appended to a single history file next to the journal, as a delta against the
+ * version before it: how many characters at its start and at its end stayed the same, and the
+ * text that replaced the rest. So a save costs as much space as the change, not as the note.
+ * Every SNAPSHOT_INTERVAL-th revision of a note is saved whole instead, so getting any revision
+ * back never applies more than SNAPSHOT_INTERVAL - 1 deltas.
+ *
+ * A record is laid out as: payload length (4 bytes), CRC32 of the payload (4 bytes) and the
+ * payload, which starts with the id of the note, the number of the revision, when it was saved,
+ * whether it's a snapshot or a delta and how long the text of the revision is. Where every
+ * revision is inside the file is kept in an index that's updated by every save. Closing the
+ * history writes the index into a small file next to it, which the next open reads instead of
+ * the history, as long as the history wasn't written to since. Otherwise the index is built by
+ * reading those first bytes of every record in one pass over the file, the first time the
+ * history is used.
+ *
+ * Deleting a note appends a record of the delete, after which its revisions are dead. Once the
+ * dead records take at least half of the file, the live ones are copied into a new history
+ * file, which then replaces the old one.
+ */
+
+class NoteHistory {
+  static final String HISTORY_FILE_NAME = "notes.history";
+  static final String INDEX_FILE_NAME = "notes.history.index";
+  static final int SNAPSHOT_INTERVAL = 16;
+
+  private static final int MAGIC = 0x41584831;
+  private static final int INDEX_MAGIC = 0x41584931;
+  private static final byte REVISION_SNAPSHOT = 0;
+  private static final byte REVISION_DELTA = 1;
+  private static final byte REVISION_DELETE = 2;
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final int REVISION_HEADER_SIZE = 33;
+  private static final int MAX_DIFF_CELLS = 1 << 20;
+  private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * the history is never compacted while the dead records take less than this many bytes, so
+   * that deleting notes from a small history doesn't rewrite it every time.
+   */
+
+  private static final long COMPACTION_MIN_BYTES = 64 * 1024;
+
+  private final File historyFile;
+  private final File indexFile;
+  private FileChannel channel;
+  private long historyLength;
+
+  /**
+   * how many bytes of the history file are taken by the revisions of deleted notes, and the
+   * records of the deletes.
+   */
+
+  private long deadBytes;
+
+  /**
+   * the revisions of every note in the order they were saved, null until the history file
+   * has been read.
+   */
+
+  private Map<UUID, List<Revision>> revisions;
+
+  /**
+   * the text of the latest revision of the notes that were saved lately, which the next
+   * revision is compared with. They're only held softly, so that the history never keeps the
+   * text of every note in memory, and a text that was let go is read back from the history.
+   */
+
+  private final Map<UUID, SoftReference<String>> latestTexts = new HashMap<>();
+
+  private NoteHistory(File historyFile) {
+    this.historyFile = historyFile;
+    this.indexFile = new File(historyFile.getParentFile(), INDEX_FILE_NAME);
+  }
+
+  /**
+   * This method opens the revision history found inside the given folder, creating an empty
+   * one if it doesn't exist yet.
+   * @param directory the folder the notes are saved in.
+   * @return the opened NoteHistory.
+   * @throws IOException if the history file can't be opened or isn't a revision history.
+   */
+
+  static NoteHistory open(File directory) throws IOException {
+    NoteHistory history = new NoteHistory(new File(directory, HISTORY_FILE_NAME));
+    history.channel = FileChannel.open(history.historyFile.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (history.channel.size() == 0) {
+      writeMagic(history.channel);
+    } else {
+      ByteBuffer magic = ByteBuffer.allocate(4);
+      history.channel.read(magic, 0);
+      magic.flip();
+      if (magic.remaining() < 4 || magic.getInt() != MAGIC) {
+        history.channel.close();
+        throw new IOException(history.historyFile + " is not an Axeereraa revision history");
+      }
+    }
+    history.historyLength = history.channel.size();
+    history.readIndexFile();
+    Files.deleteIfExists(history.indexFile.toPath());
+    return history;
+  }
+
+  /**
+   * This method saves the text of the note as its next revision, unless it's the same as the
+   * latest revision.
+   * @param note the note that was saved.
+   * @return true if a revision was saved.
+   * @throws IOException if the revision can't be written.
+   */
+
+  synchronized boolean record(Note note) throws IOException {
+    List<Revision> noteRevisions = revisionsOf(note.getId());
+    String text = note.getWrittenText();
+    String previousText = latestTextOf(note.getId(), noteRevisions);
+    if (text.equals(previousText)) {
+      return false;
+    }
+
+    int number = noteRevisions.size() + 1;
+    long savedMillis = System.currentTimeMillis();
+    boolean snapshot = previousText == null || (number - 1) % SNAPSHOT_INTERVAL == 0;
+
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    DataOutputStream outputStream = new DataOutputStream(payload);
+    outputStream.writeLong(note.getId().getMostSignificantBits());
+    outputStream.writeLong(note.getId().getLeastSignificantBits());
+    outputStream.writeInt(number);
+    outputStream.writeLong(savedMillis);
+    outputStream.writeByte(snapshot ? REVISION_SNAPSHOT : REVISION_DELTA);
+    outputStream.writeInt(text.length());
+    if (snapshot) {
+      writeText(outputStream, text);
+    } else {
+      int prefix = commonPrefix(previousText, text);
+      int suffix = commonSuffix(previousText, text, prefix);
+      outputStream.writeInt(prefix);
+      outputStream.writeInt(suffix);
+      writeText(outputStream, text.substring(prefix, text.length() - suffix));
+    }
+    outputStream.flush();
+
+    long offset = append(payload.toByteArray());
+    noteRevisions.add(new Revision(number, savedMillis, text.length(), snapshot, offset,
+            (int) (historyLength - offset)));
+    latestTexts.put(note.getId(), new SoftReference<>(text));
+    return true;
+  }
+
+  /**
+   * This method deletes the revisions of a note once the note is deleted, compacting the
+   * history if the dead records take at least half of it.
+   * @param id the id of the note.
+   * @throws IOException if the delete can't be written or the history can't be compacted.
+   */
+
+  synchronized void delete(UUID id) throws IOException {
+    latestTexts.remove(id);
+    List<Revision> noteRevisions = revisionsOf(id);
+    revisions.remove(id);
+    if (noteRevisions.isEmpty()) {
+      return;
+    }
+
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    DataOutputStream outputStream = new DataOutputStream(payload);
+    outputStream.writeLong(id.getMostSignificantBits());
+    outputStream.writeLong(id.getLeastSignificantBits());
+    outputStream.writeInt(0);
+    outputStream.writeLong(System.currentTimeMillis());
+    outputStream.writeByte(REVISION_DELETE);
+    outputStream.writeInt(0);
+    outputStream.flush();
+
+    long offset = append(payload.toByteArray());
+    deadBytes += historyLength - offset;
+    for (Revision revision : noteRevisions) {
+      deadBytes += revision.size;
+    }
+    if (deadBytes >= COMPACTION_MIN_BYTES && deadBytes * 2 >= historyLength) {
+      compact();
+    }
+  }
+
+  /**
+   * This method is used to get the revisions of a note.
+   * @param id the id of the note.
+   * @return the revisions in the order they were saved, the oldest first.
+   * @throws IOException if the history file can't be read.
+   */
+
+  synchronized List<Revision> list(UUID id) throws IOException {
+    return new ArrayList<>(revisionsOf(id));
+  }
+
+  /**
+   * This method gets the text of a single revision back, starting from the snapshot it's
+   * based on and applying the deltas saved after it.
+   * @param id the id of the note.
+   * @param number the number of the revision, starting at 1.
+   * @return the text of the revision.
+   * @throws IOException if the revision doesn't exist or can't be read.
+   */
+
+  synchronized String read(UUID id, int number) throws IOException {
+    List<Revision> noteRevisions = revisionsOf(id);
+    if (number < 1 || number > noteRevisions.size()) {
+      throw new IOException("the note " + id + " has no revision " + number);
+    }
+
+    String text = null;
+    int first = number - 1;
+    while (first > 0 && !noteRevisions.get(first).snapshot) {
+      first--;
+    }
+    for (int i = first; i < number; i++) {
+      text = apply(text, readPayload(noteRevisions.get(i)));
+    }
+    return text;
+  }
+
+  /**
+   * This method compares two texts line by line.
+   * @param oldText the text before.
+   * @param newText the text after.
+   * @return every line of both texts, the ones only found in the old text starting with
+   * "- ", the ones only found in the new text with "+ ", and the ones in both with two spaces.
+   * Texts that differ in too many lines to be matched up are shown as all the old lines
+   * removed and all the new ones added.
+   */
+
+  static String diff(String oldText, String newText) {
+    String[] oldLines = oldText.split("\n", -1);
+    String[] newLines = newText.split("\n", -1);
+
+    int start = 0;
+    while (start < oldLines.length && start < newLines.length && oldLines[start].equals(newLines[start])) {
+      start++;
+    }
+    int oldEnd = oldLines.length;
+    int newEnd = newLines.length;
+    while (oldEnd > start && newEnd > start && oldLines[oldEnd - 1].equals(newLines[newEnd - 1])) {
+      oldEnd--;
+      newEnd--;
+    }
+
+    int oldCount = oldEnd - start;
+    int newCount = newEnd - start;
+    boolean matchLines = (long) oldCount * newCount <= MAX_DIFF_CELLS;
+    int[][] commonLines = new int[matchLines ? oldCount + 1 : 1][matchLines ? newCount + 1 : 1];
+    for (int i = matchLines ? oldCount - 1 : -1; i >= 0; i--) {
+      for (int j = newCount - 1; j >= 0; j--) {
+        commonLines[i][j] = oldLines[start + i].equals(newLines[start + j])
+                ? commonLines[i + 1][j + 1] + 1
+                : Math.max(commonLines[i + 1][j], commonLines[i][j + 1]);
+      }
+    }
+
+    StringBuilder diff = new StringBuilder();
+    for (int i = 0; i < start; i++) {
+      diff.append("  ").append(oldLines[i]).append('\n');
+    }
+    int i = 0;
+    int j = 0;
+    while (i < oldCount || j < newCount) {
+      if (!matchLines) {
+        diff.append(i < oldCount ? "- " : "+ ").append(i < oldCount ? oldLines[start + i++] : newLines[start + j++]).append('\n');
+      } else if (i < oldCount && j < newCount && oldLines[start + i].equals(newLines[start + j])) {
+        diff.append("  ").append(oldLines[start + i++]).append('\n');
+        j++;
+      } else if (j < newCount && (i == oldCount || commonLines[i][j + 1] >= commonLines[i + 1][j])) {
+        diff.append("+ ").append(newLines[start + j++]).append('\n');
+      } else {
+        diff.append("- ").append(oldLines[start + i++]).append('\n');
+      }
+    }
+    for (int k = oldEnd; k < oldLines.length; k++) {
+      diff.append("  ").append(oldLines[k]).append('\n');
+    }
+    return diff.toString();
+  }
+
+  /**
+   * This method closes the history file, writing the index of the revisions next to it.
+   * @throws IOException if it can't be closed.
+   */
+
+  synchronized void close() throws IOException {
+    try {
+      if (revisions != null) {
+        writeIndexFile();
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * This method gets the revisions of a note, reading where every revision is inside the
+   * history file if that hasn't been done yet. Only the first bytes of every record are read,
+   * through a buffer that skips over the rest. A torn record at the end, from a crash in the
+   * middle of a save, is cut off.
+   */
+
+  private List<Revision> revisionsOf(UUID id) throws IOException {
+    if (revisions == null) {
+      Map<UUID, List<Revision>> scannedRevisions = new HashMap<>();
+      long scannedDeadBytes = 0;
+      long offset = 4;
+      try (FileInputStream fileInputStream = new FileInputStream(historyFile);
+           DataInputStream inputStream = new DataInputStream(
+                   new BufferedInputStream(fileInputStream, SCAN_BUFFER_SIZE))) {
+        inputStream.skipBytes(4);
+        while (offset + RECORD_HEADER_SIZE + REVISION_HEADER_SIZE <= historyLength) {
+          int length = inputStream.readInt();
+          inputStream.readInt();
+          if (length < REVISION_HEADER_SIZE || offset + RECORD_HEADER_SIZE + length > historyLength) {
+            break;
+          }
+          UUID noteId = new UUID(inputStream.readLong(), inputStream.readLong());
+          int number = inputStream.readInt();
+          long savedMillis = inputStream.readLong();
+          byte kind = inputStream.readByte();
+          int textLength = inputStream.readInt();
+          int size = RECORD_HEADER_SIZE + length;
+          if (kind == REVISION_DELETE) {
+            List<Revision> deletedRevisions = scannedRevisions.remove(noteId);
+            for (Revision revision : deletedRevisions == null ? Collections.<Revision>emptyList() : deletedRevisions) {
+              scannedDeadBytes += revision.size;
+            }
+            scannedDeadBytes += size;
+          } else {
+            scannedRevisions.computeIfAbsent(noteId, k -> new ArrayList<>())
+                    .add(new Revision(number, savedMillis, textLength, kind == REVISION_SNAPSHOT, offset, size));
+          }
+          skipFully(inputStream, length - REVISION_HEADER_SIZE);
+          offset += size;
+        }
+      }
+      if (offset < historyLength) {
+        channel.truncate(offset);
+        historyLength = offset;
+      }
+      revisions = scannedRevisions;
+      deadBytes = scannedDeadBytes;
+    }
+    return revisions.computeIfAbsent(id, k -> new ArrayList<>());
+  }
+
+  private static void skipFully(DataInputStream inputStream, int count) throws IOException {
+    int skipped = 0;
+    while (skipped < count) {
+      int step = inputStream.skipBytes(count - skipped);
+      if (step <= 0) {
+        throw new EOFException();
+      }
+      skipped += step;
+    }
+  }
+
+  /**
+   * This method reads the index the history was closed with, unless the history was written
+   * to since, or the index can't be read, in which case the index is built from the history
+   * the first time it's used.
+   */
+
+  private void readIndexFile() {
+    if (!indexFile.isFile()) {
+      return;
+    }
+    Map<UUID, List<Revision>> savedRevisions = new HashMap<>();
+    try (DataInputStream inputStream = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(indexFile)))) {
+      if (inputStream.readInt() != INDEX_MAGIC || inputStream.readLong() != historyLength) {
+        return;
+      }
+      long savedDeadBytes = inputStream.readLong();
+      int noteCount = inputStream.readInt();
+      for (int i = 0; i < noteCount; i++) {
+        UUID id = new UUID(inputStream.readLong(), inputStream.readLong());
+        int revisionCount = inputStream.readInt();
+        List<Revision> noteRevisions = new ArrayList<>(revisionCount);
+        for (int j = 0; j < revisionCount; j++) {
+          noteRevisions.add(new Revision(inputStream.readInt(), inputStream.readLong(), inputStream.readInt(),
+                  inputStream.readBoolean(), inputStream.readLong(), inputStream.readInt()));
+        }
+        savedRevisions.put(id, noteRevisions);
+      }
+      revisions = savedRevisions;
+      deadBytes = savedDeadBytes;
+    } catch (IOException e) {
+      // the index is built from the history instead
+    }
+  }
+
+  private void writeIndexFile() throws IOException {
+    File temporaryFile = new File(indexFile.getPath() + ".tmp");
+    try (DataOutputStream outputStream = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+      outputStream.writeInt(INDEX_MAGIC);
+      outputStream.writeLong(historyLength);
+      outputStream.writeLong(deadBytes);
+      int noteCount = 0;
+      for (List<Revision> noteRevisions : revisions.values()) {
+        noteCount += noteRevisions.isEmpty() ? 0 : 1;
+      }
+      outputStream.writeInt(noteCount);
+      for (Map.Entry<UUID, List<Revision>> entry : revisions.entrySet()) {
+        if (entry.getValue().isEmpty()) {
+          continue;
+        }
+        outputStream.writeLong(entry.getKey().getMostSignificantBits());
+        outputStream.writeLong(entry.getKey().getLeastSignificantBits());
+        outputStream.writeInt(entry.getValue().size());
+        for (Revision revision : entry.getValue()) {
+          outputStream.writeInt(revision.number);
+          outputStream.writeLong(revision.savedMillis);
+          outputStream.writeInt(revision.length);
+          outputStream.writeBoolean(revision.snapshot);
+          outputStream.writeLong(revision.offset);
+          outputStream.writeInt(revision.size);
+        }
+      }
+    }
+    Files.move(temporaryFile.toPath(), indexFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * This method copies the revisions of the notes that weren't deleted into a new history
+   * file, which then replaces the history.
+   */
+
+  private void compact() throws IOException {
+    File compactedFile = new File(historyFile.getPath() + ".tmp");
+    Map<UUID, List<Revision>> compactedRevisions = new HashMap<>();
+    long offset = 4;
+    try (FileChannel compacted = FileChannel.open(compactedFile.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      writeMagic(compacted);
+      for (Map.Entry<UUID, List<Revision>> entry : revisions.entrySet()) {
+        if (entry.getValue().isEmpty()) {
+          continue;
+        }
+        List<Revision> movedRevisions = new ArrayList<>(entry.getValue().size());
+        for (Revision revision : entry.getValue()) {
+          long copied = 0;
+          while (copied < revision.size) {
+            copied += channel.transferTo(revision.offset + copied, revision.size - copied, compacted);
+          }
+          movedRevisions.add(new Revision(revision.number, revision.savedMillis, revision.length,
+                  revision.snapshot, offset, revision.size));
+          offset += revision.size;
+        }
+        compactedRevisions.put(entry.getKey(), movedRevisions);
+      }
+      compacted.force(true);
+    }
+
+    channel.close();
+    Files.move(compactedFile.toPath(), historyFile.toPath(),
+            StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    channel = FileChannel.open(historyFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    revisions = compactedRevisions;
+    historyLength = offset;
+    deadBytes = 0;
+  }
+
+  private static void writeMagic(FileChannel fileChannel) throws IOException {
+    ByteBuffer magic = ByteBuffer.allocate(4).putInt(MAGIC);
+    magic.flip();
+    while (magic.hasRemaining()) {
+      fileChannel.write(magic);
+    }
+  }
+
+  private String latestTextOf(UUID id, List<Revision> noteRevisions) throws IOException {
+    SoftReference<String> cachedText = latestTexts.get(id);
+    String latestText = cachedText == null ? null : cachedText.get();
+    if (latestText == null && !noteRevisions.isEmpty()) {
+      latestText = read(id, noteRevisions.size());
+      latestTexts.put(id, new SoftReference<>(latestText));
+    }
+    return latestText;
+  }
+
+  /**
+   * This method reads the payload of a revision and checks it against its checksum.
+   */
+
+  private DataInputStream readPayload(Revision revision) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    channel.read(header, revision.offset);
+    header.flip();
+    int length = header.getInt();
+    int checksum = header.getInt();
+
+    ByteBuffer payload = ByteBuffer.allocate(length);
+    while (payload.hasRemaining()
+            && channel.read(payload, revision.offset + RECORD_HEADER_SIZE + payload.position()) >= 0) {
+      // keep reading until the whole payload is in the buffer
+    }
+    CRC32 crc32 = new CRC32();
+    crc32.update(payload.array(), 0, payload.position());
+    if (payload.hasRemaining() || (int) crc32.getValue() != checksum) {
+      throw new IOException("the revision " + revision.number + " is corrupted");
+    }
+    return new DataInputStream(new ByteArrayInputStream(payload.array()));
+  }
+
+  /**
+   * This method applies a revision to the text of the revision before it.
+   */
+
+  private static String apply(String previousText, DataInputStream payload) throws IOException {
+    payload.skipBytes(REVISION_HEADER_SIZE - 5);
+    byte kind = payload.readByte();
+    payload.readInt();
+    if (kind == REVISION_SNAPSHOT) {
+      return readText(payload);
+    }
+    int prefix = payload.readInt();
+    int suffix = payload.readInt();
+    String middle = readText(payload);
+    if (previousText == null || prefix + suffix > previousText.length()) {
+      throw new IOException("the revision doesn't apply to the one before it");
+    }
+    return previousText.substring(0, prefix) + middle + previousText.substring(previousText.length() - suffix);
+  }
+
+  private long append(byte[] payload) throws IOException {
+    CRC32 crc32 = new CRC32();
+    crc32.update(payload, 0, payload.length);
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+    record.putInt(payload.length).putInt((int) crc32.getValue()).put(payload);
+    record.flip();
+
+    long offset = historyLength;
+    while (record.hasRemaining()) {
+      channel.write(record, offset + record.position());
+    }
+    historyLength = offset + record.limit();
+    return offset;
+  }
+
+  private static void writeText(DataOutputStream outputStream, String text) throws IOException {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    outputStream.writeInt(bytes.length);
+    outputStream.write(bytes);
+  }
+
+  private static String readText(DataInputStream inputStream) throws IOException {
+    byte[] bytes = new byte[inputStream.readInt()];
+    inputStream.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return how many chars both texts start with, never ending in the middle of a surrogate
+   * pair, since the text in between is saved in UTF-8, which can't hold half of a pair.
+   */
+
+  private static int commonPrefix(String previousText, String text) {
+    int max = Math.min(previousText.length(), text.length());
+    int prefix = 0;
+    while (prefix < max && previousText.charAt(prefix) == text.charAt(prefix)) {
+      prefix++;
+    }
+    if (prefix > 0 && Character.isHighSurrogate(text.charAt(prefix - 1))) {
+      prefix--;
+    }
+    return prefix;
+  }
+
+  /**
+   * @return how many chars both texts end with after the prefix, never starting in the
+   * middle of a surrogate pair.
+   */
+
+  private static int commonSuffix(String previousText, String text, int prefix) {
+    int max = Math.min(previousText.length(), text.length()) - prefix;
+    int suffix = 0;
+    while (suffix < max && previousText.charAt(previousText.length() - 1 - suffix)
+            == text.charAt(text.length() - 1 - suffix)) {
+      suffix++;
+    }
+    if (suffix > 0 && Character.isLowSurrogate(text.charAt(text.length() - suffix))) {
+      suffix--;
+    }
+    return suffix;
+  }
+
+  /**
+   * A single saved version of a note.
+   */
+
+  static final class Revision {
+    private final int number;
+    private final long savedMillis;
+    private final int length;
+    private final boolean snapshot;
+    private final long offset;
+
+    /**
+     * how many bytes the record of the revision takes, header included.
+     */
+
+    private final int size;
+
+    Revision(int number, long savedMillis, int length, boolean snapshot, long offset, int size) {
+      this.number = number;
+      this.savedMillis = savedMillis;
+      this.length = length;
+      this.snapshot = snapshot;
+      this.offset = offset;
+      this.size = size;
+    }
+
+    int getNumber() {
+      return number;
+    }
+
+    long getSavedMillis() {
+      return savedMillis;
+    }
+
+    /**
+     * @return how many characters the text of the revision has.
+     */
+
+    int getLength() {
+      return length;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("#%d  %tF %<tR  (%d characters)", number, new Date(savedMillis), length);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package com.negassagisila.axeereraa;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * The revision history of a single note. The revisions are listed newest first, selecting one
+ * shows what changed in it compared to the revision before it, selecting two shows what changed
+ * between them, and restoring one puts its text back into the note window, where it's saved as
+ * a new revision like any other edit. The revisions are read & compared on the given executor,
+ * never on the event dispatch thread, and shown once they're ready.
+ */
+
+class NoteHistoryDialog extends JDialog {
+  private final NoteHistory noteHistory;
+  private final Executor historyReader;
+  private final UUID id;
+  private final DefaultListModel<NoteHistory.Revision> revisions = new DefaultListModel<>();
+  private final JList<NoteHistory.Revision> revisionList = new JList<>(revisions);
+  private final JTextArea diffArea = new JTextArea();
+  private final JButton restoreButton = new JButton("Restore");
+
+  /**
+   * counts the selections, so that the diff of a selection that was changed before it was
+   * ready isn't shown.
+   */
+
+  private int selectionCount;
+
+  NoteHistoryDialog(Frame owner, NoteHistory noteHistory, Executor historyReader, UUID id,
+                    Consumer<String> onRestore) {
+    super(owner, "Revision History", false);
+    this.noteHistory = noteHistory;
+    this.historyReader = historyReader;
+    this.id = id;
+
+    revisionList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+    revisionList.addListSelectionListener(e -> {
+      if (!e.getValueIsAdjusting()) {
+        showDiff();
+      }
+    });
+
+    diffArea.setEditable(false);
+    diffArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+    restoreButton.setEnabled(false);
+    restoreButton.addActionListener(e -> {
+      int number = revisionList.getSelectedValue().getNumber();
+      restoreButton.setEnabled(false);
+      historyReader.execute(() -> {
+        try {
+          String text = noteHistory.read(id, number);
+          EventQueue.invokeLater(() -> {
+            dispose();
+            onRestore.accept(text);
+          });
+        } catch (IOException ex) {
+          ex.printStackTrace();
+        }
+      });
+    });
+
+    JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
+            new JScrollPane(revisionList), new JScrollPane(diffArea));
+    splitPane.setDividerLocation(220);
+    JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+    buttonPanel.add(restoreButton);
+
+    getContentPane().add(splitPane, BorderLayout.CENTER);
+    getContentPane().add(buttonPanel, BorderLayout.SOUTH);
+    setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+    setSize(640, 400);
+    setLocationRelativeTo(owner);
+  }
+
+  /**
+   * This method reads the revisions of the note & lists them, newest first. It's called on the
+   * executor of the dialog, once the edits that weren't saved yet are.
+   */
+
+  void loadRevisions() {
+    try {
+      List<NoteHistory.Revision> noteRevisions = noteHistory.list(id);
+      EventQueue.invokeLater(() -> {
+        for (int i = noteRevisions.size() - 1; i >= 0; i--) {
+          revisions.addElement(noteRevisions.get(i));
+        }
+      });
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * This method shows the changes of the selected revision, or between the two selected
+   * revisions, in the diff area.
+   */
+
+  private void showDiff() {
+    int selection = ++selectionCount;
+    List<NoteHistory.Revision> selected = revisionList.getSelectedValuesList();
+    restoreButton.setEnabled(selected.size() == 1);
+    if (selected.isEmpty() || selected.size() > 2) {
+      diffArea.setText("");
+      return;
+    }
+
+    NoteHistory.Revision newer = selected.get(0);
+    int olderNumber = selected.size() == 2 ? selected.get(1).getNumber() : newer.getNumber() - 1;
+    historyReader.execute(() -> {
+      String diff;
+      try {
+        String newText = noteHistory.read(id, newer.getNumber());
+        String oldText = olderNumber >= 1 ? noteHistory.read(id, olderNumber) : "";
+        diff = NoteHistory.diff(oldText, newText);
+      } catch (IOException e) {
+        diff = "";
+        e.printStackTrace();
+      }
+      String shownDiff = diff;
+      EventQueue.invokeLater(() -> {
+        if (selection == selectionCount) {
+          diffArea.setText(shownDiff);
+          diffArea.setCaretPosition(0);
+        }
+      });
+    });
+  }
+}
@@ -0,0 +1,1776 @@
+package com.negassagisila.axeereraa;
+
+import javax.swing.text.Segment;
+import java.awt.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * This class is responsible for the single append-only journal file that holds every saved
+ * note. Each save appends one length-prefixed, checksummed record and forces it to disk,
+ * startup replays the whole file in one sequential read, and the records that were superseded
+ * by a later save or delete are dropped by compacting the journal in the background.
+ *
+ * A record is laid out as: type (1 byte), payload length (4 bytes), CRC32 of the payload
+ * (4 bytes) and the payload itself. The payload of a note record is the note encoded by the
+ * NoteCodec of the journal, journals written before the codec existed hold java serialized
+ * notes instead, which are re-encoded the first time they are replayed.
+ *
+ * With the BinaryNoteCodec the records are streamed into the journal through one small direct
+ * buffer that's reused by every save: the text of a note is encoded to UTF-8 piece by piece
+ * right into the buffer, and the checksum is patched into the header once the payload is
+ * written, so a save never builds the record, or even the encoded text, in memory.
+ *
+ * A note whose payload takes at least "axeereraa.journal.compression.threshold" bytes (4 KB by
+ * default) is deflated on its way into the buffer and written as a compressed note record,
+ * whose payload is the length of the note before it was compressed (4 bytes), its id (16 bytes)
+ * and the deflated note. Reading it inflates the note into a buffer that's reused by every
+ * record the thread decodes, and the key is read without inflating anything.
+ *
+ * Closing the journal writes the NoteMetadata of every note, together with where its record
+ * is, into a small metadata file next to it. As long as the journal wasn't written to since,
+ * the next startup reads only that file instead of replaying the journal, and the text of a
+ * note is read on its own once it's needed. After a crash the file doesn't match the journal
+ * anymore, and the journal is replayed instead.
+ *
+ * The replay maps the journal into memory and decodes the records straight out of the mapped
+ * buffer, on file systems that can't map it, or when the "axeereraa.journal.mmap" system
+ * property is false, the journal is read into the heap instead.
+ *
+ * Every compaction keeps the journal it replaces as a backup generation, "notes.journal.1"
+ * being the newest, and up to "axeereraa.journal.backups" generations (3 by default) are kept.
+ * A record that doesn't match its checksum is read from the newest backup that holds it.
+ *
+ * Other processes, e.g. another instance or the command line, may write to the same journal.
+ * Every write and every compaction holds a lock on a file next to the journal, which stays
+ * the same file when the journal is replaced, and first picks up the records other processes
+ * appended since, so that records are always appended at the real
+ * end of the file. The notes that were changed by other processes are handed out by refresh().
+ */
+
+class NoteJournal implements Closeable {
+  static final String JOURNAL_FILE_NAME = "notes.journal";
+  static final String METADATA_FILE_NAME = "notes.meta";
+  static final String LOCK_FILE_NAME = "notes.journal.lock";
+
+  private static final int MAGIC = 0x41584a31;
+  private static final int METADATA_MAGIC = 0x41584d32;
+
+  /**
+   * the metadata files written before the view states were kept only hold the bounds.
+   */
+
+  private static final int BOUNDS_METADATA_MAGIC = 0x41584d31;
+  private static final byte RECORD_SERIALIZED_NOTE = 1;
+  private static final byte RECORD_DELETE = 2;
+  private static final byte RECORD_NOTE = 3;
+  private static final byte RECORD_COMPRESSED_NOTE = 4;
+  private static final int RECORD_HEADER_SIZE = 9;
+  private static final int COMPRESSED_HEADER_SIZE = 4 + 16;
+  private static final int COMPRESSION_THRESHOLD = Integer.getInteger("axeereraa.journal.compression.threshold", 4096);
+
+  /**
+   * the fastest level, which still takes written text down to less than a third, and deflates
+   * about four times as fast as the default level, which matters more to every autosave than
+   * the quarter less room the default level would take.
+   */
+
+  private static final int COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+  private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+  private static final int COMPACTION_THRESHOLD = 64;
+  private static final boolean MEMORY_MAPPED = Boolean.parseBoolean(
+          System.getProperty("axeereraa.journal.mmap", "true"));
+  private static final int BACKUP_GENERATIONS = Integer.getInteger("axeereraa.journal.backups", 3);
+  private static final String CORRUPTED_SUFFIX = ".corrupted";
+
+  /**
+   * every thread that decodes notes inflates the compressed ones with its own RecordInflater.
+   */
+
+  private static final ThreadLocal<RecordInflater> RECORD_INFLATERS = ThreadLocal.withInitial(RecordInflater::new);
+
+  private final File journalFile;
+  private final File metadataFile;
+  private final NoteCodec noteCodec;
+  private final Map<String, RecordPointer> liveRecords = new LinkedHashMap<>();
+  private final Map<String, NoteMetadata> metadata = new HashMap<>();
+
+  /**
+   * the notes other processes changed that haven't been handed out by refresh() yet, by key.
+   */
+
+  private final Map<String, ExternalChange> externalChanges = new LinkedHashMap<>();
+  private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "Axeereraa-journal-compactor");
+    t.setDaemon(true);
+    return t;
+  });
+  private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+  private final RecordDeflater recordDeflater = new RecordDeflater();
+  private FileChannel channel;
+  private FileChannel lockChannel;
+  private Object journalFileKey;
+  private FileLock journalLock;
+  private int deadRecords;
+  private boolean compactionScheduled;
+  private boolean cleanlyClosed;
+  private boolean memoryMapped = MEMORY_MAPPED;
+  private int backupGenerations = BACKUP_GENERATIONS;
+  private int compressionThreshold = COMPRESSION_THRESHOLD;
+
+  /**
+   * where the next record is appended, which is the end of the journal unless a torn record
+   * at its tail couldn't be cut off.
+   */
+
+  private long journalLength;
+
+  private NoteJournal(File journalFile, NoteCodec noteCodec) {
+    this.journalFile = journalFile;
+    this.metadataFile = new File(journalFile.getParentFile(), METADATA_FILE_NAME);
+    this.noteCodec = noteCodec;
+  }
+
+  /**
+   * This method opens the journal found inside the given folder, creating an empty one
+   * if it doesn't exist yet.
+   * @param directory the folder the notes are saved in.
+   * @return the opened NoteJournal.
+   * @throws IOException if the journal file can't be opened or isn't a journal at all.
+   */
+
+  static NoteJournal open(File directory) throws IOException {
+    return open(directory, new BinaryNoteCodec());
+  }
+
+  /**
+   * This method opens the journal found inside the given folder, encoding the notes with
+   * the given NoteCodec.
+   * @param directory the folder the notes are saved in.
+   * @param noteCodec the codec the notes are encoded with.
+   * @return the opened NoteJournal.
+   * @throws IOException if the journal file can't be opened or isn't a journal at all.
+   */
+
+  static NoteJournal open(File directory, NoteCodec noteCodec) throws IOException {
+    NoteJournal journal = new NoteJournal(new File(directory, JOURNAL_FILE_NAME), noteCodec);
+    journal.lockChannel = FileChannel.open(new File(directory, LOCK_FILE_NAME).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    try {
+      journal.openChannel();
+    } catch (IOException e) {
+      journal.lockChannel.close();
+      throw e;
+    }
+    return journal;
+  }
+
+  /**
+   * This method is used to get the key a note is stored under inside the journal,
+   * which is its id so that every save of the same note replaces the previous one.
+   * @param note the note whose key is needed.
+   * @return the key of the note.
+   */
+
+  static String keyOf(Note note) {
+    return note.getId().toString();
+  }
+
+  /**
+   * This method appends the note to the end of the journal and forces it to disk before
+   * returning, replacing any earlier record saved under the same key.
+   * @param note the Note object to be saved.
+   * @throws IOException if the record can't be written.
+   */
+
+  synchronized void append(Note note) throws IOException {
+    appendAll(Collections.singletonList(note));
+  }
+
+  /**
+   * This method appends all the notes to the end of the journal in one write and forces them
+   * to disk once, replacing any earlier record saved under the same keys.
+   * @param notes the Note objects to be saved.
+   * @throws IOException if the records can't be written.
+   */
+
+  synchronized void appendAll(Collection<Note> notes) throws IOException {
+    List<PendingRecord> pendingRecords = new ArrayList<>();
+    for (Note note : notes) {
+      pendingRecords.add(pendingRecordOf(note.getId(), note.getColor(),
+              NoteText.of(note.getWrittenText() == null ? "" : note.getWrittenText())));
+    }
+    if (!pendingRecords.isEmpty()) {
+      writeRecords(pendingRecords);
+    }
+    long savedMillis = System.currentTimeMillis();
+    for (Note note : notes) {
+      NoteMetadata previous = metadata.get(keyOf(note));
+      metadata.put(keyOf(note), NoteMetadata.of(note, savedMillis, previous == null ? null : previous.getViewState()));
+    }
+  }
+
+  /**
+   * This method appends a note whose text is streamed straight from the given NoteText, e.g.
+   * a snapshot of a large note, instead of being taken out of it as one String first. The text
+   * can't change until it's written.
+   * @param id the id of the note.
+   * @param noteColor the color of the note.
+   * @param text the text of the note.
+   * @throws IOException if the record can't be written.
+   */
+
+  synchronized void append(UUID id, NoteColor noteColor, NoteText text) throws IOException {
+    PendingRecord pendingRecord = pendingRecordOf(id, noteColor, text);
+    writeRecords(Collections.singletonList(pendingRecord));
+    NoteMetadata previous = metadata.get(pendingRecord.key);
+    metadata.put(pendingRecord.key, new NoteMetadata(id, noteColor, pendingRecord.title, pendingRecord.textLength,
+            System.currentTimeMillis(), previous == null ? null : previous.getViewState()));
+  }
+
+  /**
+   * @return the title of the text, taken from its first few kilobytes.
+   */
+
+  private static String titleOf(NoteText text) throws IOException {
+    StringBuilder prefix = new StringBuilder();
+    Segment segment = new Segment();
+    int prefixLength = Math.min(text.length(), 8192);
+    while (prefix.length() < prefixLength) {
+      text.getText(prefix.length(), prefixLength - prefix.length(), segment);
+      prefix.append(segment.array, segment.offset, segment.count);
+    }
+    return NoteMetadata.titleOf(prefix);
+  }
+
+  /**
+   * This method appends a record that removes the note saved under the given key.
+   * @param key the key of the note to be removed.
+   * @throws IOException if the record can't be written.
+   */
+
+  synchronized void delete(String key) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    try (DataOutputStream dataOutputStream = new DataOutputStream(payload)) {
+      dataOutputStream.writeUTF(key);
+    }
+    writeRecord(RECORD_DELETE, key, payload.toByteArray());
+    metadata.remove(key);
+  }
+  
+  /**
+   * This method remembers how the window of the note was left, it's saved in the metadata file
+   * once the journal is closed.
+   * @param key the key of the note.
+   * @param viewState the view state of the window.
+   */
+
+  synchronized void setViewState(String key, NoteViewState viewState) {
+    NoteMetadata noteMetadata = metadata.get(key);
+    if (noteMetadata != null) {
+      metadata.put(key, noteMetadata.withViewState(viewState));
+    }
+  }
+
+  /**
+   * This method gets the NoteMetadata of every note that's still alive in the journal. It reads
+   * the metadata file written when the journal was closed the last time, and only if the journal
+   * was written to after that, e.g. because the application crashed, the whole journal is
+   * replayed and every note decoded to get it. Either way, the metadata file is deleted, so it
+   * can never be mistaken for the metadata of a journal that changed since.
+   * @return the NoteMetadata of the saved notes in the order they were first saved.
+   * @throws IOException if the journal can't be read.
+   */
+
+  synchronized List<NoteMetadata> loadMetadata() throws IOException {
+    Map<String, NoteMetadata> savedMetadata = new HashMap<>();
+    cleanlyClosed = readMetadataFile(savedMetadata);
+
+    if (!cleanlyClosed) {
+      long modifiedMillis = journalFile.lastModified();
+      metadata.clear();
+      for (Callable<Note> decodeTask : replayLazily()) {
+        Note note = decode(decodeTask);
+        NoteMetadata saved = savedMetadata.get(keyOf(note));
+        metadata.put(keyOf(note), NoteMetadata.of(note,
+                saved == null ? modifiedMillis : saved.getModifiedMillis(),
+                saved == null ? null : saved.getViewState()));
+      }
+    }
+    Files.deleteIfExists(metadataFile.toPath());
+
+    List<NoteMetadata> output = new ArrayList<>();
+    for (String key : liveRecords.keySet()) {
+      output.add(metadata.get(key));
+    }
+    return output;
+  }
+
+  /**
+   * @return true if the last loadMetadata() found the journal just as it was closed,
+   * without replaying it.
+   */
+
+  synchronized boolean wasCleanlyClosed() {
+    return cleanlyClosed;
+  }
+
+  /**
+   * This method checks whether a note is currently saved under the given key.
+   * @param key the key of the note.
+   * @return true if a note is saved under the key.
+   */
+
+  synchronized boolean contains(String key) {
+    return liveRecords.containsKey(key);
+  }
+
+  /**
+   * This method reads the single note saved under the given key, without reading the rest of
+   * the journal. The journal has to be replayed first, that's how it learns where the notes are.
+   * @param key the key of the note.
+   * @return the saved note, or null if there's no note saved under the key.
+   * @throws IOException if the note can't be read.
+   */
+
+  synchronized Note read(String key) throws IOException {
+    RecordPointer pointer = liveRecords.get(key);
+    if (pointer == null) {
+      return null;
+    }
+    ByteBuffer record = ByteBuffer.allocate(pointer.length);
+    while (record.hasRemaining()
+            && channel.read(record, pointer.offset + record.position()) >= 0) {
+      // keep reading until the whole record is in the buffer
+    }
+    record.flip();
+    if (!isValidRecord(record, 0) || record.limit() != pointer.length) {
+      return readFromBackups(key);
+    }
+    if (record.get(0) != RECORD_NOTE && record.get(0) != RECORD_COMPRESSED_NOTE) {
+      throw new IOException("the record of " + key + " is not a note");
+    }
+    return decodeNote(record.get(0), slice(record, RECORD_HEADER_SIZE, pointer.length - RECORD_HEADER_SIZE));
+  }
+
+  /**
+   * This method reads the note saved under the given key from the newest backup generation
+   * that holds it, for when its record in the journal is corrupted.
+   * @throws IOException if no backup holds the note.
+   */
+
+  private Note readFromBackups(String key) throws IOException {
+    for (int generation = 1; generation <= backupGenerations; generation++) {
+      List<ScannedRecord> backupRecords = readBackup(generation);
+      if (backupRecords == null) {
+        continue;
+      }
+      ScannedRecord latest = null;
+      for (ScannedRecord record : backupRecords) {
+        if (record.key.equals(key)) {
+          latest = record;
+        }
+      }
+      if (latest != null && (latest.type == RECORD_NOTE || latest.type == RECORD_COMPRESSED_NOTE)) {
+        return decodeNote(latest.type, latest.payload.duplicate());
+      }
+    }
+    throw new IOException("the record of " + key + " is corrupted and has no backup");
+  }
+
+  /**
+   * This method reads the whole journal in one sequential pass and returns the notes that are
+   * still alive in it.
+   * @return a List\<Note\> of the saved notes in the order they were first saved.
+   * @throws IOException if the journal can't be read.
+   */
+
+  synchronized List<Note> replay() throws IOException {
+    List<Note> notes = new ArrayList<>();
+    for (Callable<Note> decodeTask : replayLazily()) {
+      notes.add(decode(decodeTask));
+    }
+    return notes;
+  }
+
+  /**
+   * This method reads the whole journal in one sequential pass, but leaves the decoding of the
+   * notes that are still alive in it to the caller, so that they can be decoded on any thread.
+   * A torn or corrupted record at the tail, e.g. from a crash in the middle of a save, ends
+   * the replay and is cut off so that the following appends stay readable. Corrupted records
+   * in the middle of the journal are recovered from the backup generations instead.
+   * Notes that are still held as java serialized records are appended again with the
+   * NoteCodec, so the old records are dropped by the next compaction.
+   * @return a List of tasks that each decode one of the saved notes, in the order they were
+   * first saved.
+   * @throws IOException if the journal can't be read.
+   */
+
+  synchronized List<Callable<Note>> replayLazily() throws IOException {
+    ByteBuffer buffer = readJournal();
+    List<ScannedRecord> records = new ArrayList<>();
+    int validLength = scanRecords(buffer, 4, records);
+    boolean corrupted = false;
+    int nextRecord;
+    while ((nextRecord = findNextRecord(buffer, validLength + 1)) >= 0) {
+      corrupted = true;
+      validLength = scanRecords(buffer, nextRecord, records);
+    }
+    if (corrupted) {
+      recover(records);
+      return replayLazily();
+    }
+
+    Map<String, Callable<Note>> decodeTasks = new LinkedHashMap<>();
+    Map<String, Note> serializedNotes = new HashMap<>();
+    liveRecords.clear();
+    deadRecords = 0;
+
+    for (ScannedRecord record : records) {
+      ByteBuffer payload = record.payload;
+      if (record.type == RECORD_NOTE || record.type == RECORD_COMPRESSED_NOTE) {
+        byte type = record.type;
+        decodeTasks.put(record.key, () -> decodeNote(type, payload.duplicate()));
+        serializedNotes.remove(record.key);
+      } else if (record.type == RECORD_SERIALIZED_NOTE) {
+        DataInputStream serializedPayload = new DataInputStream(new ByteArrayInputStream(toArray(payload)));
+        serializedPayload.readUTF();
+        Note note = readSerializedNote(serializedPayload);
+        decodeTasks.put(record.key, () -> note);
+        serializedNotes.put(record.key, note);
+      } else {
+        decodeTasks.remove(record.key);
+        serializedNotes.remove(record.key);
+      }
+      track(record.type == RECORD_DELETE ? RECORD_DELETE : RECORD_NOTE, record.key,
+              new RecordPointer(record.offset, record.length));
+    }
+
+    journalLength = validLength;
+    if (validLength < channel.size()) {
+      try {
+        channel.truncate(validLength);
+        channel.force(true);
+      } catch (IOException e) {
+        // some platforms can't truncate a file while it's mapped, the torn record is
+        // written over by the next append instead, and is cut off by the next replay
+        e.printStackTrace();
+      }
+    }
+    channel.position(validLength);
+
+    for (Map.Entry<String, Note> serializedNote : serializedNotes.entrySet()) {
+      Note note = serializedNote.getValue();
+      liveRecords.remove(serializedNote.getKey());
+      decodeTasks.remove(serializedNote.getKey());
+      deadRecords++;
+      append(note);
+      decodeTasks.put(keyOf(note), () -> note);
+    }
+
+    return new ArrayList<>(decodeTasks.values());
+  }
+
+  /**
+   * This method reads the records of the buffer one after the other, starting at the given
+   * offset, until it reaches its end or a record that's torn or doesn't match its checksum.
+   * @param buffer the whole journal.
+   * @param from the offset of the first record.
+   * @param records the list the valid records are added to.
+   * @return the offset right after the last valid record.
+   * @throws IOException if the key of a record can't be read.
+   */
+
+  private int scanRecords(ByteBuffer buffer, int from, List<ScannedRecord> records) throws IOException {
+    int offset = from;
+    while (isValidRecord(buffer, offset)) {
+      byte type = buffer.get(offset);
+      int length = buffer.getInt(offset + 1);
+      ByteBuffer payload = slice(buffer, offset + RECORD_HEADER_SIZE, length);
+
+      String key;
+      if (type == RECORD_NOTE) {
+        key = noteCodec.readId(payload.duplicate()).toString();
+      } else if (type == RECORD_COMPRESSED_NOTE) {
+        key = new UUID(payload.getLong(4), payload.getLong(12)).toString();
+      } else {
+        key = new DataInputStream(new ByteArrayInputStream(toArray(payload))).readUTF();
+      }
+      records.add(new ScannedRecord(type, key, offset, RECORD_HEADER_SIZE + length, payload));
+      offset += RECORD_HEADER_SIZE + length;
+    }
+    return offset;
+  }
+
+  /**
+   * This method looks for the next valid record after a corrupted one, so that a few damaged
+   * bytes in the middle of the journal don't take every later save with them.
+   * @param buffer the whole journal.
+   * @param from the offset the search starts at.
+   * @return the offset of the next valid record, or -1 if there's none, which means the
+   * corrupted record was the last one, torn by a crash in the middle of a save.
+   */
+
+  private static int findNextRecord(ByteBuffer buffer, int from) {
+    for (int offset = from; offset + RECORD_HEADER_SIZE <= buffer.limit(); offset++) {
+      if (isValidRecord(buffer, offset)) {
+        return offset;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isValidRecord(ByteBuffer buffer, int offset) {
+    if (buffer.limit() - offset < RECORD_HEADER_SIZE) {
+      return false;
+    }
+    byte type = buffer.get(offset);
+    int length = buffer.getInt(offset + 1);
+    if (type < RECORD_SERIALIZED_NOTE || type > RECORD_COMPRESSED_NOTE
+            || length < (type == RECORD_COMPRESSED_NOTE ? COMPRESSED_HEADER_SIZE : 0)
+            || length > buffer.limit() - offset - RECORD_HEADER_SIZE) {
+      return false;
+    }
+    CRC32 crc32 = new CRC32();
+    crc32.update(slice(buffer, offset + RECORD_HEADER_SIZE, length));
+    return (int) crc32.getValue() == buffer.getInt(offset + 5);
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer slice = buffer.duplicate();
+    slice.position(offset).limit(offset + length);
+    return slice.slice();
+  }
+
+  /**
+   * This method rebuilds a journal that has corrupted records in the middle of it. The newest
+   * backup generation that's intact is taken as the base, and every valid record of the
+   * journal is laid over it, so a note whose latest record was lost comes back as it was
+   * saved in the backup. The damaged journal is kept next to it, and the rebuilt one is
+   * written to a temporary file which is forced to disk and atomically renamed over it.
+   * Only the backup files themselves are read, which are found by their names.
+   * @param records the valid records of the journal, in the order they were written.
+   * @throws IOException if the rebuilt journal can't be written.
+   */
+
+  private void recover(List<ScannedRecord> records) throws IOException {
+    List<ScannedRecord> recoveredRecords = new ArrayList<>(readNewestBackup());
+    recoveredRecords.addAll(records);
+
+    Map<String, ScannedRecord> survivingRecords = new LinkedHashMap<>();
+    for (ScannedRecord record : recoveredRecords) {
+      if (record.type == RECORD_DELETE) {
+        survivingRecords.remove(record.key);
+      } else {
+        survivingRecords.put(record.key, record);
+      }
+    }
+    List<PendingRecord> pendingRecords = new ArrayList<>();
+    for (ScannedRecord record : survivingRecords.values()) {
+      pendingRecords.add(new PendingRecord(record.type, record.key, toArray(record.payload)));
+    }
+
+    File recoveredFile = new File(journalFile.getPath() + ".tmp");
+    try (FileChannel recovered = FileChannel.open(recoveredFile.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      writeMagic(recovered);
+      RecordStream recordStream = new RecordStream(recovered, 4, writeBuffer, recordDeflater, compressionThreshold);
+      for (PendingRecord pendingRecord : pendingRecords) {
+        recordStream.write(pendingRecord);
+      }
+      recordStream.finish();
+      recovered.force(true);
+    }
+
+    Files.copy(journalFile.toPath(), new File(journalFile.getPath() + CORRUPTED_SUFFIX).toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+    channel.close();
+    Files.move(recoveredFile.toPath(), journalFile.toPath(),
+            StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    openChannel();
+  }
+
+  /**
+   * This method reads the records of the newest backup generation that's intact from its
+   * first to its last record.
+   * @return the records of the backup, or an empty list if there's no intact backup.
+   */
+
+  private List<ScannedRecord> readNewestBackup() {
+    for (int generation = 1; generation <= backupGenerations; generation++) {
+      List<ScannedRecord> backupRecords = readBackup(generation);
+      if (backupRecords != null) {
+        return backupRecords;
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  /**
+   * @return the records of the given backup generation, or null if it doesn't exist or isn't
+   * intact.
+   */
+
+  private List<ScannedRecord> readBackup(int generation) {
+    File backupFile = backupFileOf(generation);
+    if (!backupFile.isFile()) {
+      return null;
+    }
+    try (FileChannel backupChannel = FileChannel.open(backupFile.toPath(), StandardOpenOption.READ)) {
+      if (backupChannel.size() > Integer.MAX_VALUE) {
+        return null;
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) backupChannel.size());
+      while (buffer.hasRemaining() && backupChannel.read(buffer, buffer.position()) >= 0) {
+        // keep reading until the whole file is in the buffer
+      }
+      buffer.flip();
+      if (buffer.remaining() < 4 || buffer.getInt(0) != MAGIC) {
+        return null;
+      }
+      List<ScannedRecord> backupRecords = new ArrayList<>();
+      return scanRecords(buffer, 4, backupRecords) == buffer.limit() ? backupRecords : null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * This method is used to get the file of a backup generation, the 1st one being the journal
+   * as it was right before the last compaction.
+   * @param generation the generation of the backup, starting at 1.
+   * @return the file of the backup.
+   */
+
+  File backupFileOf(int generation) {
+    return new File(journalFile.getPath() + "." + generation);
+  }
+
+  /**
+   * This method is used to choose how the journal is read when it's replayed, which is
+   * mainly there to compare the two.
+   * @param memoryMapped true to map the journal into memory, false to read it into the heap.
+   */
+
+  synchronized void setMemoryMapped(boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+  }
+
+  /**
+   * This method gets the whole journal in one buffer, positioned at its start. It's mapped
+   * into memory, so the pages are read from the disk as the records are decoded without
+   * being copied into the heap, unless the file system can't map it, then it's read into
+   * the heap in one pass.
+   */
+
+  private ByteBuffer readJournal() throws IOException {
+    long size = channel.size();
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException(journalFile + " is too large to be replayed");
+    }
+    if (memoryMapped) {
+      try {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      } catch (IOException | UnsupportedOperationException e) {
+        // fall back to reading the journal into the heap
+      }
+    }
+    ByteBuffer buffer = ByteBuffer.allocate((int) size);
+    while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+      // keep reading until the whole file is in the buffer
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static byte[] toArray(ByteBuffer payload) {
+    byte[] bytes = new byte[payload.remaining()];
+    payload.duplicate().get(bytes);
+    return bytes;
+  }
+
+  /**
+   * This method runs one of the tasks returned by replayLazily().
+   * @param decodeTask the task that decodes the note.
+   * @return the decoded note.
+   * @throws IOException if the note can't be decoded.
+   */
+
+  static Note decode(Callable<Note> decodeTask) throws IOException {
+    try {
+      return decodeTask.call();
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * This method decodes the note of a note record, inflating it first if it's compressed.
+   * @param type the type of the record.
+   * @param payload the payload of the record.
+   * @return the decoded note.
+   * @throws IOException if the note can't be decoded.
+   */
+
+  private Note decodeNote(byte type, ByteBuffer payload) throws IOException {
+    if (type == RECORD_COMPRESSED_NOTE) {
+      return noteCodec.decode(RECORD_INFLATERS.get().inflate(payload));
+    }
+    return noteCodec.decode(payload);
+  }
+
+  /**
+   * This method reads the java serialized note of a record written before the NoteCodec existed.
+   */
+
+  private static Note readSerializedNote(InputStream payload) throws IOException {
+    try {
+      return (Note) new ObjectInputStream(payload).readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * This method picks up what other processes wrote to the journal since it was last read or
+   * written by this one. The records they appended are read from where this journal's own
+   * records end, and if they replaced the journal, e.g. by compacting it, it's opened again
+   * and replayed, the notes whose records differ from before being the changed ones.
+   * @return the notes other processes changed, in the order they were changed.
+   * @throws IOException if the journal can't be read.
+   */
+
+  synchronized List<ExternalChange> refresh() throws IOException {
+    if (externalChanges.isEmpty() && channel.size() == journalLength && !isReplaced()) {
+      return Collections.emptyList();
+    }
+    unlock(lock());
+    List<ExternalChange> changes = new ArrayList<>(externalChanges.values());
+    externalChanges.clear();
+    return changes;
+  }
+
+  /**
+   * This method locks the journal against the other processes, and picks up what they wrote
+   * before the lock was taken, opening the journal again if they replaced it.
+   * @return the lock, or null if this journal already holds it.
+   */
+
+  private FileLock lock() throws IOException {
+    if (journalLock != null) {
+      return null;
+    }
+    FileLock fileLock = lockChannel.lock();
+    journalLock = fileLock;
+    try {
+      if (isReplaced()) {
+        reopen();
+      }
+      readAppendedRecords();
+    } catch (IOException | RuntimeException e) {
+      unlock(fileLock);
+      throw e;
+    }
+    return fileLock;
+  }
+
+  private void unlock(FileLock fileLock) throws IOException {
+    if (fileLock == null) {
+      return;
+    }
+    journalLock = null;
+    fileLock.release();
+  }
+
+  /**
+   * @return true if the journal file isn't the one this journal has open anymore.
+   */
+
+  private boolean isReplaced() throws IOException {
+    if (!journalFile.exists()) {
+      return false;
+    }
+    Object fileKey = fileKeyOf(journalFile);
+    if (fileKey == null || journalFileKey == null) {
+      return journalFile.length() < journalLength;
+    }
+    return !fileKey.equals(journalFileKey);
+  }
+
+  /**
+   * This method reads the records other processes appended behind the last record this
+   * journal knows about, and keeps track of them just like its own.
+   */
+
+  private void readAppendedRecords() throws IOException {
+    long size = channel.size();
+    if (size <= journalLength) {
+      return;
+    }
+    if (size - journalLength > Integer.MAX_VALUE) {
+      throw new IOException(journalFile + " is too large to be read");
+    }
+    ByteBuffer appended = ByteBuffer.allocate((int) (size - journalLength));
+    while (appended.hasRemaining()
+            && channel.read(appended, journalLength + appended.position()) >= 0) {
+      // keep reading until every appended record is in the buffer
+    }
+    appended.flip();
+
+    List<ScannedRecord> records = new ArrayList<>();
+    int validLength = scanRecords(appended, 0, records);
+    long savedMillis = System.currentTimeMillis();
+    for (ScannedRecord record : records) {
+      if (record.type == RECORD_SERIALIZED_NOTE) {
+        continue;
+      }
+      boolean created = !liveRecords.containsKey(record.key);
+      track(record.type == RECORD_DELETE ? RECORD_DELETE : RECORD_NOTE, record.key,
+              new RecordPointer(journalLength + record.offset, record.length));
+      Note note = null;
+      if (record.type != RECORD_DELETE) {
+        note = decodeNote(record.type, record.payload.duplicate());
+        NoteMetadata previous = metadata.get(record.key);
+        metadata.put(record.key, NoteMetadata.of(note, savedMillis, previous == null ? null : previous.getViewState()));
+      } else {
+        metadata.remove(record.key);
+      }
+      ExternalChange previousChange = externalChanges.remove(record.key);
+      externalChanges.put(record.key,
+              new ExternalChange(record.key, note, created && (previousChange == null || previousChange.created)));
+    }
+    journalLength += validLength;
+    channel.position(journalLength);
+  }
+
+  /**
+   * This method opens the journal that replaced the one this journal had open, and replays it.
+   * Every note whose record isn't the same as before is handed out as changed.
+   */
+
+  private void reopen() throws IOException {
+    Map<String, Long> checksums = readChecksums();
+    channel.close();
+    openChannel();
+    long modifiedMillis = journalFile.lastModified();
+    replayLazily();
+
+    Map<String, Long> replayedChecksums = readChecksums();
+    for (Map.Entry<String, Long> replayed : replayedChecksums.entrySet()) {
+      String key = replayed.getKey();
+      if (!replayed.getValue().equals(checksums.get(key))) {
+        Note note = read(key);
+        NoteMetadata previous = metadata.get(key);
+        metadata.put(key, NoteMetadata.of(note, modifiedMillis, previous == null ? null : previous.getViewState()));
+        externalChanges.put(key, new ExternalChange(key, note, !checksums.containsKey(key)));
+      }
+    }
+    for (String key : checksums.keySet()) {
+      if (!replayedChecksums.containsKey(key)) {
+        metadata.remove(key);
+        externalChanges.put(key, new ExternalChange(key, null, false));
+      }
+    }
+  }
+
+  /**
+   * @return the length and checksum of the record of every note, read from its header.
+   */
+
+  private Map<String, Long> readChecksums() throws IOException {
+    Map<String, Long> checksums = new HashMap<>();
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    for (Map.Entry<String, RecordPointer> entry : liveRecords.entrySet()) {
+      header.clear();
+      while (header.hasRemaining()
+              && channel.read(header, entry.getValue().offset + header.position()) >= 0) {
+        // keep reading until the whole header is in the buffer
+      }
+      checksums.put(entry.getKey(), ((long) header.getInt(1) << 32) | (header.getInt(5) & 0xffffffffL));
+    }
+    return checksums;
+  }
+
+  /**
+   * This method rewrites the journal so that it only holds the records that are still alive.
+   * The live records are copied as they are into a temporary file which is forced to disk and
+   * then atomically renamed over the journal, so a crash at any point leaves either the old or
+   * the new journal intact. The old journal is kept as the newest backup generation.
+   * @throws IOException if the compacted journal can't be written.
+   */
+
+  synchronized void compact() throws IOException {
+    compactionScheduled = false;
+    FileLock fileLock = lock();
+    try {
+      compactLocked();
+    } finally {
+      unlock(fileLock);
+    }
+  }
+
+  private void compactLocked() throws IOException {
+    File compactedFile = new File(journalFile.getPath() + ".tmp");
+    Map<String, RecordPointer> compactedRecords = new LinkedHashMap<>();
+
+    try (FileChannel compacted = FileChannel.open(compactedFile.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      writeMagic(compacted);
+      for (Map.Entry<String, RecordPointer> entry : liveRecords.entrySet()) {
+        RecordPointer pointer = entry.getValue();
+        long position = compacted.position();
+        long copied = 0;
+        while (copied < pointer.length) {
+          copied += channel.transferTo(pointer.offset + copied, pointer.length - copied, compacted);
+        }
+        compactedRecords.put(entry.getKey(), new RecordPointer(position, pointer.length));
+      }
+      compacted.force(true);
+    }
+
+    rotateBackups();
+    channel.close();
+    Files.move(compactedFile.toPath(), journalFile.toPath(),
+            StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    openChannel();
+
+    liveRecords.clear();
+    liveRecords.putAll(compactedRecords);
+    deadRecords = 0;
+  }
+
+  /**
+   * This method shifts every backup generation one up, dropping the oldest one, and keeps the
+   * journal as it is now as the 1st generation. The journal is hard linked rather than copied
+   * where the file system allows it, since it's about to be replaced anyway.
+   */
+
+  private void rotateBackups() throws IOException {
+    if (backupGenerations <= 0) {
+      return;
+    }
+    Files.deleteIfExists(backupFileOf(backupGenerations).toPath());
+    for (int generation = backupGenerations - 1; generation >= 1; generation--) {
+      File backupFile = backupFileOf(generation);
+      if (backupFile.exists()) {
+        Files.move(backupFile.toPath(), backupFileOf(generation + 1).toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    try {
+      Files.createLink(backupFileOf(1).toPath(), journalFile.toPath());
+    } catch (IOException | UnsupportedOperationException e) {
+      Files.copy(journalFile.toPath(), backupFileOf(1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * This method is used to choose how many backup generations are kept, 0 keeps none.
+   * @param backupGenerations the number of backup generations.
+   */
+
+  synchronized void setBackupGenerations(int backupGenerations) {
+    this.backupGenerations = backupGenerations;
+  }
+
+  /**
+   * This method sets how many bytes the payload of a note takes before it's compressed,
+   * Integer.MAX_VALUE turns the compression off. The records already written stay as they are.
+   */
+
+  synchronized void setCompressionThreshold(int compressionThreshold) {
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  /**
+   * This method closes the journal, letting an already started compaction finish first.
+   * @throws IOException if the journal can't be closed.
+   */
+
+  @Override
+  public void close() throws IOException {
+    compactor.shutdown();
+    synchronized (this) {
+      try {
+        if (metadata.keySet().equals(liveRecords.keySet())) {
+          writeMetadataFile();
+        }
+      } finally {
+        recordDeflater.end();
+        channel.close();
+        lockChannel.close();
+      }
+    }
+  }
+
+  /**
+   * This method writes the metadata file, through a temporary file that's renamed over it.
+   * It holds the length the journal had, so that it's known to be out of date as soon as
+   * anything is appended to the journal.
+   */
+
+  private void writeMetadataFile() throws IOException {
+    File temporaryFile = new File(metadataFile.getPath() + ".tmp");
+    try (DataOutputStream outputStream = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+      outputStream.writeInt(METADATA_MAGIC);
+      outputStream.writeLong(journalLength);
+      outputStream.writeInt(deadRecords);
+      outputStream.writeInt(liveRecords.size());
+      for (Map.Entry<String, RecordPointer> entry : liveRecords.entrySet()) {
+        NoteMetadata noteMetadata = metadata.get(entry.getKey());
+        outputStream.writeUTF(entry.getKey());
+        outputStream.writeLong(entry.getValue().offset);
+        outputStream.writeInt(entry.getValue().length);
+        outputStream.writeLong(noteMetadata.getId().getMostSignificantBits());
+        outputStream.writeLong(noteMetadata.getId().getLeastSignificantBits());
+        outputStream.writeByte(noteMetadata.getColor().ordinal());
+        outputStream.writeUTF(noteMetadata.getTitle());
+        outputStream.writeInt(noteMetadata.getSize());
+        outputStream.writeLong(noteMetadata.getModifiedMillis());
+        noteMetadata.getViewState().writeTo(outputStream);
+      }
+    }
+    Files.move(temporaryFile.toPath(), metadataFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * This method reads the metadata file into the given map. If the file was written for the
+   * journal as it is now, the records it points to are tracked as well and the journal doesn't
+   * need to be replayed.
+   * @param savedMetadata the map the metadata is read into, by key.
+   * @return true if the file matches the journal.
+   */
+
+  private boolean readMetadataFile(Map<String, NoteMetadata> savedMetadata) {
+    if (!metadataFile.isFile()) {
+      return false;
+    }
+    Map<String, RecordPointer> savedRecords = new LinkedHashMap<>();
+    long savedJournalLength;
+    int savedDeadRecords;
+    try (DataInputStream inputStream = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(metadataFile)))) {
+      int magic = inputStream.readInt();
+      if (magic != METADATA_MAGIC && magic != BOUNDS_METADATA_MAGIC) {
+        return false;
+      }
+      savedJournalLength = inputStream.readLong();
+      savedDeadRecords = inputStream.readInt();
+      int count = inputStream.readInt();
+      NoteColor[] noteColors = NoteColor.values();
+      for (int i = 0; i < count; i++) {
+        String key = inputStream.readUTF();
+        RecordPointer pointer = new RecordPointer(inputStream.readLong(), inputStream.readInt());
+        UUID id = new UUID(inputStream.readLong(), inputStream.readLong());
+        NoteColor color = noteColors[inputStream.readUnsignedByte() % noteColors.length];
+        String title = inputStream.readUTF();
+        int size = inputStream.readInt();
+        long modifiedMillis = inputStream.readLong();
+        NoteViewState viewState;
+        if (magic == METADATA_MAGIC) {
+          viewState = NoteViewState.readFrom(inputStream);
+        } else {
+          viewState = NoteViewState.DEFAULT.withBounds(inputStream.readBoolean()
+                  ? new Rectangle(inputStream.readInt(), inputStream.readInt(), inputStream.readInt(), inputStream.readInt())
+                  : null);
+        }
+        savedRecords.put(key, pointer);
+        savedMetadata.put(key, new NoteMetadata(id, color, title, size, modifiedMillis, viewState));
+      }
+    } catch (IOException e) {
+      savedMetadata.clear();
+      return false;
+    }
+
+    try {
+      if (savedJournalLength != channel.size()) {
+        return false;
+      }
+    } catch (IOException e) {
+      return false;
+    }
+    liveRecords.clear();
+    liveRecords.putAll(savedRecords);
+    metadata.clear();
+    metadata.putAll(savedMetadata);
+    deadRecords = savedDeadRecords;
+    return true;
+  }
+
+  /**
+   * This method writes a single record to the end of the journal and forces it to disk.
+   */
+
+  private void writeRecord(byte type, String key, byte[] payload) throws IOException {
+    writeRecords(Collections.singletonList(new PendingRecord(type, key, payload)));
+  }
+
+  /**
+   * This method writes the records to the end of the journal in one write, and forces them
+   * to disk once.
+   */
+
+  private void writeRecords(List<PendingRecord> pendingRecords) throws IOException {
+    FileLock fileLock = lock();
+    try {
+      long position = journalLength;
+      int[] lengths = new int[pendingRecords.size()];
+      RecordStream recordStream = new RecordStream(channel, position, writeBuffer, recordDeflater, compressionThreshold);
+      for (int i = 0; i < lengths.length; i++) {
+        lengths[i] = recordStream.write(pendingRecords.get(i));
+      }
+      recordStream.finish();
+      channel.force(false);
+      journalLength = recordStream.position;
+      channel.position(journalLength);
+
+      long offset = position;
+      for (int i = 0; i < lengths.length; i++) {
+        PendingRecord pendingRecord = pendingRecords.get(i);
+        int length = lengths[i];
+        track(pendingRecord.type, pendingRecord.key, new RecordPointer(offset, length));
+        ExternalChange externalChange = externalChanges.get(pendingRecord.key);
+        if (externalChange != null) {
+          externalChange.overwritten = true;
+        }
+        offset += length;
+      }
+    } finally {
+      unlock(fileLock);
+    }
+    scheduleCompactionIfNeeded();
+  }
+
+  /**
+   * @return the record of the note, streamed from its text when the codec is the
+   * BinaryNoteCodec, otherwise encoded up front.
+   */
+
+  private PendingRecord pendingRecordOf(UUID id, NoteColor noteColor, NoteText text) throws IOException {
+    if (noteCodec instanceof BinaryNoteCodec) {
+      return new PendingRecord(id, noteColor, text);
+    }
+    String writtenText = NoteText.readAll(text);
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    noteCodec.encode(new Note(id, writtenText, noteColor), payload);
+    PendingRecord pendingRecord = new PendingRecord(RECORD_NOTE, id.toString(), payload.toByteArray());
+    pendingRecord.title = NoteMetadata.titleOf(writtenText);
+    pendingRecord.textLength = writtenText.length();
+    return pendingRecord;
+  }
+
+  /**
+   * This method keeps track of which record holds the latest state of every key. Every record
+   * that is superseded, and every delete record, counts towards the next compaction.
+   */
+
+  private void track(byte type, String key, RecordPointer pointer) {
+    RecordPointer previous = type == RECORD_NOTE ? liveRecords.put(key, pointer) : liveRecords.remove(key);
+    if (previous != null) {
+      deadRecords++;
+    }
+    if (type == RECORD_DELETE) {
+      deadRecords++;
+    }
+  }
+
+  private void scheduleCompactionIfNeeded() {
+    if (!compactionScheduled
+            && deadRecords >= COMPACTION_THRESHOLD
+            && deadRecords > liveRecords.size()) {
+      compactionScheduled = true;
+      compactor.submit(() -> {
+        try {
+          compact();
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      });
+    }
+  }
+
+  private void openChannel() throws IOException {
+    channel = FileChannel.open(journalFile.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (channel.size() == 0) {
+      writeMagic(channel);
+      channel.force(true);
+    } else {
+      ByteBuffer magic = ByteBuffer.allocate(4);
+      channel.read(magic, 0);
+      magic.flip();
+      if (magic.remaining() < 4 || magic.getInt() != MAGIC) {
+        channel.close();
+        throw new IOException(journalFile + " is not an Axeereraa journal");
+      }
+    }
+    journalLength = channel.size();
+    channel.position(journalLength);
+    journalFileKey = fileKeyOf(journalFile);
+  }
+
+  private static Object fileKeyOf(File file) throws IOException {
+    return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+  }
+
+  private static void writeMagic(FileChannel fileChannel) throws IOException {
+    ByteBuffer magic = ByteBuffer.allocate(4).putInt(MAGIC);
+    magic.flip();
+    while (magic.hasRemaining()) {
+      fileChannel.write(magic);
+    }
+  }
+
+  /**
+   * A record that's about to be written to the journal.
+   */
+
+  private static final class PendingRecord {
+    private final byte type;
+    private final String key;
+
+    /**
+     * the payload of the record, or null if it's a note whose text is streamed.
+     */
+
+    private final byte[] payload;
+    private final UUID id;
+    private final NoteColor noteColor;
+    private final NoteText text;
+
+    /**
+     * the title & length of the text of a note record, as it was written.
+     */
+
+    private String title;
+    private int textLength;
+
+    PendingRecord(byte type, String key, byte[] payload) {
+      this.type = type;
+      this.key = key;
+      this.payload = payload;
+      this.id = null;
+      this.noteColor = null;
+      this.text = null;
+    }
+
+    PendingRecord(UUID id, NoteColor noteColor, NoteText text) {
+      this.type = RECORD_NOTE;
+      this.key = id.toString();
+      this.payload = null;
+      this.id = id;
+      this.noteColor = noteColor;
+      this.text = text;
+    }
+  }
+
+  /**
+   * This class writes records one after the other through the reused direct buffer, which is
+   * written out to the file whenever it's full. The checksum of every record is computed as
+   * its payload goes through the buffer, and patched into its header once it's all written.
+   * The payload of a compressed note is written into the input buffer of the RecordDeflater
+   * instead, and goes into the direct buffer deflated, so its length is patched in as well.
+   */
+
+  private static final class RecordStream {
+    private final FileChannel fileChannel;
+    private final ByteBuffer buffer;
+    private final RecordDeflater recordDeflater;
+    private final int compressionThreshold;
+    private final CRC32 crc32 = new CRC32();
+    private final Segment segment = new Segment();
+
+    /**
+     * where the payload goes, which is the buffer, or the input of the RecordDeflater while a
+     * note is compressed.
+     */
+
+    private ByteBuffer target;
+
+    /**
+     * where the buffer is written to, which is where the next record starts once it's finished.
+     */
+
+    private long position;
+
+    /**
+     * where the payload of the current record starts in the buffer, 0 once it's written out.
+     */
+
+    private int payloadStart;
+
+    /**
+     * the first char of a surrogate pair whose second char is in the next segment, or 0.
+     */
+
+    private char highSurrogate;
+
+    RecordStream(FileChannel fileChannel, long position, ByteBuffer buffer,
+                 RecordDeflater recordDeflater, int compressionThreshold) {
+      this.fileChannel = fileChannel;
+      this.position = position;
+      this.buffer = buffer;
+      this.recordDeflater = recordDeflater;
+      this.compressionThreshold = compressionThreshold;
+      this.target = buffer;
+      buffer.clear();
+    }
+
+    /**
+     * This method writes a record, streaming the note when its text is streamed, and
+     * compressing it when it's large enough.
+     * @return the length of the record.
+     */
+
+    int write(PendingRecord pendingRecord) throws IOException {
+      long recordStart = position + buffer.position();
+      if (pendingRecord.payload != null) {
+        int payloadLength = pendingRecord.payload.length;
+        if (pendingRecord.type == RECORD_NOTE && payloadLength >= compressionThreshold) {
+          beginCompressedRecord(UUID.fromString(pendingRecord.key), payloadLength);
+        } else {
+          beginRecord(pendingRecord.type, payloadLength);
+        }
+        put(pendingRecord.payload, 0, payloadLength);
+        return endRecord(recordStart);
+      }
+
+      NoteText text = pendingRecord.text;
+      int[] recordLength = new int[1];
+      text.whileUnchanged(() -> {
+        int textLength = utf8Length(text);
+        ByteBuffer noteHeader = ByteBuffer.allocate(BinaryNoteCodec.MAX_HEADER_SIZE);
+        BinaryNoteCodec.encodeHeader(pendingRecord.id, pendingRecord.noteColor, textLength, noteHeader);
+        noteHeader.flip();
+        int payloadLength = noteHeader.remaining() + textLength;
+        if (payloadLength >= compressionThreshold) {
+          beginCompressedRecord(pendingRecord.id, payloadLength);
+        } else {
+          beginRecord(RECORD_NOTE, payloadLength);
+        }
+        target.put(noteHeader);
+        for (int offset = 0; offset < text.length(); offset += segment.count) {
+          text.getText(offset, text.length() - offset, segment);
+          encode(segment);
+        }
+        finishSurrogate();
+        recordLength[0] = endRecord(recordStart);
+        pendingRecord.title = titleOf(text);
+        pendingRecord.textLength = text.length();
+      });
+      return recordLength[0];
+    }
+
+    /**
+     * This method writes out what's left in the buffer.
+     */
+
+    void finish() throws IOException {
+      flush();
+    }
+
+    private void beginRecord(byte type, int payloadLength) throws IOException {
+      ensureRemaining(RECORD_HEADER_SIZE + BinaryNoteCodec.MAX_HEADER_SIZE);
+      buffer.put(type).putInt(payloadLength).putInt(0);
+      crc32.reset();
+      payloadStart = buffer.position();
+    }
+
+    /**
+     * This method begins a compressed note record, whose length is only known once the note
+     * is deflated, and sends the rest of the payload through the RecordDeflater.
+     */
+
+    private void beginCompressedRecord(UUID id, int payloadLength) throws IOException {
+      ensureRemaining(RECORD_HEADER_SIZE + COMPRESSED_HEADER_SIZE);
+      buffer.put(RECORD_COMPRESSED_NOTE).putInt(0).putInt(0);
+      crc32.reset();
+      payloadStart = buffer.position();
+      buffer.putInt(payloadLength).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+      target = recordDeflater.begin();
+    }
+
+    /**
+     * This method deflates what's left of a compressed note, and patches the length and the
+     * checksum into the header of the record, in the buffer when it's still there, otherwise
+     * in the file.
+     * @return the length of the record.
+     */
+
+    private int endRecord(long recordStart) throws IOException {
+      if (target != buffer) {
+        deflate(true);
+        target = buffer;
+      }
+      updateChecksum();
+      int recordLength = (int) (position + buffer.position() - recordStart);
+      int checksum = (int) crc32.getValue();
+      if (recordStart >= position) {
+        buffer.putInt((int) (recordStart - position) + 1, recordLength - RECORD_HEADER_SIZE);
+        buffer.putInt((int) (recordStart - position) + 5, checksum);
+      } else {
+        ByteBuffer patch = ByteBuffer.allocate(8).putInt(recordLength - RECORD_HEADER_SIZE).putInt(checksum);
+        patch.flip();
+        while (patch.hasRemaining()) {
+          fileChannel.write(patch, recordStart + 1 + patch.position());
+        }
+      }
+      payloadStart = buffer.position();
+      return recordLength;
+    }
+
+    private void updateChecksum() {
+      ByteBuffer payload = buffer.duplicate();
+      payload.flip();
+      payload.position(payloadStart);
+      crc32.update(payload);
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    /**
+     * This method makes room for the given number of bytes wherever the payload goes.
+     */
+
+    private void ensureTargetRemaining(int bytes) throws IOException {
+      if (target.remaining() < bytes) {
+        if (target == buffer) {
+          flush();
+        } else {
+          deflate(false);
+        }
+      }
+    }
+
+    private void put(byte[] bytes, int offset, int length) throws IOException {
+      while (length > 0) {
+        ensureTargetRemaining(1);
+        int count = Math.min(target.remaining(), length);
+        target.put(bytes, offset, count);
+        offset += count;
+        length -= count;
+      }
+    }
+
+    /**
+     * This method deflates the input of the RecordDeflater into the buffer.
+     * @param finish true if it's the end of the note.
+     */
+
+    private void deflate(boolean finish) throws IOException {
+      Deflater deflater = recordDeflater.deflater;
+      ByteBuffer input = recordDeflater.input;
+      byte[] output = recordDeflater.output;
+      deflater.setInput(input.array(), 0, input.position());
+      if (finish) {
+        deflater.finish();
+      }
+      while (finish ? !deflater.finished() : !deflater.needsInput()) {
+        int count = deflater.deflate(output);
+        for (int offset = 0; offset < count; ) {
+          ensureRemaining(1);
+          int put = Math.min(buffer.remaining(), count - offset);
+          buffer.put(output, offset, put);
+          offset += put;
+        }
+      }
+      input.clear();
+    }
+
+    private void flush() throws IOException {
+      updateChecksum();
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        position += fileChannel.write(buffer, position);
+      }
+      buffer.clear();
+      payloadStart = 0;
+    }
+
+    /**
+     * This method encodes the chars to UTF-8 the way String.getBytes() does, replacing the
+     * surrogates that aren't part of a pair with '?'.
+     */
+
+    private void encode(Segment chars) throws IOException {
+      char[] array = chars.array;
+      for (int i = chars.offset, end = chars.offset + chars.count; i < end; i++) {
+        ensureTargetRemaining(4);
+        char c = array[i];
+        if (highSurrogate != 0) {
+          char high = highSurrogate;
+          highSurrogate = 0;
+          if (Character.isLowSurrogate(c)) {
+            int codePoint = Character.toCodePoint(high, c);
+            target.put((byte) (0xf0 | (codePoint >> 18)))
+                    .put((byte) (0x80 | ((codePoint >> 12) & 0x3f)))
+                    .put((byte) (0x80 | ((codePoint >> 6) & 0x3f)))
+                    .put((byte) (0x80 | (codePoint & 0x3f)));
+            continue;
+          }
+          target.put((byte) '?');
+        }
+        if (c < 0x80) {
+          target.put((byte) c);
+        } else if (c < 0x800) {
+          target.put((byte) (0xc0 | (c >> 6))).put((byte) (0x80 | (c & 0x3f)));
+        } else if (Character.isHighSurrogate(c)) {
+          highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+          target.put((byte) '?');
+        } else {
+          target.put((byte) (0xe0 | (c >> 12)))
+                  .put((byte) (0x80 | ((c >> 6) & 0x3f)))
+                  .put((byte) (0x80 | (c & 0x3f)));
+        }
+      }
+    }
+
+    private void finishSurrogate() throws IOException {
+      if (highSurrogate != 0) {
+        highSurrogate = 0;
+        ensureTargetRemaining(1);
+        target.put((byte) '?');
+      }
+    }
+
+    /**
+     * @return how many bytes the text takes in UTF-8, counted the way encode() writes it.
+     */
+
+    private int utf8Length(NoteText text) throws IOException {
+      long length = 0;
+      boolean afterHighSurrogate = false;
+      for (int offset = 0; offset < text.length(); offset += segment.count) {
+        text.getText(offset, text.length() - offset, segment);
+        char[] array = segment.array;
+        for (int i = segment.offset, end = segment.offset + segment.count; i < end; i++) {
+          char c = array[i];
+          if (afterHighSurrogate) {
+            afterHighSurrogate = false;
+            if (Character.isLowSurrogate(c)) {
+              length += 4;
+              continue;
+            }
+            length++;
+          }
+          if (c < 0x80) {
+            length++;
+          } else if (c < 0x800) {
+            length += 2;
+          } else if (Character.isHighSurrogate(c)) {
+            afterHighSurrogate = true;
+          } else if (Character.isLowSurrogate(c)) {
+            length++;
+          } else {
+            length += 3;
+          }
+        }
+      }
+      if (afterHighSurrogate) {
+        length++;
+      }
+      if (length > Integer.MAX_VALUE - BinaryNoteCodec.MAX_HEADER_SIZE) {
+        throw new IOException("the note is too large to be saved");
+      }
+      return (int) length;
+    }
+  }
+
+  /**
+   * The Deflater the journal compresses notes with, and the buffers it goes through, which are
+   * made the first time a note is compressed and reused by every one after it.
+   */
+
+  private static final class RecordDeflater {
+    private Deflater deflater;
+    private ByteBuffer input;
+    private byte[] output;
+
+    /**
+     * @return the input buffer, cleared for the payload of a note.
+     */
+
+    ByteBuffer begin() {
+      if (deflater == null) {
+        deflater = new Deflater(COMPRESSION_LEVEL, true);
+        input = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        output = new byte[8192];
+      }
+      deflater.reset();
+      input.clear();
+      return input;
+    }
+
+    void end() {
+      if (deflater != null) {
+        deflater.end();
+        deflater = null;
+      }
+    }
+  }
+
+  /**
+   * The Inflater a thread decompresses notes with, and the buffer it inflates them into, which
+   * is reused for every note unless it's larger than MAX_RETAINED_SIZE, so a single large note
+   * doesn't keep its buffer around for good.
+   */
+
+  private static final class RecordInflater {
+    private static final int MAX_RETAINED_SIZE = 1 << 20;
+
+    private final Inflater inflater = new Inflater(true);
+    private final byte[] input = new byte[8192];
+    private byte[] output = new byte[WRITE_BUFFER_SIZE];
+
+    /**
+     * This method inflates the note of a compressed note record.
+     * @param payload the payload of the record.
+     * @return the note as it was before it was compressed, valid until the next call.
+     * @throws IOException if the note can't be inflated.
+     */
+
+    ByteBuffer inflate(ByteBuffer payload) throws IOException {
+      int length = payload.getInt(payload.position());
+      if (length < 0) {
+        throw new IOException("malformed compressed note");
+      }
+      byte[] inflated = output;
+      if (length > inflated.length) {
+        inflated = new byte[length];
+        if (length <= MAX_RETAINED_SIZE) {
+          output = inflated;
+        }
+      }
+      ByteBuffer compressed = payload.duplicate();
+      compressed.position(compressed.position() + COMPRESSED_HEADER_SIZE);
+      inflater.reset();
+      try {
+        for (int offset = 0; offset < length; ) {
+          if (inflater.needsInput()) {
+            if (!compressed.hasRemaining()) {
+              throw new IOException("the compressed note is cut off");
+            }
+            if (compressed.hasArray()) {
+              inflater.setInput(compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining());
+              compressed.position(compressed.limit());
+            } else {
+              int count = Math.min(input.length, compressed.remaining());
+              compressed.get(input, 0, count);
+              inflater.setInput(input, 0, count);
+            }
+          } else if (inflater.finished() || inflater.needsDictionary()) {
+            throw new IOException("the compressed note is cut off");
+          }
+          offset += inflater.inflate(inflated, offset, length - offset);
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("malformed compressed note", e);
+      }
+      return ByteBuffer.wrap(inflated, 0, length);
+    }
+  }
+
+  /**
+   * A valid record found while reading a journal or one of its backups.
+   */
+
+  private static final class ScannedRecord {
+    private final byte type;
+    private final String key;
+    private final int offset;
+    private final int length;
+    private final ByteBuffer payload;
+
+    ScannedRecord(byte type, String key, int offset, int length, ByteBuffer payload) {
+      this.type = type;
+      this.key = key;
+      this.offset = offset;
+      this.length = length;
+      this.payload = payload;
+    }
+  }
+
+  /**
+   * A note that was changed by another process.
+   */
+
+  static final class ExternalChange {
+    private final String key;
+    private final Note note;
+    private final boolean created;
+    private boolean overwritten;
+
+    ExternalChange(String key, Note note, boolean created) {
+      this.key = key;
+      this.note = note;
+      this.created = created;
+    }
+
+    String getKey() {
+      return key;
+    }
+
+    /**
+     * @return the note as the other process saved it, or null if it deleted it.
+     */
+
+    Note getNote() {
+      return note;
+    }
+
+    /**
+     * @return true if the note didn't exist before the other process saved it.
+     */
+
+    boolean isCreated() {
+      return created;
+    }
+
+    /**
+     * @return true if this process saved the note again after the other process did, before
+     * the change was handed out.
+     */
+
+    boolean isOverwritten() {
+      return overwritten;
+    }
+  }
+
+  /**
+   * Where a single record lives inside the journal file.
+   */
+
+  private static final class RecordPointer {
+    private final long offset;
+    private final int length;
+
+    RecordPointer(long offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.negassagisila.axeereraa;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * This class is responsible for loading the saved notes at startup. Only the NoteMetadata of
+ * the notes in the note journal is loaded, in one pass, the written text of a note is read
+ * once the note is shown. Any note still saved in its own .ser file by an older version is
+ * moved into the journal on the way, on a bounded pool of threads, and every note is handed
+ * over as soon as it's ready.
+ */
+
+class NoteLoader {
+  private static final int MAX_THREADS = 4;
+  
+  private final NoteJournal noteJournal;
+  private final File notesDirectory;
+  
+  NoteLoader(NoteJournal noteJournal, File notesDirectory) {
+    this.noteJournal = noteJournal;
+    this.notesDirectory = notesDirectory;
+  }
+  
+  /**
+   * This method loads the NoteMetadata of all the saved notes and passes each of them to the
+   * given consumer, on the calling thread, as soon as it's ready. It returns once every note
+   * has been handed over.
+   * @param onNoteLoaded called once for every note that was loaded.
+   * @return the number of notes that were loaded.
+   */
+  
+  int load(Consumer<NoteMetadata> onNoteLoaded) {
+    int loaded = 0;
+    try {
+      loaded = Instrumentation.call("NoteJournal.loadMetadata", () -> {
+        int count = 0;
+        for (NoteMetadata noteMetadata : noteJournal.loadMetadata()) {
+          onNoteLoaded.accept(noteMetadata);
+          count++;
+        }
+        return count;
+      });
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    
+    List<File> legacyNoteFiles = listLegacyNoteFiles();
+    if (legacyNoteFiles.isEmpty()) {
+      return loaded;
+    }
+    
+    ExecutorService migrators = Executors.newFixedThreadPool(
+            Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()),
+            r -> {
+              Thread t = new Thread(r, "Axeereraa-note-loader");
+              t.setDaemon(true);
+              return t;
+            });
+    CompletionService<Note> migratedNotes = new ExecutorCompletionService<>(migrators);
+    for (File legacyNoteFile : legacyNoteFiles) {
+      migratedNotes.submit(() -> migrateLegacyNote(legacyNoteFile));
+    }
+    
+    try {
+      for (int i = 0; i < legacyNoteFiles.size(); i++) {
+        try {
+          Note note = migratedNotes.take().get();
+          if (note != null) {
+            onNoteLoaded.accept(NoteMetadata.of(note, System.currentTimeMillis(), null));
+            loaded++;
+          }
+        } catch (ExecutionException e) {
+          e.getCause().printStackTrace();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      migrators.shutdownNow();
+    }
+    
+    return loaded;
+  }
+  
+  /**
+   * This method is used to get the notes saved in their own .ser file by an older version.
+   */
+  
+  private List<File> listLegacyNoteFiles() {
+    List<File> output = new ArrayList<>();
+    File[] legacyNoteFiles = notesDirectory.listFiles((dir, name) -> name.endsWith(".ser"));
+    if (legacyNoteFiles != null) {
+      for (File f : legacyNoteFiles) {
+        output.add(f);
+      }
+    }
+    return output;
+  }
+  
+  /**
+   * This method reads a note saved in its own .ser file, moves it into the note journal and
+   * deletes the file. The note is given an id derived from the file name, so that if the
+   * file outlives a crash right after the move it isn't moved a second time.
+   * @return the note, or null if it was already moved into the journal before.
+   */
+  
+  private Note migrateLegacyNote(File legacyNoteFile) throws IOException, ClassNotFoundException {
+    Note savedNote = new NoteReader(new FileInputStream(legacyNoteFile)).read();
+    Note legacyNote = new Note(
+            UUID.nameUUIDFromBytes(legacyNoteFile.getName().getBytes(StandardCharsets.UTF_8)),
+            savedNote.getWrittenText(),
+            savedNote.getColor()
+    );
+    boolean alreadyMigrated = noteJournal.contains(NoteJournal.keyOf(legacyNote));
+    if (!alreadyMigrated) {
+      noteJournal.append(legacyNote);
+    }
+    new NoteDeleter(legacyNoteFile).deleteNote();
+    return alreadyMigrated ? null : legacyNote;
+  }
+}
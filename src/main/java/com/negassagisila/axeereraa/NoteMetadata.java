@@ -0,0 +1,134 @@
+package com.negassagisila.axeereraa;
+
+import java.awt.*;
+import java.util.UUID;
+
+/**
+ * This class holds what's known about a saved note without its written text: the id, the
+ * color, the title, i.e. its first line, how long the text is, when it was last saved and how
+ * its window was left. It's what's loaded for every note at startup, the text itself is only read
+ * once the note is actually shown.
+ */
+
+final class NoteMetadata {
+  static final int MAX_TITLE_LENGTH = 80;
+  
+  private final UUID id;
+  private final NoteColor color;
+  private final String title;
+  private final int size;
+  private final long modifiedMillis;
+  private final NoteViewState viewState;
+  
+  NoteMetadata(UUID id, NoteColor color, String title, int size, long modifiedMillis, NoteViewState viewState) {
+    this.id = id;
+    this.color = color;
+    this.title = title;
+    this.size = size;
+    this.modifiedMillis = modifiedMillis;
+    this.viewState = viewState == null ? NoteViewState.DEFAULT : viewState;
+  }
+  
+  /**
+   * This method is used to get the metadata of the given note.
+   * @param note the Note object.
+   * @param modifiedMillis when the note was saved.
+   * @param viewState how the window of the note was left, or null if it isn't known.
+   * @return the NoteMetadata of the note.
+   */
+  
+  static NoteMetadata of(Note note, long modifiedMillis, NoteViewState viewState) {
+    String writtenText = note.getWrittenText() == null ? "" : note.getWrittenText();
+    return new NoteMetadata(note.getId(), note.getColor(), titleOf(writtenText),
+            writtenText.length(), modifiedMillis, viewState);
+  }
+  
+  /**
+   * @return the first line of the text that isn't blank, cut short, to show a note with. Only
+   * the first 63 lines are looked at one by one, the rest of the text counts as one more line.
+   * The lines are walked in place, so a large note isn't copied to find its title.
+   */
+  
+  static String titleOf(CharSequence writtenText) {
+    int length = writtenText.length();
+    int start = 0;
+    for (int line = 1; ; line++) {
+      int end = line < 64 ? indexOfNewline(writtenText, start) : length;
+      int first = start;
+      while (first < end && writtenText.charAt(first) <= ' ') {
+        first++;
+      }
+      if (first < end) {
+        int cut = Math.min(end, first + MAX_TITLE_LENGTH);
+        int last = cut;
+        while (last > first && writtenText.charAt(last - 1) <= ' ') {
+          last--;
+        }
+        for (int i = cut; i < end; i++) {
+          if (writtenText.charAt(i) > ' ') {
+            last = cut;
+            break;
+          }
+        }
+        return writtenText.subSequence(first, last).toString();
+      }
+      if (end == length) {
+        return "";
+      }
+      start = end + 1;
+    }
+  }
+  
+  private static int indexOfNewline(CharSequence text, int from) {
+    for (int i = from; i < text.length(); i++) {
+      if (text.charAt(i) == '\n') {
+        return i;
+      }
+    }
+    return text.length();
+  }
+  
+  /**
+   * @return a copy of this metadata with the window left as the given view state.
+   */
+  
+  NoteMetadata withViewState(NoteViewState viewState) {
+    return new NoteMetadata(id, color, title, size, modifiedMillis, viewState);
+  }
+  
+  UUID getId() {
+    return id;
+  }
+  
+  NoteColor getColor() {
+    return color;
+  }
+  
+  String getTitle() {
+    return title;
+  }
+  
+  /**
+   * @return the number of characters of the written text.
+   */
+  
+  int getSize() {
+    return size;
+  }
+  
+  long getModifiedMillis() {
+    return modifiedMillis;
+  }
+  
+  /**
+   * @return where the window of the note was, or null if it isn't known.
+   */
+  
+  Rectangle getBounds() {
+    return viewState.getBounds();
+  }
+  
+  NoteViewState getViewState() {
+    return viewState;
+  }
+}
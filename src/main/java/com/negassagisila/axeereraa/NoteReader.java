@@ -1,22 +1,41 @@
 package com.negassagisila.axeereraa;
 
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * This class is responsible for deserializing the notes that were saved.
- * It takes a FileInputStream as a dependency and from the file inside that
- * stream takes and deserializes the Note objects.
+ * It takes either the NoteJournal that holds all the notes, or a FileInputStream
+ * as a dependency and from the file inside that stream takes and deserializes the Note objects.
+ * The file is read with the given NoteCodec, or with java serialization when there's none,
+ * which is how the notes of the first versions were saved.
  */
 
 class NoteReader {
     private FileInputStream fileInputStream;
+    private final NoteJournal noteJournal;
+    private final NoteCodec noteCodec;
 
     NoteReader(FileInputStream fileInputStream) {
+        this(fileInputStream, null);
+    }
+
+    NoteReader(FileInputStream fileInputStream, NoteCodec noteCodec) {
         this.fileInputStream = fileInputStream;
+        this.noteCodec = noteCodec;
+        this.noteJournal = null;
+    }
+
+    NoteReader(NoteJournal noteJournal) {
+        this.noteJournal = noteJournal;
+        this.noteCodec = null;
     }
 
     /**
@@ -38,11 +57,21 @@ class NoteReader {
     List<Note> load() {
       List<Note> output = new ArrayList<>();
 
+      if (noteJournal != null) {
+        try {
+          output.addAll(noteJournal.replay());
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+        return output;
+      }
+
       try {
         read(output);
       } catch (ClassNotFoundException | IOException e) {
-        loadBackup();
         e.printStackTrace();
+        output.clear();
+        output.addAll(loadBackup());
       }
       
       return output;
@@ -90,22 +119,55 @@ class NoteReader {
     private void read(List<Note> listOfNotes) throws IOException, ClassNotFoundException {
       ObjectInputStream objectInputStream;
       checkFile();
-      objectInputStream = new ObjectInputStream(fileInputStream);
-      while (fileInputStream.available() != 0) {
-        Note n = (Note) objectInputStream.readObject();
-        listOfNotes.add(n);
+      if (noteCodec != null) {
+        ByteBuffer buffer = readFully();
+        while (buffer.hasRemaining()) {
+          listOfNotes.add(noteCodec.decode(buffer));
+        }
+        return;
+      }
+      objectInputStream = new ObjectInputStream(new BufferedInputStream(fileInputStream));
+      try {
+        while (true) {
+          Note n = (Note) objectInputStream.readObject();
+          listOfNotes.add(n);
+        }
+      } catch (EOFException e) {
+        // every note of the file has been read, available() can't tell that reliably
+      } finally {
+        fileInputStream.close();
+        objectInputStream.close();
       }
-      fileInputStream.close();
-      objectInputStream.close();
     }
     
     Note read() throws IOException, ClassNotFoundException {
       ObjectInputStream objectInputStream;
       checkFile();
-      objectInputStream = new ObjectInputStream(fileInputStream);
+      if (noteCodec != null) {
+        return noteCodec.decode(readFully());
+      }
+      objectInputStream = new ObjectInputStream(new BufferedInputStream(fileInputStream));
       Note n = (Note) objectInputStream.readObject();
       objectInputStream.close();
       fileInputStream.close();
       return n;
     }
+
+    /**
+     * This method reads the whole file of the FileInputStream into a buffer
+     * for the NoteCodec to decode, and closes it.
+     */
+
+    private ByteBuffer readFully() throws IOException {
+      try (FileChannel channel = fileInputStream.getChannel()) {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (channel.size() - channel.position()));
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+          // keep reading until the whole file is in the buffer
+        }
+        buffer.flip();
+        return buffer;
+      } finally {
+        fileInputStream.close();
+      }
+    }
 }
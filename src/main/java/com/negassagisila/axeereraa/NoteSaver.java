@@ -3,17 +3,52 @@ package com.negassagisila.axeereraa;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * This class is responsible for saving the notes. It either appends them to the NoteJournal
+ * that holds all the notes, or writes a single note into the given FileOutputStream with the
+ * given NoteCodec, falling back to java serialization when there's none.
+ */
 
 class NoteSaver {
   private final FileOutputStream fileOutputStream;
+  private final NoteJournal noteJournal;
+  private final NoteCodec noteCodec;
   
   NoteSaver(FileOutputStream fileOutputStream) {
+    this(fileOutputStream, null);
+  }
+  
+  NoteSaver(FileOutputStream fileOutputStream, NoteCodec noteCodec) {
     this.fileOutputStream = fileOutputStream;
+    this.noteCodec = noteCodec;
+    this.noteJournal = null;
+  }
+  
+  NoteSaver(NoteJournal noteJournal) {
+    this.fileOutputStream = null;
+    this.noteCodec = null;
+    this.noteJournal = noteJournal;
+  }
+    
+  void save(Note note) {
+    if (noteJournal != null) {
+      try {
+        noteJournal.append(note);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      return;
     }
     
-    void save(Note note) {
     ObjectOutputStream outputStream;
     try {
+      if (noteCodec != null) {
+        noteCodec.encode(note, fileOutputStream);
+        return;
+      }
       outputStream = new ObjectOutputStream(fileOutputStream);
       outputStream.writeObject(note);
       outputStream.close();
@@ -28,4 +63,55 @@ class NoteSaver {
       }
     }
   }
+  
+  /**
+   * This method saves a note whose text is streamed into the NoteJournal in the segments it's
+   * held in, e.g. a snapshot of a large note, so the save takes the same few kilobytes of memory
+   * however large the note is. Without a NoteJournal, the text is read into a Note and written
+   * into the FileOutputStream like any other note.
+   * @param id the id of the note.
+   * @param noteColor the color of the note.
+   * @param text the text of the note.
+   * @return a boolean if the operation was successful/un-successful.
+   */
+  
+  boolean save(UUID id, NoteColor noteColor, NoteText text) {
+    try {
+      if (noteJournal == null) {
+        save(new Note(id, NoteText.readAll(text), noteColor));
+      } else {
+        noteJournal.append(id, noteColor, text);
+      }
+      return true;
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+  }
+  
+  /**
+   * This method saves all the given notes to the NoteJournal in one write, forcing them
+   * to disk once. Without a NoteJournal there's only the one FileOutputStream, which takes
+   * a single note.
+   * @param notes the Note objects to be saved.
+   * @return a boolean if the operation was successful/un-successful.
+   * @throws IllegalStateException if there's no NoteJournal and more than one note is given.
+   */
+  
+  boolean saveAll(Collection<Note> notes) {
+    if (noteJournal == null) {
+      if (notes.size() != 1) {
+        throw new IllegalStateException("a NoteSaver without a NoteJournal only saves a single note");
+      }
+      save(notes.iterator().next());
+      return true;
+    }
+    try {
+      noteJournal.appendAll(notes);
+      return true;
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+  }
 }
@@ -0,0 +1,99 @@
+package com.negassagisila.axeereraa;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.function.Consumer;
+
+/**
+ * The search box of the Axeereraa application. The NoteSearchIndex is queried on every
+ * keystroke and the best matching notes are listed below the box, choosing one of them
+ * opens its note, or brings its window to the front if it's already open.
+ */
+
+class NoteSearchDialog extends JDialog {
+  static final int MAX_RESULTS = 50;
+  
+  private final NoteSearchIndex searchIndex;
+  private final JTextField queryField = new JTextField();
+  private final DefaultListModel<NoteSearchIndex.SearchResult> results = new DefaultListModel<>();
+  private final JList<NoteSearchIndex.SearchResult> resultList = new JList<>(results);
+  
+  NoteSearchDialog(Frame owner, NoteSearchIndex searchIndex, Consumer<NoteSearchIndex.SearchResult> onChosen) {
+    super(owner, "Search Notes", false);
+    this.searchIndex = searchIndex;
+    
+    queryField.getDocument().addDocumentListener(new DocumentListener() {
+      @Override
+      public void insertUpdate(DocumentEvent e) {
+        search();
+      }
+      
+      @Override
+      public void removeUpdate(DocumentEvent e) {
+        search();
+      }
+      
+      @Override
+      public void changedUpdate(DocumentEvent e) {
+        // attribute changes don't change the query
+      }
+    });
+    queryField.addActionListener(e -> {
+      if (!results.isEmpty()) {
+        choose(resultList.isSelectionEmpty() ? results.get(0) : resultList.getSelectedValue(), onChosen);
+      }
+    });
+    queryField.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), "focusResults");
+    queryField.getActionMap().put("focusResults", new AbstractAction() {
+      @Override
+      public void actionPerformed(java.awt.event.ActionEvent e) {
+        if (!results.isEmpty()) {
+          resultList.setSelectedIndex(0);
+          resultList.requestFocusInWindow();
+        }
+      }
+    });
+    
+    resultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    resultList.addMouseListener(new MouseAdapter() {
+      @Override
+      public void mouseClicked(MouseEvent e) {
+        if (e.getClickCount() == 2 && !resultList.isSelectionEmpty()) {
+          choose(resultList.getSelectedValue(), onChosen);
+        }
+      }
+    });
+    resultList.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "chooseResult");
+    resultList.getActionMap().put("chooseResult", new AbstractAction() {
+      @Override
+      public void actionPerformed(java.awt.event.ActionEvent e) {
+        if (!resultList.isSelectionEmpty()) {
+          choose(resultList.getSelectedValue(), onChosen);
+        }
+      }
+    });
+    
+    getContentPane().add(queryField, BorderLayout.NORTH);
+    getContentPane().add(new JScrollPane(resultList), BorderLayout.CENTER);
+    setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+    setSize(360, 300);
+    setLocationRelativeTo(owner);
+  }
+  
+  private void search() {
+    results.clear();
+    for (NoteSearchIndex.SearchResult result : searchIndex.search(queryField.getText(), MAX_RESULTS)) {
+      results.addElement(result);
+    }
+  }
+  
+  private void choose(NoteSearchIndex.SearchResult result, Consumer<NoteSearchIndex.SearchResult> onChosen) {
+    dispose();
+    onChosen.accept(result);
+  }
+}
@@ -0,0 +1,405 @@
+package com.negassagisila.axeereraa;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * This class is an in-memory inverted index over the written text of the notes. The text is
+ * split into lower-cased words, and every word points to the notes it's found in together with
+ * how often. The words are kept sorted, so the last word of a query, the one that's still being
+ * typed, also matches the words that start with it. A note is updated on its own when it's
+ * saved, and the index is saved next to the note journal, so it's only checked against the
+ * notes at startup instead of being built again.
+ *
+ * Inside the index every note is known by a small number instead of its id, so a query adds
+ * up the scores in plain arrays instead of maps.
+ */
+
+class NoteSearchIndex {
+  static final String INDEX_FILE_NAME = "search.index";
+  
+  /**
+   * a word being typed shorter than this only matches itself, not every word it starts.
+   */
+  
+  static final int MIN_PREFIX_LENGTH = 2;
+  
+  /**
+   * the most words a prefix matches, the shortest ones first.
+   */
+  
+  static final int MAX_PREFIX_WORDS = 64;
+  
+  private static final int MAGIC = 0x41585349;
+  private static final int MAX_WORD_LENGTH = 64;
+  
+  /**
+   * word -> (number of the note -> how often the word is found in it).
+   */
+  
+  private final TreeMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+  private final Map<UUID, IndexedNote> indexedNotes = new HashMap<>();
+  private final List<IndexedNote> notesByNumber = new ArrayList<>();
+  private final Deque<Integer> freeNumbers = new ArrayDeque<>();
+  
+  /**
+   * This method adds the note to the index, replacing what was indexed for it before.
+   * @param note the Note object to be indexed.
+   */
+  
+  synchronized void update(Note note) {
+    remove(note.getId());
+    String writtenText = note.getWrittenText();
+    add(note.getId(), writtenText.hashCode(), NoteMetadata.titleOf(writtenText), countWords(writtenText));
+  }
+  
+  /**
+   * This method indexes the note unless the same text is already indexed for it, it's used
+   * to check the saved index against the notes at startup.
+   * @param note the Note object to be checked.
+   */
+  
+  synchronized void ensureIndexed(Note note) {
+    IndexedNote indexedNote = indexedNotes.get(note.getId());
+    if (indexedNote == null || indexedNote.textHash != note.getWrittenText().hashCode()) {
+      update(note);
+    }
+  }
+  
+  /**
+   * This method removes the note from the index.
+   * @param id the id of the note.
+   */
+  
+  synchronized void remove(UUID id) {
+    IndexedNote indexedNote = indexedNotes.remove(id);
+    if (indexedNote == null) {
+      return;
+    }
+    for (String word : indexedNote.wordCounts.keySet()) {
+      Map<Integer, Integer> notes = postings.get(word);
+      notes.remove(indexedNote.number);
+      if (notes.isEmpty()) {
+        postings.remove(word);
+      }
+    }
+    notesByNumber.set(indexedNote.number, null);
+    freeNumbers.push(indexedNote.number);
+  }
+  
+  /**
+   * This method removes every note that isn't one of the given ones, i.e. the notes that were
+   * deleted after the index was saved.
+   * @param ids the ids of the saved notes.
+   */
+  
+  synchronized void retainOnly(Set<UUID> ids) {
+    for (UUID id : new ArrayList<>(indexedNotes.keySet())) {
+      if (!ids.contains(id)) {
+        remove(id);
+      }
+    }
+  }
+  
+  synchronized boolean contains(UUID id) {
+    return indexedNotes.containsKey(id);
+  }
+  
+  synchronized int size() {
+    return indexedNotes.size();
+  }
+  
+  /**
+   * This method finds the notes that contain every word of the query. The last word also
+   * matches the words it's the beginning of, unless the query ends right after it. The notes
+   * are ranked by how often they contain the words, weighted by how rare the words are, and
+   * a whole word counts more than a word it's only the beginning of.
+   * @param query the words to be found.
+   * @param limit the most results to be returned.
+   * @return the best matching notes, best first.
+   */
+  
+  synchronized List<SearchResult> search(String query, int limit) {
+    List<String> queryWords = new ArrayList<>(new LinkedHashSet<>(splitIntoWords(query)));
+    if (queryWords.isEmpty() || limit <= 0) {
+      return Collections.emptyList();
+    }
+    String lastWord = queryWords.get(queryWords.size() - 1);
+    boolean lastWordIsPrefix = lastWord.length() >= MIN_PREFIX_LENGTH
+            && Character.isLetterOrDigit(query.codePointBefore(query.length()));
+    
+    List<Map<String, Map<Integer, Integer>>> matchingWords = new ArrayList<>();
+    for (String queryWord : queryWords) {
+      Map<String, Map<Integer, Integer>> matches = new HashMap<>();
+      if (lastWordIsPrefix && queryWord.equals(lastWord)) {
+        matches = wordsStartingWith(queryWord);
+      } else if (postings.containsKey(queryWord)) {
+        matches.put(queryWord, postings.get(queryWord));
+      }
+      if (matches.isEmpty()) {
+        return Collections.emptyList();
+      }
+      matchingWords.add(matches);
+    }
+    matchingWords.sort(Comparator.comparingLong(NoteSearchIndex::postingCount));
+    
+    double[] scores = new double[notesByNumber.size()];
+    int[] matchedWords = new int[notesByNumber.size()];
+    int[] candidates = new int[0];
+    int candidateCount = 0;
+    
+    for (int i = 0; i < matchingWords.size(); i++) {
+      for (Map.Entry<String, Map<Integer, Integer>> posting : matchingWords.get(i).entrySet()) {
+        double weight = Math.log(1 + (double) indexedNotes.size() / posting.getValue().size())
+                * (queryWords.contains(posting.getKey()) ? 1 : 0.5);
+        for (Map.Entry<Integer, Integer> note : posting.getValue().entrySet()) {
+          int number = note.getKey();
+          if (matchedWords[number] == i) {
+            matchedWords[number] = i + 1;
+            if (i == 0) {
+              if (candidateCount == candidates.length) {
+                candidates = Arrays.copyOf(candidates, Math.max(16, 2 * candidateCount));
+              }
+              candidates[candidateCount++] = number;
+            }
+          } else if (matchedWords[number] != i + 1) {
+            continue;
+          }
+          scores[number] += weight * (1 + Math.log(note.getValue()));
+        }
+      }
+    }
+    
+    PriorityQueue<SearchResult> best = new PriorityQueue<>(limit + 1, SearchResult.BEST_LAST);
+    for (int i = 0; i < candidateCount; i++) {
+      int number = candidates[i];
+      if (matchedWords[number] == matchingWords.size()) {
+        IndexedNote indexedNote = notesByNumber.get(number);
+        best.add(new SearchResult(indexedNote.id, indexedNote.title, scores[number]));
+        if (best.size() > limit) {
+          best.poll();
+        }
+      }
+    }
+    List<SearchResult> results = new ArrayList<>(best);
+    results.sort(SearchResult.BEST_LAST.reversed());
+    return results;
+  }
+  
+  /**
+   * @return the postings of the words that start with the prefix, at most MAX_PREFIX_WORDS
+   * of them, the shortest ones first.
+   */
+  
+  private Map<String, Map<Integer, Integer>> wordsStartingWith(String prefix) {
+    SortedMap<String, Map<Integer, Integer>> matches =
+            postings.subMap(prefix, prefix + Character.MAX_VALUE);
+    if (matches.size() <= MAX_PREFIX_WORDS) {
+      return matches;
+    }
+    List<String> words = new ArrayList<>(matches.keySet());
+    words.sort(Comparator.comparingInt(String::length));
+    Map<String, Map<Integer, Integer>> shortestMatches = new HashMap<>();
+    for (String word : words.subList(0, MAX_PREFIX_WORDS)) {
+      shortestMatches.put(word, matches.get(word));
+    }
+    return shortestMatches;
+  }
+  
+  private static long postingCount(Map<String, Map<Integer, Integer>> matches) {
+    long count = 0;
+    for (Map<Integer, Integer> notes : matches.values()) {
+      count += notes.size();
+    }
+    return count;
+  }
+  
+  /**
+   * This method writes the index into the given file, through a temporary file that's
+   * renamed over it, so a crash never leaves a half written index behind.
+   * Only the words of every note are written, the postings are built again when it's loaded.
+   * @param indexFile the file the index is saved in.
+   * @throws IOException if the file can't be written.
+   */
+  
+  synchronized void save(File indexFile) throws IOException {
+    File temporaryFile = new File(indexFile.getPath() + ".tmp");
+    try (DataOutputStream outputStream = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+      outputStream.writeInt(MAGIC);
+      outputStream.writeInt(indexedNotes.size());
+      for (Map.Entry<UUID, IndexedNote> entry : indexedNotes.entrySet()) {
+        IndexedNote indexedNote = entry.getValue();
+        outputStream.writeLong(entry.getKey().getMostSignificantBits());
+        outputStream.writeLong(entry.getKey().getLeastSignificantBits());
+        outputStream.writeInt(indexedNote.textHash);
+        outputStream.writeUTF(indexedNote.title);
+        outputStream.writeInt(indexedNote.wordCounts.size());
+        for (Map.Entry<String, Integer> wordCount : indexedNote.wordCounts.entrySet()) {
+          outputStream.writeUTF(wordCount.getKey());
+          outputStream.writeInt(wordCount.getValue());
+        }
+      }
+    }
+    Files.move(temporaryFile.toPath(), indexFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+  
+  /**
+   * This method adds the notes saved in the given file to the index. A missing file is
+   * an empty index.
+   * @param indexFile the file the index was saved in.
+   * @throws IOException if the file isn't a saved index.
+   */
+  
+  synchronized void load(File indexFile) throws IOException {
+    if (!indexFile.isFile()) {
+      return;
+    }
+    try (DataInputStream inputStream = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(indexFile)))) {
+      if (inputStream.readInt() != MAGIC) {
+        throw new IOException(indexFile + " is not a search index");
+      }
+      int noteCount = inputStream.readInt();
+      for (int i = 0; i < noteCount; i++) {
+        UUID id = new UUID(inputStream.readLong(), inputStream.readLong());
+        int textHash = inputStream.readInt();
+        String title = inputStream.readUTF();
+        int wordCount = inputStream.readInt();
+        if (wordCount < 0) {
+          throw new IOException(indexFile + " is corrupted");
+        }
+        Map<String, Integer> wordCounts = new HashMap<>();
+        for (int j = 0; j < wordCount; j++) {
+          wordCounts.put(inputStream.readUTF(), inputStream.readInt());
+        }
+        remove(id);
+        add(id, textHash, title, wordCounts);
+      }
+    }
+  }
+  
+  synchronized void clear() {
+    postings.clear();
+    indexedNotes.clear();
+    notesByNumber.clear();
+    freeNumbers.clear();
+  }
+  
+  /**
+   * This method splits the text into lower-cased words, a word being a run of letters
+   * and digits.
+   * @param text the text to be split.
+   * @return every word of the text and how often it's found in it.
+   */
+  
+  static Map<String, Integer> countWords(String text) {
+    Map<String, Integer> wordCounts = new HashMap<>();
+    for (String word : splitIntoWords(text)) {
+      wordCounts.merge(word, 1, Integer::sum);
+    }
+    return wordCounts;
+  }
+  
+  /**
+   * @return the lower-cased words of the text, in the order they're written in.
+   */
+  
+  private static List<String> splitIntoWords(String text) {
+    List<String> words = new ArrayList<>();
+    StringBuilder word = new StringBuilder();
+    for (int i = 0; i <= text.length(); ) {
+      int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+      if (Character.isLetterOrDigit(codePoint)) {
+        if (word.length() < MAX_WORD_LENGTH) {
+          word.appendCodePoint(Character.toLowerCase(codePoint));
+        }
+      } else if (word.length() > 0) {
+        words.add(word.toString());
+        word.setLength(0);
+      }
+      i += Character.charCount(codePoint);
+    }
+    return words;
+  }
+  
+  private void add(UUID id, int textHash, String title, Map<String, Integer> wordCounts) {
+    Integer number = freeNumbers.isEmpty() ? notesByNumber.size() : freeNumbers.pop();
+    IndexedNote indexedNote = new IndexedNote(id, number, textHash, title, wordCounts);
+    if (number == notesByNumber.size()) {
+      notesByNumber.add(indexedNote);
+    } else {
+      notesByNumber.set(number, indexedNote);
+    }
+    indexedNotes.put(id, indexedNote);
+    for (Map.Entry<String, Integer> wordCount : wordCounts.entrySet()) {
+      postings.computeIfAbsent(wordCount.getKey(), word -> new HashMap<>())
+              .put(number, wordCount.getValue());
+    }
+  }
+  
+  /**
+   * What's indexed for a single note.
+   */
+  
+  private static final class IndexedNote {
+    private final UUID id;
+    
+    /**
+     * the number of the note inside the index, boxed once so the postings share it.
+     */
+    
+    private final Integer number;
+    private final int textHash;
+    private final String title;
+    private final Map<String, Integer> wordCounts;
+    
+    IndexedNote(UUID id, Integer number, int textHash, String title, Map<String, Integer> wordCounts) {
+      this.id = id;
+      this.number = number;
+      this.textHash = textHash;
+      this.title = title;
+      this.wordCounts = wordCounts;
+    }
+  }
+  
+  /**
+   * A note that matches a query.
+   */
+  
+  static final class SearchResult {
+    private static final Comparator<SearchResult> BEST_LAST =
+            Comparator.comparingDouble(SearchResult::getScore)
+                    .thenComparing(SearchResult::getTitle, Comparator.reverseOrder());
+    
+    private final UUID id;
+    private final String title;
+    private final double score;
+    
+    SearchResult(UUID id, String title, double score) {
+      this.id = id;
+      this.title = title;
+      this.score = score;
+    }
+    
+    UUID getId() {
+      return id;
+    }
+    
+    String getTitle() {
+      return title;
+    }
+    
+    double getScore() {
+      return score;
+    }
+    
+    @Override
+    public String toString() {
+      return title.isEmpty() ? "(empty note)" : title;
+    }
+  }
+}
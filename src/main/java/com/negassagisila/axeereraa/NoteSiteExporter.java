@@ -0,0 +1,261 @@
+package com.negassagisila.axeereraa;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.List;
+
+/**
+ * This class is responsible for publishing the notes as a static HTML site: a page per note,
+ * named after its id, and an index.html that links to all of them. The notes are read from
+ * the journal a batch at a time and every batch is rendered in parallel with the shared
+ * flexmark Parser & HtmlRenderer, straight into the page files.
+ *
+ * The export is incremental. The digest of what every page was rendered from is saved in a
+ * manifest inside the site folder, so the next export only renders the notes that changed
+ * since, deletes the pages of the notes that were deleted, and leaves every other file alone.
+ */
+
+class NoteSiteExporter {
+  static final String MANIFEST_FILE_NAME = "site.manifest";
+  static final String INDEX_FILE_NAME = "index.html";
+  static final String STYLE_FILE_NAME = "style.css";
+  static final int BATCH_SIZE = 256;
+
+  private static final int MAGIC = 0x41585345;
+
+  /**
+   * changes whenever the layout of the pages does, so that every page is rendered again.
+   */
+
+  private static final String PAGE_VERSION = "1";
+
+  private final File siteFolder;
+  private final File manifestFile;
+
+  NoteSiteExporter(File siteFolder) {
+    this.siteFolder = siteFolder;
+    this.manifestFile = new File(siteFolder, MANIFEST_FILE_NAME);
+  }
+
+  /**
+   * This method brings the site up to date with the notes of the journal.
+   * @param noteJournal the journal the notes are read from.
+   * @return how many pages were rendered, left alone and deleted.
+   * @throws IOException if the notes can't be read or the site can't be written.
+   */
+
+  Result export(NoteJournal noteJournal) throws IOException {
+    if (!siteFolder.isDirectory() && !siteFolder.mkdirs()) {
+      throw new IOException(siteFolder + " can't be created");
+    }
+    Map<String, String> previousDigests = readManifest();
+    Map<String, String> digests = new LinkedHashMap<>();
+    Map<String, String> titles = new LinkedHashMap<>();
+    List<NoteMetadata> noteMetadata = noteJournal.loadMetadata();
+    String salt = PAGE_VERSION + DisplayMarkdown.getExtensions();
+
+    int rendered = 0;
+    for (int start = 0; start < noteMetadata.size(); start += BATCH_SIZE) {
+      List<Note> changedNotes = new ArrayList<>();
+      for (NoteMetadata metadata : noteMetadata.subList(start, Math.min(start + BATCH_SIZE, noteMetadata.size()))) {
+        Note note = noteJournal.read(metadata.getId().toString());
+        if (note == null) {
+          continue;
+        }
+        String key = NoteJournal.keyOf(note);
+        String digest = RenderedHtmlCache.keyOf(salt + note.getColor(), note.getWrittenText());
+        digests.put(key, digest);
+        titles.put(key, titleOf(note));
+        if (!digest.equals(previousDigests.get(key)) || !pageOf(key).isFile()) {
+          changedNotes.add(note);
+        }
+      }
+      changedNotes.parallelStream().forEach(this::writePage);
+      rendered += changedNotes.size();
+    }
+
+    int deleted = 0;
+    for (String key : previousDigests.keySet()) {
+      if (!key.isEmpty() && !digests.containsKey(key)) {
+        Files.deleteIfExists(pageOf(key).toPath());
+        deleted++;
+      }
+    }
+
+    String indexDigest = RenderedHtmlCache.keyOf(salt, titles.toString());
+    if (!indexDigest.equals(previousDigests.get("")) || !new File(siteFolder, INDEX_FILE_NAME).isFile()) {
+      writeIndex(digests.keySet(), titles);
+    }
+    digests.put("", indexDigest);
+    writeStyle();
+    writeManifest(digests);
+
+    return new Result(rendered, noteMetadata.size() - rendered, deleted);
+  }
+
+  private File pageOf(String key) {
+    return new File(siteFolder, key + ".html");
+  }
+
+  /**
+   * @return the first line of the note, without the marks of a markdown heading.
+   */
+
+  private static String titleOf(Note note) {
+    String title = NoteMetadata.titleOf(note.getWrittenText()).replaceFirst("^#+\\s*", "");
+    return title.isEmpty() ? "Untitled" : title;
+  }
+
+  /**
+   * This method renders the page of a single note into its file.
+   */
+
+  private void writePage(Note note) {
+    String key = NoteJournal.keyOf(note);
+    try (Writer writer = Files.newBufferedWriter(pageOf(key).toPath(), StandardCharsets.UTF_8)) {
+      writer.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>");
+      writer.write(escape(titleOf(note)));
+      writer.write("</title>\n<link rel=\"stylesheet\" href=\"" + STYLE_FILE_NAME + "\">\n</head>\n");
+      writer.write("<body class=\"" + note.getColor() + "\">\n");
+      writer.write("<nav><a href=\"" + INDEX_FILE_NAME + "\">All notes</a></nav>\n<article>\n");
+      DisplayMarkdown.renderTo(note.getWrittenText(), writer);
+      writer.write("</article>\n</body>\n</html>\n");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void writeIndex(Collection<String> keys, Map<String, String> titles) throws IOException {
+    File indexFile = new File(siteFolder, INDEX_FILE_NAME);
+    File temporaryFile = new File(indexFile.getPath() + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(temporaryFile.toPath(), StandardCharsets.UTF_8)) {
+      writer.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>Notes</title>\n");
+      writer.write("<link rel=\"stylesheet\" href=\"" + STYLE_FILE_NAME + "\">\n</head>\n<body>\n");
+      writer.write("<h1>Notes</h1>\n<ul>\n");
+      for (String key : keys) {
+        writer.write("<li><a href=\"" + key + ".html\">" + escape(titles.get(key)) + "</a></li>\n");
+      }
+      writer.write("</ul>\n</body>\n</html>\n");
+    }
+    Files.move(temporaryFile.toPath(), indexFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void writeStyle() throws IOException {
+    File styleFile = new File(siteFolder, STYLE_FILE_NAME);
+    if (styleFile.isFile()) {
+      return;
+    }
+    String style = "body { font-family: sans-serif; max-width: 48em; margin: 2em auto; padding: 0 1em; }\n"
+            + "body.lightYellow article { background: #fffdc8; }\n"
+            + "body.lightGreen article { background: #d9f5d0; }\n"
+            + "body.lightRed article { background: #fcdcdc; }\n"
+            + "article { padding: 1em; border-radius: 4px; }\n";
+    Files.write(styleFile.toPath(), style.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static String escape(String text) {
+    StringBuilder escaped = new StringBuilder(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '<':
+          escaped.append("&lt;");
+          break;
+        case '>':
+          escaped.append("&gt;");
+          break;
+        case '&':
+          escaped.append("&amp;");
+          break;
+        case '"':
+          escaped.append("&quot;");
+          break;
+        default:
+          escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+
+  /**
+   * This method reads the digests the pages were rendered from the last time, the digest of
+   * the index is saved under the empty key. A missing or unreadable manifest renders every page.
+   */
+
+  private Map<String, String> readManifest() {
+    Map<String, String> digests = new HashMap<>();
+    if (!manifestFile.isFile()) {
+      return digests;
+    }
+    try (DataInputStream inputStream = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(manifestFile)))) {
+      if (inputStream.readInt() != MAGIC) {
+        return digests;
+      }
+      int count = inputStream.readInt();
+      for (int i = 0; i < count; i++) {
+        digests.put(inputStream.readUTF(), inputStream.readUTF());
+      }
+    } catch (IOException e) {
+      digests.clear();
+    }
+    return digests;
+  }
+
+  /**
+   * This method writes the manifest through a temporary file that's renamed over it, once
+   * every page has been written.
+   */
+
+  private void writeManifest(Map<String, String> digests) throws IOException {
+    File temporaryFile = new File(manifestFile.getPath() + ".tmp");
+    try (DataOutputStream outputStream = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+      outputStream.writeInt(MAGIC);
+      outputStream.writeInt(digests.size());
+      for (Map.Entry<String, String> digest : digests.entrySet()) {
+        outputStream.writeUTF(digest.getKey());
+        outputStream.writeUTF(digest.getValue());
+      }
+    }
+    Files.move(temporaryFile.toPath(), manifestFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * What an export did.
+   */
+
+  static final class Result {
+    private final int rendered;
+    private final int unchanged;
+    private final int deleted;
+
+    Result(int rendered, int unchanged, int deleted) {
+      this.rendered = rendered;
+      this.unchanged = unchanged;
+      this.deleted = deleted;
+    }
+
+    int getRendered() {
+      return rendered;
+    }
+
+    int getUnchanged() {
+      return unchanged;
+    }
+
+    int getDeleted() {
+      return deleted;
+    }
+
+    @Override
+    public String toString() {
+      return rendered + " pages rendered, " + unchanged + " unchanged, " + deleted + " deleted";
+    }
+  }
+}
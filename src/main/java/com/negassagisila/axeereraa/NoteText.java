@@ -0,0 +1,97 @@
+package com.negassagisila.axeereraa;
+
+import javax.swing.text.Segment;
+import java.io.IOException;
+
+/**
+ * This interface is implemented by the texts a note can be saved from without building the
+ * whole text in memory first, e.g. a snapshot of a large note. The journal reads the text
+ * in segments, as many times as it needs to, while the text can't change.
+ */
+
+interface NoteText {
+
+  /**
+   * @return the number of characters of the text.
+   */
+
+  int length();
+
+  /**
+   * This method sets the segment to the text from the given offset on. It may hand over less
+   * than was asked for, but at least one character.
+   * @param offset where the text starts.
+   * @param length how many characters are asked for.
+   * @param segment set to the characters that are handed over, which mustn't be changed.
+   * @throws IOException if the text can't be read.
+   */
+
+  void getText(int offset, int length, Segment segment) throws IOException;
+
+  /**
+   * This method runs the given action while the text can't change, so the text is the same
+   * every time it's read by it.
+   * @param action what reads the text.
+   * @throws IOException if the action fails.
+   */
+
+  default void whileUnchanged(Action action) throws IOException {
+    action.run();
+  }
+
+  /**
+   * What reads the text while it can't change.
+   */
+
+  interface Action {
+    void run() throws IOException;
+  }
+
+  /**
+   * This method reads the whole text into one String, for where the text is needed as a
+   * whole, e.g. by the codecs that can't stream it.
+   * @param text the text.
+   * @return the text as a String.
+   * @throws IOException if the text can't be read.
+   */
+
+  static String readAll(NoteText text) throws IOException {
+    StringBuilder writtenText = new StringBuilder();
+    Segment segment = new Segment();
+    text.whileUnchanged(() -> {
+      writtenText.setLength(0);
+      while (writtenText.length() < text.length()) {
+        text.getText(writtenText.length(), text.length() - writtenText.length(), segment);
+        writtenText.append(segment.array, segment.offset, segment.count);
+      }
+    });
+    return writtenText.toString();
+  }
+
+  /**
+   * This method is used to read a String in segments, which are copied into one small buffer
+   * that's reused for all of them.
+   * @param text the text.
+   * @return the NoteText of the text.
+   */
+
+  static NoteText of(String text) {
+    return new NoteText() {
+      private final char[] chunk = new char[Math.min(text.length(), 8192)];
+
+      @Override
+      public int length() {
+        return text.length();
+      }
+
+      @Override
+      public void getText(int offset, int length, Segment segment) {
+        int count = Math.min(length, chunk.length);
+        text.getChars(offset, offset + count, chunk, 0);
+        segment.array = chunk;
+        segment.offset = 0;
+        segment.count = count;
+      }
+    };
+  }
+}
@@ -0,0 +1,124 @@
+package com.negassagisila.axeereraa;
+
+import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class holds how the window of a note was left: where it was and how large, whether it
+ * stayed on top, whether the markdown was shown, and where the caret and the scroll bar were.
+ * It's saved with the NoteMetadata of the note, so the window comes back just as it was.
+ */
+
+final class NoteViewState {
+
+  /**
+   * How the text of a note is shown.
+   */
+
+  enum ViewMode {
+    RAW_TEXT,
+    MARKDOWN,
+    LIVE_PREVIEW
+  }
+
+  static final NoteViewState DEFAULT = new NoteViewState(null, false, ViewMode.RAW_TEXT, 0, 0);
+
+  private static final int HAS_BOUNDS = 1;
+  private static final int ALWAYS_ON_TOP = 1 << 1;
+  private static final int VIEW_MODE_SHIFT = 2;
+
+  private final Rectangle bounds;
+  private final boolean alwaysOnTop;
+  private final ViewMode viewMode;
+  private final int caretPosition;
+  private final int scrollPosition;
+
+  NoteViewState(Rectangle bounds, boolean alwaysOnTop, ViewMode viewMode, int caretPosition, int scrollPosition) {
+    this.bounds = bounds == null ? null : new Rectangle(bounds);
+    this.alwaysOnTop = alwaysOnTop;
+    this.viewMode = viewMode;
+    this.caretPosition = caretPosition;
+    this.scrollPosition = scrollPosition;
+  }
+
+  /**
+   * @return a copy of this view state with the window at the given bounds.
+   */
+
+  NoteViewState withBounds(Rectangle bounds) {
+    return new NoteViewState(bounds, alwaysOnTop, viewMode, caretPosition, scrollPosition);
+  }
+
+  /**
+   * @return where the window was, or null if it isn't known.
+   */
+
+  Rectangle getBounds() {
+    return bounds == null ? null : new Rectangle(bounds);
+  }
+
+  boolean isAlwaysOnTop() {
+    return alwaysOnTop;
+  }
+
+  ViewMode getViewMode() {
+    return viewMode;
+  }
+
+  int getCaretPosition() {
+    return caretPosition;
+  }
+
+  /**
+   * @return the value of the vertical scroll bar.
+   */
+
+  int getScrollPosition() {
+    return scrollPosition;
+  }
+
+  /**
+   * This method writes the view state as a single flags byte, followed by the bounds if they
+   * are known, the caret position and the scroll position.
+   * @param output where the view state is written to.
+   * @throws IOException if it can't be written.
+   */
+
+  void writeTo(DataOutput output) throws IOException {
+    int flags = viewMode.ordinal() << VIEW_MODE_SHIFT;
+    if (bounds != null) {
+      flags |= HAS_BOUNDS;
+    }
+    if (alwaysOnTop) {
+      flags |= ALWAYS_ON_TOP;
+    }
+    output.writeByte(flags);
+    if (bounds != null) {
+      output.writeInt(bounds.x);
+      output.writeInt(bounds.y);
+      output.writeInt(bounds.width);
+      output.writeInt(bounds.height);
+    }
+    output.writeInt(caretPosition);
+    output.writeInt(scrollPosition);
+  }
+
+  /**
+   * This method reads a view state written by writeTo().
+   * @param input where the view state is read from.
+   * @return the view state.
+   * @throws IOException if it can't be read.
+   */
+
+  static NoteViewState readFrom(DataInput input) throws IOException {
+    int flags = input.readUnsignedByte();
+    Rectangle bounds = (flags & HAS_BOUNDS) != 0
+            ? new Rectangle(input.readInt(), input.readInt(), input.readInt(), input.readInt())
+            : null;
+    ViewMode[] viewModes = ViewMode.values();
+    return new NoteViewState(bounds, (flags & ALWAYS_ON_TOP) != 0,
+            viewModes[(flags >>> VIEW_MODE_SHIFT) % viewModes.length], input.readInt(), input.readInt());
+  }
+}
@@ -0,0 +1,145 @@
+package com.negassagisila.axeereraa;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * This class is responsible for noticing when other processes, e.g. another instance, a sync
+ * tool or the command line, change the notes. It watches the folder of the notes for changes
+ * to the journal file, waits until a burst of changes has settled, and then has the journal
+ * pick up what was written, so only the notes that were changed are read again.
+ *
+ * The changes this process makes itself are noticed as well, but the journal already knows
+ * about them, so they cost no more than comparing the length of the journal.
+ */
+
+class NoteWatcher implements Closeable {
+  static final long DEFAULT_DEBOUNCE_MILLIS = Long.getLong("axeereraa.watch.millis", 250);
+
+  /**
+   * the longest a burst of changes can hold back the refresh, so a process that keeps writing
+   * doesn't keep its changes from ever being picked up.
+   */
+
+  private static final int MAX_DEBOUNCE_ROUNDS = 8;
+
+  private final File notesDirectory;
+  private final NoteJournal noteJournal;
+  private final long debounceMillis;
+  private final Consumer<List<NoteJournal.ExternalChange>> onExternalChanges;
+  private WatchService watchService;
+
+  /**
+   * @param notesDirectory the folder the journal is in.
+   * @param noteJournal the journal that picks up the changes.
+   * @param debounceMillis how long the folder has to be quiet before the changes are picked up.
+   * @param onExternalChanges called on the watcher thread with the notes that were changed.
+   */
+
+  NoteWatcher(File notesDirectory, NoteJournal noteJournal, long debounceMillis,
+              Consumer<List<NoteJournal.ExternalChange>> onExternalChanges) {
+    this.notesDirectory = notesDirectory;
+    this.noteJournal = noteJournal;
+    this.debounceMillis = debounceMillis;
+    this.onExternalChanges = onExternalChanges;
+  }
+
+  /**
+   * This method starts watching the folder of the notes on a background thread.
+   * @throws IOException if the folder can't be watched.
+   */
+
+  void start() throws IOException {
+    watchService = FileSystems.getDefault().newWatchService();
+    notesDirectory.toPath().register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    Thread watcher = new Thread(this::watch, "Axeereraa-note-watcher");
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  /**
+   * This method stops watching the folder. It doesn't interrupt the watcher thread, since that
+   * would close the journal file it might be reading.
+   */
+
+  @Override
+  public void close() throws IOException {
+    if (watchService != null) {
+      watchService.close();
+    }
+  }
+
+  /**
+   * This method has the journal pick up what other processes wrote to it, and hands over the
+   * notes they changed, if there are any.
+   * @return the notes that were changed.
+   * @throws IOException if the journal can't be read.
+   */
+
+  List<NoteJournal.ExternalChange> refresh() throws IOException {
+    List<NoteJournal.ExternalChange> changes = noteJournal.refresh();
+    if (!changes.isEmpty()) {
+      onExternalChanges.accept(changes);
+    }
+    return changes;
+  }
+
+  /**
+   * This method waits for the journal to change, then keeps collecting the changes until none
+   * came for the debounce time, and refreshes once for all of them.
+   */
+
+  private void watch() {
+    try {
+      while (true) {
+        boolean journalChanged = isJournalChanged(watchService.take());
+        WatchKey next;
+        for (int round = 0; round < MAX_DEBOUNCE_ROUNDS
+                && (next = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null; round++) {
+          journalChanged |= isJournalChanged(next);
+        }
+        if (journalChanged) {
+          try {
+            refresh();
+          } catch (IOException e) {
+            e.printStackTrace();
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      // the watcher was closed
+    }
+  }
+
+  /**
+   * @return true if any of the events of the key is about the journal file, or some events
+   * were lost.
+   */
+
+  private static boolean isJournalChanged(WatchKey key) {
+    boolean journalChanged = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW
+              || (event.context() instanceof Path
+              && ((Path) event.context()).getFileName().toString().equals(NoteJournal.JOURNAL_FILE_NAME))) {
+        journalChanged = true;
+      }
+    }
+    key.reset();
+    return journalChanged;
+  }
+}
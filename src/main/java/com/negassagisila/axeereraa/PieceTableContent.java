@@ -0,0 +1,568 @@
+package com.negassagisila.axeereraa;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.UndoableEdit;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is the document content of the large notes, e.g. pasted logs of several megabytes.
+ * It's a piece table: the text that was ever inserted is only appended to one buffer, and the
+ * text of the note is the list of pieces of that buffer it's made of. An edit only splits the
+ * piece it falls into, and typing at the end of the last inserted piece just makes that piece
+ * longer, so neither copies the text around it the way the gap of a GapContent has to be moved.
+ *
+ * Since the buffer is never written over, a snapshot of the text only has to copy the list of
+ * pieces, and it can be read on another thread, e.g. by the autosave, while the note is edited.
+ *
+ * The positions, e.g. the two of every line, are kept sorted in blocks, and every block has the
+ * shift the edits before it added up to. An edit only moves the positions of the block it falls
+ * into, and adds its shift to the blocks after it the way GapContent moves its gap: the shift is
+ * only pending for the blocks after the last edit, so edits that are close together don't go
+ * through the blocks at all.
+ */
+
+class PieceTableContent implements AbstractDocument.Content {
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int MARK_BLOCK_SIZE = 512;
+
+  private char[] buffer = new char[INITIAL_CAPACITY];
+  private int bufferLength;
+  private final List<Piece> pieces = new ArrayList<>();
+  private int length;
+
+  /**
+   * the piece the last lookup ended on and where it starts, edits tend to be close together.
+   */
+
+  private int cachedPieceIndex;
+  private int cachedPieceStart;
+
+  private final List<MarkBlock> markBlocks = new ArrayList<>();
+
+  /**
+   * the shift that's still to be added to the blocks from the gap block on.
+   */
+
+  private int pendingShift;
+  private int gapBlock;
+  private int markCount;
+  private int unusedMarks;
+  private final ReferenceQueue<StickyPosition> unusedPositions = new ReferenceQueue<>();
+
+  /**
+   * Creates an empty content, which holds only the newline every document ends with.
+   */
+
+  PieceTableContent() {
+    buffer[0] = '\n';
+    bufferLength = 1;
+    pieces.add(new Piece(0, 1));
+    length = 1;
+    markBlocks.add(new MarkBlock());
+  }
+
+  @Override
+  public synchronized int length() {
+    return length;
+  }
+
+  @Override
+  public synchronized UndoableEdit insertString(int where, String str) throws BadLocationException {
+    if (where < 0 || where >= length) {
+      throw new BadLocationException("Invalid insert", where);
+    }
+    int insertedLength = str.length();
+    if (insertedLength == 0) {
+      return null;
+    }
+    int start = append(str);
+
+    int pieceIndex = findPiece(where);
+    int offsetInPiece = where - cachedPieceStart;
+    Piece piece = pieces.get(pieceIndex);
+    Piece previous = pieceIndex > 0 ? pieces.get(pieceIndex - 1) : null;
+    if (offsetInPiece == 0 && previous != null && previous.start + previous.length == start) {
+      pieces.set(pieceIndex - 1, new Piece(previous.start, previous.length + insertedLength));
+      cachedPieceIndex = pieceIndex - 1;
+      cachedPieceStart -= previous.length;
+    } else if (offsetInPiece == 0) {
+      pieces.add(pieceIndex, new Piece(start, insertedLength));
+    } else {
+      pieces.set(pieceIndex, new Piece(piece.start, offsetInPiece));
+      pieces.add(pieceIndex + 1, new Piece(start, insertedLength));
+      pieces.add(pieceIndex + 2, new Piece(piece.start + offsetInPiece, piece.length - offsetInPiece));
+    }
+    length += insertedLength;
+    marksInserted(where, insertedLength);
+    return null;
+  }
+
+  @Override
+  public synchronized UndoableEdit remove(int where, int nitems) throws BadLocationException {
+    if (where < 0 || nitems < 0 || where + nitems >= length) {
+      throw new BadLocationException("Invalid remove", where + nitems);
+    }
+    if (nitems == 0) {
+      return null;
+    }
+    int pieceIndex = findPiece(where);
+    int pieceStart = cachedPieceStart;
+    int end = where + nitems;
+    int firstPieceStart = pieceStart;
+    List<Piece> replacement = new ArrayList<>(2);
+    int removedPieces = 0;
+    for (int i = pieceIndex; pieceStart < end; i++) {
+      Piece piece = pieces.get(i);
+      if (pieceStart < where) {
+        replacement.add(new Piece(piece.start, where - pieceStart));
+      }
+      int pieceEnd = pieceStart + piece.length;
+      if (pieceEnd > end) {
+        replacement.add(new Piece(piece.start + end - pieceStart, pieceEnd - end));
+      }
+      removedPieces++;
+      pieceStart = pieceEnd;
+    }
+    List<Piece> removed = pieces.subList(pieceIndex, pieceIndex + removedPieces);
+    removed.clear();
+    removed.addAll(replacement);
+    length -= nitems;
+    cachedPieceIndex = pieceIndex;
+    cachedPieceStart = firstPieceStart;
+    marksRemoved(where, nitems);
+    return null;
+  }
+
+  @Override
+  public synchronized String getString(int where, int len) throws BadLocationException {
+    Segment segment = new Segment();
+    getChars(where, len, segment);
+    return new String(segment.array, segment.offset, segment.count);
+  }
+
+  /**
+   * This method gets the text without copying it when it's all in one piece, or when the
+   * segment allows only a part of it to be returned, the way GapContent does.
+   */
+
+  @Override
+  public synchronized void getChars(int where, int len, Segment txt) throws BadLocationException {
+    if (where < 0 || len < 0 || where + len > length) {
+      throw new BadLocationException("Invalid location", where + len);
+    }
+    if (len == 0) {
+      txt.array = buffer;
+      txt.offset = 0;
+      txt.count = 0;
+      return;
+    }
+    int pieceIndex = findPiece(where);
+    Piece piece = pieces.get(pieceIndex);
+    int offsetInPiece = where - cachedPieceStart;
+    int availableInPiece = piece.length - offsetInPiece;
+    if (len <= availableInPiece || txt.isPartialReturn()) {
+      txt.array = buffer;
+      txt.offset = piece.start + offsetInPiece;
+      txt.count = Math.min(len, availableInPiece);
+      return;
+    }
+    char[] chars = new char[len];
+    copyChars(buffer, pieces, pieceIndex, offsetInPiece, chars, len);
+    txt.array = chars;
+    txt.offset = 0;
+    txt.count = len;
+  }
+
+  @Override
+  public synchronized Position createPosition(int offset) throws BadLocationException {
+    purgeUnusedMarks();
+    int blockIndex = Math.min(findMarkBlock(offset), markBlocks.size() - 1);
+    MarkBlock block = markBlocks.get(blockIndex);
+    StickyPosition position = new StickyPosition();
+    position.mark = new Mark(offset - block.shift(), block, position, unusedPositions);
+    block.insert(block.find(offset), position.mark);
+    markCount++;
+    if (block.count == MARK_BLOCK_SIZE) {
+      markBlocks.add(blockIndex + 1, block.split());
+      if (blockIndex < gapBlock) {
+        gapBlock++;
+      }
+    }
+    return position;
+  }
+
+  /**
+   * This method takes a snapshot of the text, which keeps reading the same text however the
+   * note is edited afterwards.
+   * @return the snapshot, without the newline every document ends with.
+   */
+
+  synchronized Snapshot snapshot() {
+    return new Snapshot(buffer, new ArrayList<>(pieces), length - 1);
+  }
+
+  /**
+   * This method appends the inserted text to the buffer, growing it as needed.
+   * @return where the text starts in the buffer.
+   */
+
+  private int append(String str) {
+    int start = bufferLength;
+    int required = start + str.length();
+    if (required > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+    }
+    str.getChars(0, str.length(), buffer, start);
+    bufferLength = required;
+    return start;
+  }
+
+  /**
+   * This method finds the piece the given offset is in, walking from the piece of the last
+   * lookup, and leaves the piece and where it starts cached.
+   * @return the index of the piece.
+   */
+
+  private int findPiece(int offset) {
+    int index = cachedPieceIndex;
+    int start = cachedPieceStart;
+    if (index >= pieces.size()) {
+      index = 0;
+      start = 0;
+    }
+    while (offset < start) {
+      index--;
+      start -= pieces.get(index).length;
+    }
+    while (offset >= start + pieces.get(index).length && index < pieces.size() - 1) {
+      start += pieces.get(index).length;
+      index++;
+    }
+    cachedPieceIndex = index;
+    cachedPieceStart = start;
+    return index;
+  }
+
+  private static void copyChars(char[] buffer, List<Piece> pieces, int pieceIndex, int offsetInPiece,
+                                char[] destination, int len) {
+    int copied = 0;
+    for (int i = pieceIndex; copied < len; i++) {
+      Piece piece = pieces.get(i);
+      int count = Math.min(piece.length - offsetInPiece, len - copied);
+      System.arraycopy(buffer, piece.start + offsetInPiece, destination, copied, count);
+      copied += count;
+      offsetInPiece = 0;
+    }
+  }
+
+  /**
+   * This method moves the positions from the insertion on by the inserted length, except the
+   * ones at the start of the document, which stay there the way they do in StringContent.
+   */
+
+  private void marksInserted(int where, int insertedLength) {
+    int from = Math.max(where, 1);
+    int blockIndex = findMarkBlock(from);
+    if (blockIndex == markBlocks.size()) {
+      return;
+    }
+    MarkBlock block = markBlocks.get(blockIndex);
+    for (int i = block.find(from); i < block.count; i++) {
+      block.marks[i].offset += insertedLength;
+    }
+    shiftMarkBlocks(blockIndex + 1, insertedLength);
+  }
+
+  /**
+   * This method moves the positions after the removed text back by its length, and the
+   * positions inside it to where it was.
+   */
+
+  private void marksRemoved(int where, int removedLength) {
+    int end = where + removedLength;
+    int blockIndex = findMarkBlock(where);
+    for (; blockIndex < markBlocks.size(); blockIndex++) {
+      MarkBlock block = markBlocks.get(blockIndex);
+      if (block.count > 0 && block.offsetOf(0) >= end) {
+        break;
+      }
+      for (int i = block.find(where); i < block.count; i++) {
+        Mark mark = block.marks[i];
+        int offset = mark.offset + block.shift();
+        mark.offset = (offset >= end ? offset - removedLength : where) - block.shift();
+      }
+    }
+    shiftMarkBlocks(blockIndex, -removedLength);
+  }
+
+  /**
+   * This method shifts the blocks from the given one on, by moving the gap block to it first.
+   */
+
+  private void shiftMarkBlocks(int fromBlock, int shift) {
+    moveGapBlock(fromBlock);
+    pendingShift += shift;
+  }
+
+  /**
+   * This method moves the gap block, adding the pending shift to the blocks that end up before
+   * it, and taking it back from the blocks that end up after it.
+   */
+
+  private void moveGapBlock(int toBlock) {
+    for (int i = gapBlock; i < toBlock; i++) {
+      MarkBlock block = markBlocks.get(i);
+      block.shift += pendingShift;
+      block.afterGap = false;
+    }
+    for (int i = toBlock; i < gapBlock; i++) {
+      MarkBlock block = markBlocks.get(i);
+      block.shift -= pendingShift;
+      block.afterGap = true;
+    }
+    gapBlock = toBlock;
+  }
+
+  /**
+   * @return the index of the first block that has a position at or after the given offset, or
+   * the number of blocks if there's none.
+   */
+
+  private int findMarkBlock(int offset) {
+    int low = 0;
+    int high = markBlocks.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      MarkBlock block = markBlocks.get(middle);
+      if (block.count == 0 || block.offsetOf(block.count - 1) < offset) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * This method drops the positions nobody holds anymore, once there are enough of them to be
+   * worth going through all the positions.
+   */
+
+  private void purgeUnusedMarks() {
+    while (unusedPositions.poll() != null) {
+      unusedMarks++;
+    }
+    if (unusedMarks < Math.max(markCount / 2, 64)) {
+      return;
+    }
+    moveGapBlock(markBlocks.size());
+    markCount = 0;
+    for (int i = markBlocks.size() - 1; i >= 0; i--) {
+      MarkBlock block = markBlocks.get(i);
+      block.purge();
+      markCount += block.count;
+      if (block.count == 0 && markBlocks.size() > 1) {
+        markBlocks.remove(i);
+      }
+    }
+    unusedMarks = 0;
+    gapBlock = markBlocks.size();
+  }
+
+  /**
+   * A part of the buffer the text is made of.
+   */
+
+  private static final class Piece {
+    private final int start;
+    private final int length;
+
+    Piece(int start, int length) {
+      this.start = start;
+      this.length = length;
+    }
+  }
+
+  /**
+   * Where a position is, relative to the shift of its block.
+   */
+
+  private static final class Mark extends WeakReference<StickyPosition> {
+    private int offset;
+    private MarkBlock block;
+
+    Mark(int offset, MarkBlock block, StickyPosition position, ReferenceQueue<StickyPosition> unusedPositions) {
+      super(position, unusedPositions);
+      this.offset = offset;
+      this.block = block;
+    }
+  }
+
+  /**
+   * A block of sorted positions, that are all shifted by the same length.
+   */
+
+  private final class MarkBlock {
+    private Mark[] marks = new Mark[16];
+    private int count;
+    private int shift;
+    private boolean afterGap;
+
+    int shift() {
+      return afterGap ? shift + pendingShift : shift;
+    }
+
+    int offsetOf(int i) {
+      return marks[i].offset + shift();
+    }
+
+    /**
+     * @return the index of the first position that isn't before the given offset.
+     */
+
+    int find(int offset) {
+      int low = 0;
+      int high = count;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (offsetOf(middle) < offset) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    void insert(int i, Mark mark) {
+      if (count == marks.length) {
+        marks = Arrays.copyOf(marks, count * 2);
+      }
+      System.arraycopy(marks, i, marks, i + 1, count - i);
+      marks[i] = mark;
+      count++;
+    }
+
+    /**
+     * This method moves the second half of the positions into a new block.
+     * @return the new block.
+     */
+
+    MarkBlock split() {
+      MarkBlock second = new MarkBlock();
+      int half = count / 2;
+      second.marks = Arrays.copyOfRange(marks, half, Math.max(count, 16));
+      second.count = count - half;
+      second.shift = shift;
+      second.afterGap = afterGap;
+      for (int i = 0; i < second.count; i++) {
+        second.marks[i].block = second;
+      }
+      Arrays.fill(marks, half, count, null);
+      count = half;
+      return second;
+    }
+
+    void purge() {
+      int used = 0;
+      for (int i = 0; i < count; i++) {
+        if (marks[i].get() != null) {
+          marks[used++] = marks[i];
+        }
+      }
+      Arrays.fill(marks, used, count, null);
+      count = used;
+    }
+  }
+
+  /**
+   * A position that follows the edits of the text.
+   */
+
+  private final class StickyPosition implements Position {
+    private Mark mark;
+
+    @Override
+    public int getOffset() {
+      synchronized (PieceTableContent.this) {
+        return mark.offset + mark.block.shift();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return Integer.toString(getOffset());
+    }
+  }
+
+  /**
+   * The text of the note as it was when the snapshot was taken. It's read as a NoteText in
+   * the pieces it's made of, so the autosave streams it into the journal without copying it.
+   */
+
+  static final class Snapshot implements NoteText {
+    private final char[] buffer;
+    private final List<Piece> pieces;
+    private final int length;
+
+    /**
+     * the piece of the last getText() and where it starts, as the text is read from its start
+     * to its end.
+     */
+
+    private int cachedPieceIndex;
+    private int cachedPieceStart;
+
+    private Snapshot(char[] buffer, List<Piece> pieces, int length) {
+      this.buffer = buffer;
+      this.pieces = pieces;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    /**
+     * This method hands over the text from the given offset to the end of the piece it's in,
+     * at most the given length.
+     */
+
+    @Override
+    public synchronized void getText(int offset, int length, Segment segment) {
+      if (offset < 0 || length <= 0 || offset + length > this.length) {
+        throw new IndexOutOfBoundsException("offset " + offset + ", length " + length);
+      }
+      if (offset < cachedPieceStart) {
+        cachedPieceIndex = 0;
+        cachedPieceStart = 0;
+      }
+      while (offset >= cachedPieceStart + pieces.get(cachedPieceIndex).length) {
+        cachedPieceStart += pieces.get(cachedPieceIndex).length;
+        cachedPieceIndex++;
+      }
+      Piece piece = pieces.get(cachedPieceIndex);
+      int offsetInPiece = offset - cachedPieceStart;
+      segment.array = buffer;
+      segment.offset = piece.start + offsetInPiece;
+      segment.count = Math.min(length, piece.length - offsetInPiece);
+    }
+
+    @Override
+    public String toString() {
+      char[] chars = new char[length];
+      if (length > 0) {
+        copyChars(buffer, pieces, 0, 0, chars, length);
+      }
+      return new String(chars);
+    }
+  }
+}
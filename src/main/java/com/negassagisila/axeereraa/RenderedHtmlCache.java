@@ -0,0 +1,160 @@
+package com.negassagisila.axeereraa;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class is a bounded LRU cache from the digest of a markdown text to the HTML it was
+ * rendered to. Since it's keyed by the content, editing a note changes the key and the HTML of
+ * the old text can never be handed out for the new one, it just ages out of the cache.
+ * The cache is bounded by the total length of the HTML it holds, which defaults to a small
+ * share of the maximum heap.
+ */
+
+class RenderedHtmlCache {
+  static final String CACHE_FILE_NAME = "preview.cache";
+
+  private static final int MAGIC = 0x41585043;
+  private static final long MAX_DEFAULT_WEIGHT = 16L * 1024 * 1024;
+
+  private final long maxWeight;
+  private final LinkedHashMap<String, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long weight;
+
+  RenderedHtmlCache() {
+    this(Math.min(MAX_DEFAULT_WEIGHT, Runtime.getRuntime().maxMemory() / 64));
+  }
+
+  /**
+   * @param maxWeight the most characters of HTML the cache holds at once.
+   */
+
+  RenderedHtmlCache(long maxWeight) {
+    this.maxWeight = maxWeight;
+  }
+
+  /**
+   * This method is used to get the key the HTML of a markdown text is cached under.
+   * @param salt anything besides the text that changes the HTML, e.g. the markdown extensions.
+   * @param markdownText the markdown text.
+   * @return the key.
+   */
+
+  static String keyOf(String salt, String markdownText) {
+    try {
+      MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+      messageDigest.update(salt.getBytes(StandardCharsets.UTF_8));
+      messageDigest.update((byte) 0);
+      messageDigest.update(markdownText.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(messageDigest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return the cached HTML, or null if there's none.
+   */
+
+  synchronized String get(String key) {
+    return entries.get(key);
+  }
+
+  /**
+   * This method caches the HTML, evicting the least recently used entries until it fits.
+   * HTML that's larger than the whole cache isn't cached at all.
+   */
+
+  synchronized void put(String key, String html) {
+    if (html.length() > maxWeight) {
+      return;
+    }
+    String previous = entries.put(key, html);
+    if (previous != null) {
+      weight -= previous.length();
+    }
+    weight += html.length();
+
+    Iterator<String> leastRecentlyUsed = entries.values().iterator();
+    while (weight > maxWeight && leastRecentlyUsed.hasNext()) {
+      weight -= leastRecentlyUsed.next().length();
+      leastRecentlyUsed.remove();
+    }
+  }
+
+  synchronized void clear() {
+    entries.clear();
+    weight = 0;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * This method writes the cache into the given file, through a temporary file that's
+   * renamed over it, so a crash never leaves a half written cache behind.
+   * @param cacheFile the file the cache is saved in.
+   * @throws IOException if the file can't be written.
+   */
+
+  void save(File cacheFile) throws IOException {
+    Map<String, String> snapshot;
+    synchronized (this) {
+      snapshot = new LinkedHashMap<>(entries);
+    }
+
+    File temporaryFile = new File(cacheFile.getPath() + ".tmp");
+    try (DataOutputStream outputStream = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+      outputStream.writeInt(MAGIC);
+      outputStream.writeInt(snapshot.size());
+      for (Map.Entry<String, String> entry : snapshot.entrySet()) {
+        byte[] html = entry.getValue().getBytes(StandardCharsets.UTF_8);
+        outputStream.writeUTF(entry.getKey());
+        outputStream.writeInt(html.length);
+        outputStream.write(html);
+      }
+    }
+    Files.move(temporaryFile.toPath(), cacheFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * This method adds the entries saved in the given file to the cache, in the order they
+   * were used in. A missing file is an empty cache.
+   * @param cacheFile the file the cache was saved in.
+   * @throws IOException if the file isn't a saved cache.
+   */
+
+  void load(File cacheFile) throws IOException {
+    if (!cacheFile.isFile()) {
+      return;
+    }
+    try (DataInputStream inputStream = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(cacheFile)))) {
+      if (inputStream.readInt() != MAGIC) {
+        throw new IOException(cacheFile + " is not a preview cache");
+      }
+      int count = inputStream.readInt();
+      for (int i = 0; i < count; i++) {
+        String key = inputStream.readUTF();
+        int length = inputStream.readInt();
+        if (length < 0 || length > 4 * maxWeight) {
+          throw new IOException(cacheFile + " is corrupted");
+        }
+        byte[] html = new byte[length];
+        inputStream.readFully(html);
+        put(key, new String(html, StandardCharsets.UTF_8));
+      }
+    }
+  }
+}
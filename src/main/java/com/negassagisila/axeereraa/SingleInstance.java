@@ -0,0 +1,255 @@
+package com.negassagisila.axeereraa;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * This class is responsible for keeping a single instance of the application running per
+ * notes folder. The first instance locks a file inside the folder and listens on a loopback
+ * socket, whose port is written next to it together with a random token. Every later launch
+ * finds the file locked, hands its request, e.g. to open a new note, over that socket to the
+ * running instance and exits, without ever loading the notes or building a window.
+ *
+ * A request is a single line: "SHOW", "NEW" or "OPEN" followed by the id of a note.
+ */
+
+class SingleInstance implements Closeable {
+  static final String LOCK_FILE_NAME = "instance.lock";
+  static final String PORT_FILE_NAME = "instance.port";
+  static final String REQUEST_SHOW = "SHOW";
+  static final String REQUEST_NEW = "NEW";
+  static final String REQUEST_OPEN = "OPEN";
+  static final String REPLY_OK = "OK";
+
+  /**
+   * how long a later launch waits for the running instance to write its port, in case both
+   * were launched at about the same time.
+   */
+
+  private static final long HAND_OFF_TIMEOUT_MILLIS = Long.getLong("axeereraa.instance.timeout", 3000);
+  private static final int SOCKET_TIMEOUT_MILLIS = 2000;
+
+  private final FileChannel lockChannel;
+  private final File portFile;
+  private final String token = UUID.randomUUID().toString();
+  private ServerSocket serverSocket;
+
+  /**
+   * the requests that came in before anyone was there to handle them.
+   */
+
+  private final List<String> pendingRequests = new ArrayList<>();
+  private Consumer<String> onRequest;
+
+  private SingleInstance(FileChannel lockChannel, File portFile) {
+    this.lockChannel = lockChannel;
+    this.portFile = portFile;
+  }
+
+  /**
+   * This method tries to become the single running instance for the given notes folder, and
+   * starts listening for the requests of the later launches if it does. If it can't listen,
+   * the lock is kept all the same, so no other instance runs on the same notes, and the later
+   * launches fail to hand their requests over instead.
+   * @param appHome the folder the notes are saved in.
+   * @return the SingleInstance, or null if another instance is already running.
+   * @throws IOException if the lock file can't be opened or locked.
+   */
+
+  static SingleInstance acquire(File appHome) throws IOException {
+    FileChannel lockChannel = FileChannel.open(new File(appHome, LOCK_FILE_NAME).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    FileLock fileLock;
+    try {
+      fileLock = lockChannel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      fileLock = null;
+    }
+    if (fileLock == null) {
+      lockChannel.close();
+      return null;
+    }
+
+    SingleInstance instance = new SingleInstance(lockChannel, new File(appHome, PORT_FILE_NAME));
+    try {
+      instance.listen();
+    } catch (IOException e) {
+      e.printStackTrace();
+      instance.stopListening();
+    }
+    return instance;
+  }
+
+  /**
+   * This method hands the request over to the instance that's already running, waiting a
+   * little for it to listen if it was only just launched.
+   * @param appHome the folder the notes are saved in.
+   * @param request the request to be handed over.
+   * @throws IOException if the running instance can't be reached or didn't accept it.
+   */
+
+  static void handOff(File appHome, String request) throws IOException {
+    File portFile = new File(appHome, PORT_FILE_NAME);
+    long deadline = System.currentTimeMillis() + HAND_OFF_TIMEOUT_MILLIS;
+    while (true) {
+      try {
+        sendRequest(portFile, request);
+        return;
+      } catch (IOException e) {
+        if (System.currentTimeMillis() >= deadline) {
+          throw e;
+        }
+      }
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("the request wasn't handed over");
+      }
+    }
+  }
+
+  private static void sendRequest(File portFile, String request) throws IOException {
+    String[] portAndToken = new String(Files.readAllBytes(portFile.toPath()), StandardCharsets.UTF_8).trim().split(" ");
+    if (portAndToken.length != 2) {
+      throw new IOException(portFile + " is not complete");
+    }
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+              Integer.parseInt(portAndToken[0])), SOCKET_TIMEOUT_MILLIS);
+      socket.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+      Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+      writer.write(portAndToken[1] + "\n" + request + "\n");
+      writer.flush();
+      String reply = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)).readLine();
+      if (!REPLY_OK.equals(reply)) {
+        throw new IOException("the running instance didn't accept " + request);
+      }
+    } catch (NumberFormatException e) {
+      throw new IOException(portFile + " is not complete", e);
+    }
+  }
+
+  /**
+   * This method is used to choose what handles the requests of the later launches, the
+   * requests that already came in are handed to it right away.
+   * @param onRequest called on the listener thread with every request.
+   */
+
+  void setOnRequest(Consumer<String> onRequest) {
+    List<String> requests;
+    synchronized (this) {
+      this.onRequest = onRequest;
+      requests = new ArrayList<>(pendingRequests);
+      pendingRequests.clear();
+    }
+    requests.forEach(onRequest);
+  }
+
+  /**
+   * This method binds the socket to a free loopback port and writes the port, together with
+   * the token a request has to start with, into the port file, which only the user can read
+   * where the file system allows it.
+   */
+
+  private void listen() throws IOException {
+    serverSocket = new ServerSocket(0, 8, InetAddress.getLoopbackAddress());
+    File temporaryFile = new File(portFile.getPath() + ".tmp");
+    Files.write(temporaryFile.toPath(), (serverSocket.getLocalPort() + " " + token).getBytes(StandardCharsets.UTF_8));
+    try {
+      Files.setPosixFilePermissions(temporaryFile.toPath(), PosixFilePermissions.fromString("rw-------"));
+    } catch (UnsupportedOperationException e) {
+      // the file system has no POSIX permissions
+    }
+    Files.move(temporaryFile.toPath(), portFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    Thread listener = new Thread(this::acceptRequests, "Axeereraa-instance-listener");
+    listener.setDaemon(true);
+    listener.start();
+  }
+
+  /**
+   * This method closes the socket of an instance that couldn't listen, together with the port
+   * file, which may still be there from an earlier instance.
+   */
+
+  private void stopListening() {
+    try {
+      if (serverSocket != null) {
+        serverSocket.close();
+        serverSocket = null;
+      }
+      Files.deleteIfExists(portFile.toPath());
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void acceptRequests() {
+    while (!serverSocket.isClosed()) {
+      try (Socket socket = serverSocket.accept()) {
+        socket.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        if (!token.equals(reader.readLine())) {
+          continue;
+        }
+        String request = reader.readLine();
+        if (request == null) {
+          continue;
+        }
+        Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        writer.write(REPLY_OK + "\n");
+        writer.flush();
+        handle(request);
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+
+  private void handle(String request) {
+    Consumer<String> handler;
+    synchronized (this) {
+      handler = onRequest;
+      if (handler == null) {
+        pendingRequests.add(request);
+        return;
+      }
+    }
+    handler.accept(request);
+  }
+
+  /**
+   * This method stops listening and gives the lock up, so the next launch runs on its own.
+   */
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (serverSocket != null) {
+        serverSocket.close();
+        Files.deleteIfExists(portFile.toPath());
+      }
+    } finally {
+      lockChannel.close();
+    }
+  }
+}
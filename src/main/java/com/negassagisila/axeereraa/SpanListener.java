@@ -0,0 +1,24 @@
+package com.negassagisila.axeereraa;
+
+/**
+ * This interface is used by the Instrumentation to hand the spans it times to a recorder
+ * that isn't part of every JVM, i.e. JFR.
+ */
+
+interface SpanListener {
+  
+  /**
+   * This method is called when a span starts.
+   * @param name the name of the span.
+   * @return what's handed to end() once the span ends, or null if it isn't recorded.
+   */
+  
+  Object begin(String name);
+  
+  /**
+   * This method is called when a span ends.
+   * @param event what begin() returned for the span.
+   */
+  
+  void end(Object event);
+}
@@ -0,0 +1,80 @@
+package com.negassagisila.axeereraa;
+
+/**
+ * This class records how long the startup takes: the time until the first note window is
+ * visible and the time until every note window that was loaded at startup is visible.
+ * Both are measured from the moment the application was launched, and are printed once all
+ * the windows are visible when the "axeereraa.startup.metrics" system property is set.
+ */
+
+final class StartupMetrics {
+  private static final boolean PRINT_METRICS = Boolean.getBoolean("axeereraa.startup.metrics");
+  
+  private static long startNanos = System.nanoTime();
+  private static long firstWindowVisibleNanos = -1;
+  private static long allWindowsVisibleNanos = -1;
+  private static int windowsVisible;
+  private static int windowsExpected = -1;
+  
+  private StartupMetrics() {
+  }
+  
+  /**
+   * This method is called first thing when the application is launched.
+   */
+  
+  static synchronized void started() {
+    startNanos = System.nanoTime();
+  }
+  
+  /**
+   * This method is called every time a note window becomes visible.
+   */
+  
+  static synchronized void windowVisible() {
+    windowsVisible++;
+    if (firstWindowVisibleNanos < 0) {
+      firstWindowVisibleNanos = System.nanoTime() - startNanos;
+    }
+    checkAllWindowsVisible();
+  }
+  
+  /**
+   * This method is called once it's known how many note windows the startup opens.
+   * @param count the number of windows.
+   */
+  
+  static synchronized void expectWindows(int count) {
+    windowsExpected = count;
+    checkAllWindowsVisible();
+  }
+  
+  /**
+   * @return the milliseconds it took until the first window was visible, or -1 if it isn't yet.
+   */
+  
+  static synchronized long getFirstWindowVisibleMillis() {
+    return firstWindowVisibleNanos < 0 ? -1 : firstWindowVisibleNanos / 1_000_000;
+  }
+  
+  /**
+   * @return the milliseconds it took until all the windows were visible, or -1 if they aren't yet.
+   */
+  
+  static synchronized long getAllWindowsVisibleMillis() {
+    return allWindowsVisibleNanos < 0 ? -1 : allWindowsVisibleNanos / 1_000_000;
+  }
+  
+  private static void checkAllWindowsVisible() {
+    if (allWindowsVisibleNanos < 0 && windowsExpected >= 0 && windowsVisible >= windowsExpected) {
+      allWindowsVisibleNanos = System.nanoTime() - startNanos;
+      if (PRINT_METRICS) {
+        System.out.println("Axeereraa startup: first window visible after "
+                + getFirstWindowVisibleMillis() + " ms, all "
+                + windowsExpected + " windows visible after "
+                + getAllWindowsVisibleMillis() + " ms");
+      }
+      Instrumentation.startupFinished();
+    }
+  }
+}
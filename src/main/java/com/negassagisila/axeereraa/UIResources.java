@@ -0,0 +1,82 @@
+package com.negassagisila.axeereraa;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class holds the fonts and images used by the AxeereraaUI. Each of them is loaded the
+ * first time it's needed and then shared by every window, instead of every window parsing
+ * the font and decoding the images on its own.
+ */
+
+final class UIResources {
+  static final float NOTE_FONT_SIZE = 18;
+  
+  private static final String FONT_PATH = "/font/Roboto-Medium.ttf";
+  private static final String ICON_PATH = "/images/icon.png";
+  private static final String LOCK_ICON_PATH = "/images/lock.png";
+  
+  private static final Map<Float, Font> derivedFonts = new ConcurrentHashMap<>();
+  private static Font font;
+  private static Image icon;
+  private static Image lockIcon;
+  
+  private UIResources() {
+  }
+  
+  /**
+   * This method is used to get the note font in the given size.
+   * @param size the point size of the font.
+   * @return the shared Font.
+   * @throws IOException if the font file can't be read.
+   * @throws FontFormatException if the font file isn't a TrueType font.
+   */
+  
+  static Font getFont(float size) throws IOException, FontFormatException {
+    Font derivedFont = derivedFonts.get(size);
+    if (derivedFont == null) {
+      derivedFont = getFont().deriveFont(Font.PLAIN, size);
+      derivedFonts.putIfAbsent(size, derivedFont);
+    }
+    return derivedFont;
+  }
+  
+  /**
+   * This method is used to get the icon of the windows.
+   * @return the shared Image.
+   * @throws IOException if the image can't be read.
+   */
+  
+  static synchronized Image getIcon() throws IOException {
+    if (icon == null) {
+      icon = ImageIO.read(UIResources.class.getResource(ICON_PATH));
+    }
+    return icon;
+  }
+  
+  /**
+   * This method is used to get the lock icon shown when a window stays on top.
+   * @return the shared Image.
+   * @throws IOException if the image can't be read.
+   */
+  
+  static synchronized Image getLockIcon() throws IOException {
+    if (lockIcon == null) {
+      lockIcon = ImageIO.read(UIResources.class.getResource(LOCK_ICON_PATH));
+    }
+    return lockIcon;
+  }
+  
+  private static synchronized Font getFont() throws IOException, FontFormatException {
+    if (font == null) {
+      try (InputStream resourceAsStream = UIResources.class.getResourceAsStream(FONT_PATH)) {
+        font = Font.createFont(Font.TRUETYPE_FONT, resourceAsStream);
+      }
+    }
+    return font;
+  }
+}
@@ -0,0 +1,140 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This test class is used to test the AutoSaver class. The coalescing window is made long
+ * enough that only an explicit flush saves the dirty notes.
+ */
+
+public class AutoSaverTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File journalFolder;
+  private NoteJournal noteJournal;
+  private AutoSaver autoSaver;
+
+  @Before
+  public void setUp() throws IOException {
+    journalFolder = temporaryFolder.newFolder("journal");
+    noteJournal = NoteJournal.open(journalFolder);
+    autoSaver = new AutoSaver(noteJournal, 60_000);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    autoSaver.close();
+    noteJournal.close();
+  }
+
+  private List<Note> reopenAndReplay() throws IOException {
+    autoSaver.close();
+    noteJournal.close();
+    noteJournal = NoteJournal.open(journalFolder);
+    autoSaver = new AutoSaver(noteJournal, 60_000);
+    return noteJournal.replay();
+  }
+
+  /**
+   * Marking the same note as dirty over and over should only take its snapshot once,
+   * when it's flushed.
+   */
+
+  @Test
+  public void shouldCoalesceTheEditsOfANote() throws Exception {
+    //given
+    Note note = new Note("edited");
+    AtomicInteger snapshots = new AtomicInteger();
+
+    //when
+    for (int i = 0; i < 100; i++) {
+      autoSaver.markDirty(note.getId(), () -> {
+        snapshots.incrementAndGet();
+        return note;
+      });
+    }
+    autoSaver.flush().get();
+
+    //then
+    Assert.assertEquals("the note has been saved more than once", 1, snapshots.get());
+    Assert.assertEquals("the note has not been saved",
+            Collections.singletonList(note), reopenAndReplay());
+  }
+
+  @Test
+  public void shouldSaveAllTheDirtyNotesWhenClosed() throws IOException {
+    //given
+    Note firstNote = new Note("first");
+    Note secondNote = new Note("second", NoteColor.lightGreen);
+    autoSaver.markDirty(firstNote.getId(), () -> firstNote);
+    autoSaver.markDirty(secondNote.getId(), () -> secondNote);
+
+    //when
+    List<Note> output = reopenAndReplay();
+
+    //then
+    Assert.assertEquals("the dirty notes have not been saved",
+            Arrays.asList(firstNote, secondNote), output);
+  }
+
+  @Test
+  public void shouldNotSaveANoteThatWasDeleted() throws IOException, ExecutionException, InterruptedException {
+    //given
+    Note keptNote = new Note("kept");
+    Note deletedNote = new Note("deleted");
+    autoSaver.save(keptNote);
+    autoSaver.save(deletedNote);
+    autoSaver.markDirty(deletedNote.getId(), () -> deletedNote);
+
+    //when
+    autoSaver.delete(deletedNote).get();
+
+    //then
+    Assert.assertEquals("the deleted note has been saved",
+            Collections.singletonList(keptNote), reopenAndReplay());
+  }
+
+  /**
+   * A large note should be streamed from the snapshot of its text, and handed to its own
+   * consumer once it's saved, while marking it as a note afterwards replaces its large save.
+   */
+
+  @Test
+  public void shouldStreamTheLargeNotesFromTheirSnapshots() throws Exception {
+    //given
+    PieceTableContent content = new PieceTableContent();
+    content.insertString(0, "a large note");
+    Note note = new Note("small again");
+    Note largeNote = new Note("a large note", NoteColor.lightGreen);
+    List<AutoSaver.LargeNote> savedLargeNotes = new ArrayList<>();
+    autoSaver.setOnLargeNoteSaved(savedLargeNotes::add);
+
+    //when
+    autoSaver.markLargeNoteDirty(largeNote.getId(),
+            () -> new AutoSaver.LargeNote(largeNote.getId(), NoteColor.lightGreen, content.snapshot()));
+    autoSaver.markLargeNoteDirty(note.getId(),
+            () -> new AutoSaver.LargeNote(note.getId(), NoteColor.lightRed, content.snapshot()));
+    autoSaver.markDirty(note.getId(), () -> note);
+    autoSaver.flush().get();
+
+    //then
+    Assert.assertEquals(1, savedLargeNotes.size());
+    Assert.assertEquals(largeNote.getId(), savedLargeNotes.get(0).getId());
+    List<Note> output = reopenAndReplay();
+    Assert.assertEquals(Arrays.asList(note, largeNote), output);
+    Assert.assertEquals(note.getId(), output.get(0).getId());
+    Assert.assertEquals(largeNote.getId(), output.get(1).getId());
+  }
+}
@@ -0,0 +1,138 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This test class is used to test the BinaryNoteCodec, on its own and when it's
+ * plugged into the NoteSaver and the NoteReader.
+ */
+
+public class BinaryNoteCodecTest {
+  private NoteCodec noteCodec;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Before
+  public void setUp() {
+    noteCodec = new BinaryNoteCodec();
+  }
+
+  @After
+  public void tearDown() {
+    noteCodec = null;
+  }
+
+  private ByteBuffer encode(Note... notes) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    for (Note n : notes) {
+      noteCodec.encode(n, outputStream);
+    }
+    return ByteBuffer.wrap(outputStream.toByteArray());
+  }
+
+  private static void assertSameNote(Note expected, Note actual) {
+    Assert.assertEquals("the id has not been kept", expected.getId(), actual.getId());
+    Assert.assertEquals("the text has not been kept", expected.getWrittenText(), actual.getWrittenText());
+    Assert.assertEquals("the color has not been kept", expected.getColor(), actual.getColor());
+  }
+
+  @Test
+  public void shouldDecodeWhatItEncoded() throws IOException {
+    //given
+    Note note = new Note("some written text\n* [ ] with \u00fcn\u00efc\u00f6d\u00e9 \u2713", NoteColor.lightRed);
+
+    //when
+    ByteBuffer buffer = encode(note);
+    Note output = noteCodec.decode(buffer);
+
+    //then
+    assertSameNote(note, output);
+    Assert.assertFalse("it didn't read the whole note", buffer.hasRemaining());
+  }
+
+  @Test
+  public void shouldDecodeFromADirectBuffer() throws IOException {
+    //given
+    Note note = new Note("a note read from a direct buffer", NoteColor.lightGreen);
+    ByteBuffer heapBuffer = encode(note);
+    ByteBuffer directBuffer = ByteBuffer.allocateDirect(heapBuffer.remaining());
+    directBuffer.put(heapBuffer).flip();
+
+    //then
+    assertSameNote(note, noteCodec.decode(directBuffer));
+  }
+
+  @Test
+  public void shouldDecodeNotesOneAfterTheOther() throws IOException {
+    //given
+    Note first = new Note("");
+    Note second = new Note(new String(new char[300]).replace('\0', 'x'), NoteColor.lightGreen);
+
+    //when
+    ByteBuffer buffer = encode(first, second);
+
+    //then
+    assertSameNote(first, noteCodec.decode(buffer));
+    assertSameNote(second, noteCodec.decode(buffer));
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectAnUnknownSchemaVersion() throws IOException {
+    //given
+    ByteBuffer buffer = encode(new Note("some text"));
+    buffer.put(0, (byte) (BinaryNoteCodec.SCHEMA_VERSION + 1));
+
+    //then
+    noteCodec.decode(buffer);
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectACutOffNote() throws IOException {
+    //given
+    ByteBuffer buffer = encode(new Note("some text that will be cut off"));
+    buffer.limit(buffer.limit() - 4);
+
+    //then
+    noteCodec.decode(buffer);
+  }
+
+  @Test
+  public void shouldBePluggableIntoTheSaverAndTheReader() throws IOException, ClassNotFoundException {
+    //given
+    File file = temporaryFolder.newFile("someNote.axn");
+    Note note = new Note("saved with the codec", NoteColor.lightGreen);
+
+    //when
+    new NoteSaver(new FileOutputStream(file), noteCodec).save(note);
+    Note output = new NoteReader(new FileInputStream(file), noteCodec).read();
+
+    //then
+    assertSameNote(note, output);
+  }
+
+  @Test
+  public void shouldLoadAllTheNotesOfAFile() throws IOException {
+    //given
+    File file = temporaryFolder.newFile("someNotes.axn");
+    List<Note> notes = Arrays.asList(new Note("first"), new Note("second", NoteColor.lightRed));
+    try (FileOutputStream fileOutputStream = new FileOutputStream(file)) {
+      for (Note n : notes) {
+        noteCodec.encode(n, fileOutputStream);
+      }
+    }
+
+    //then
+    Assert.assertEquals(
+            "the notes have not been loaded",
+            notes,
+            new NoteReader(new FileInputStream(file), noteCodec).load()
+    );
+  }
+}
@@ -1,10 +1,18 @@
 package com.negassagisila.axeereraa;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.EnumSet;
+
 public class DisplayMarkdownTest {
   
+  @After
+  public void tearDown() {
+    DisplayMarkdown.setExtensions(EnumSet.allOf(DisplayMarkdown.MarkdownExtension.class));
+  }
+  
 @Test
   public void convertToMarkdownTest() throws Exception {
     String testData = "* [ ] Open item\n" +
@@ -17,4 +25,32 @@ public class DisplayMarkdownTest {
     Assert.assertEquals("stupid motherfucker doesn't work", output, testMethodOutput);
   }
   
-}
\ No newline at end of file
+  @Test
+  public void shouldRenderTablesStrikethroughAndAutolinks() {
+    String testData = "| a | b |\n" +
+            "|---|---|\n" +
+            "| 1 | 2 |\n" +
+            "\n" +
+            "~~gone~~ https://github.com/NegassaB\n";
+    String testMethodOutput = DisplayMarkdown.convertToMarkdown(testData);
+    Assert.assertTrue("the table has not been rendered", testMethodOutput.contains("<table>"));
+    Assert.assertTrue("the strikethrough has not been rendered", testMethodOutput.contains("<del>gone</del>"));
+    Assert.assertTrue(
+            "the link has not been rendered",
+            testMethodOutput.contains("<a href=\"https://github.com/NegassaB\">")
+    );
+  }
+  
+  @Test
+  public void shouldOnlyUseTheChosenExtensions() {
+    DisplayMarkdown.setExtensions(EnumSet.of(DisplayMarkdown.MarkdownExtension.TASK_LIST));
+    String testMethodOutput = DisplayMarkdown.convertToMarkdown("~~kept~~\n");
+    Assert.assertEquals("a turned off extension has been used", "<p>~~kept~~</p>\n", testMethodOutput);
+    Assert.assertEquals(
+            "the extensions have not been changed",
+            EnumSet.of(DisplayMarkdown.MarkdownExtension.TASK_LIST),
+            DisplayMarkdown.getExtensions()
+    );
+  }
+  
+}
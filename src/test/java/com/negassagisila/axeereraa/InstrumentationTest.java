@@ -0,0 +1,82 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * This test class is used to test the Instrumentation class.
+ */
+
+public class InstrumentationTest {
+
+  @Before
+  public void setUp() {
+    Instrumentation.enable();
+    Instrumentation.reset();
+  }
+
+  @After
+  public void tearDown() {
+    Instrumentation.reset();
+  }
+
+  @Test
+  public void shouldRecordEveryClosedSpan() throws Exception {
+    //when
+    for (int i = 0; i < 3; i++) {
+      try (Instrumentation.Span span = Instrumentation.start("InstrumentationTest.span")) {
+        Thread.sleep(1);
+      }
+    }
+
+    //then
+    Instrumentation.SpanStatistics statistics = Instrumentation.getStatistics("InstrumentationTest.span");
+    Assert.assertNotNull("the span has not been recorded", statistics);
+    Assert.assertEquals(3, statistics.getCount());
+    Assert.assertTrue(statistics.getMaxNanos() >= 1_000_000);
+    long histogramCount = 0;
+    for (long bucket : statistics.getHistogram()) {
+      histogramCount += bucket;
+    }
+    Assert.assertEquals(3, histogramCount);
+    Assert.assertTrue(Instrumentation.report().contains("InstrumentationTest.span"));
+  }
+
+  @Test
+  public void shouldTimeTheWorkItsHandedEvenWhenItFails() {
+    //when
+    String output = Instrumentation.call("InstrumentationTest.call", () -> "result");
+    try {
+      Instrumentation.run("InstrumentationTest.call", () -> {
+        throw new IllegalStateException("failed");
+      });
+      Assert.fail("the failure of the action has been swallowed");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    //then
+    Assert.assertEquals("result", output);
+    Assert.assertEquals(2, Instrumentation.getStatistics("InstrumentationTest.call").getCount());
+  }
+
+  @Test
+  public void shouldExposeTheSpansThroughTheMXBean() throws Exception {
+    //given
+    Instrumentation.start("InstrumentationTest.exposed").close();
+
+    //when
+    InstrumentationMXBean bean = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+            new ObjectName(Instrumentation.OBJECT_NAME), InstrumentationMXBean.class);
+
+    //then
+    Assert.assertEquals(Long.valueOf(1), bean.getSpanCounts().get("InstrumentationTest.exposed"));
+    Assert.assertEquals(Instrumentation.HISTOGRAM_BUCKETS, bean.getSpanHistogram("InstrumentationTest.exposed").length);
+  }
+}
@@ -0,0 +1,76 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * This test class is used to test how the MarkdownPreview splits the markdown into the
+ * top-level blocks it renders on their own.
+ */
+
+public class MarkdownPreviewTest {
+  
+  private static final String DOCUMENT = "# a heading\n" +
+          "\n" +
+          "some text\n" +
+          "that goes on\n" +
+          "\n" +
+          "```\n" +
+          "code\n" +
+          "\n" +
+          "more code\n" +
+          "```\n" +
+          "\n" +
+          "* [ ] Open item\n" +
+          "\n" +
+          "* [x] Closed item\n" +
+          "\n" +
+          "    indented\n" +
+          "\n" +
+          "| a | b |\n" +
+          "|---|---|\n" +
+          "| 1 | 2 |\n";
+  
+  private static String join(List<String> blocks) {
+    StringBuilder output = new StringBuilder();
+    for (String block : blocks) {
+      output.append(block);
+    }
+    return output.toString();
+  }
+  
+  @Test
+  public void shouldGiveBackTheWholeTextWhenJoined() {
+    Assert.assertEquals("the blocks don't add up to the text", DOCUMENT, join(MarkdownPreview.splitIntoBlocks(DOCUMENT)));
+  }
+  
+  @Test
+  public void shouldKeepFencedCodeListsAndTheirContinuationsTogether() {
+    List<String> blocks = MarkdownPreview.splitIntoBlocks(DOCUMENT);
+    Assert.assertEquals("the text has been split in the wrong places", 5, blocks.size());
+    Assert.assertTrue("the fenced code has been split", blocks.get(2).contains("code\n\nmore code"));
+    Assert.assertTrue("the list has been split", blocks.get(3).contains("Open item\n\n* [x] Closed item\n\n    indented"));
+  }
+  
+  @Test
+  public void shouldRenderTheBlocksTheSameAsTheWholeText() {
+    StringBuilder renderedBlocks = new StringBuilder();
+    for (String block : MarkdownPreview.splitIntoBlocks(DOCUMENT)) {
+      renderedBlocks.append(DisplayMarkdown.convertToMarkdown(block));
+    }
+    Assert.assertEquals(
+            "the blocks render differently on their own",
+            DisplayMarkdown.convertToMarkdown(DOCUMENT),
+            renderedBlocks.toString()
+    );
+  }
+  
+  @Test
+  public void shouldNotSplitTextWithReferenceDefinitions() {
+    String document = "see [the repo][repo]\n\n[repo]: https://github.com/NegassaB/Axeereraa\n";
+    Assert.assertEquals("the reference definition has been split from its use",
+            1, MarkdownPreview.splitIntoBlocks(document).size());
+  }
+}
@@ -0,0 +1,42 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This test class is used to test the text shown on the cards of the NoteBoard.
+ */
+
+public class NoteBoardTest {
+
+  @Test
+  public void shouldShowAShortNoteAsItIs() {
+    //given
+    Note note = new Note("a short note");
+
+    //when
+    String output = NoteBoard.cardText(note);
+
+    //then
+    Assert.assertEquals("the short note has been changed", "a short note", output);
+  }
+
+  @Test
+  public void shouldCutALongNoteShort() {
+    //given
+    StringBuilder writtenText = new StringBuilder();
+    for (int i = 0; i < 10_000; i++) {
+      writtenText.append("long ");
+    }
+    Note note = new Note(writtenText.toString());
+
+    //when
+    String output = NoteBoard.cardText(note);
+
+    //then
+    Assert.assertEquals("the card text has not been cut short",
+            NoteBoard.CARD_TEXT_LENGTH + 1, output.length());
+    Assert.assertTrue("the card text doesn't start like the note",
+            writtenText.toString().startsWith(output.substring(0, NoteBoard.CARD_TEXT_LENGTH)));
+  }
+}
@@ -0,0 +1,82 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This test class is used to test the NoteBodies class, which reads the text of the notes
+ * saved in a journal inside a TemporaryFolder.
+ */
+
+public class NoteBodiesTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private NoteJournal noteJournal;
+  private NoteBodies noteBodies;
+
+  @Before
+  public void setUp() throws IOException {
+    noteJournal = NoteJournal.open(temporaryFolder.newFolder("notes"));
+    noteBodies = new NoteBodies(noteJournal);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    noteJournal.close();
+  }
+
+  @Test
+  public void shouldOnlyReadANoteOnceItsAskedFor() throws IOException {
+    //given
+    Note note = new Note("saved note", NoteColor.lightGreen);
+    noteJournal.append(note);
+
+    //when
+    Note beforeItsAskedFor = noteBodies.getIfLoaded(note.getId());
+    Note output = noteBodies.get(note.getId());
+
+    //then
+    Assert.assertNull("the note has been read before it was asked for", beforeItsAskedFor);
+    Assert.assertEquals("the note has not been read", note, output);
+    Assert.assertSame("the note that was read has not been kept", output, noteBodies.getIfLoaded(note.getId()));
+  }
+
+  @Test
+  public void shouldKeepTheLatestVersionOfANote() throws IOException {
+    //given
+    Note firstVersion = new Note("first version");
+    noteJournal.append(firstVersion);
+    noteBodies.get(firstVersion.getId());
+
+    //when
+    Note secondVersion = new Note(firstVersion.getId(), "second version", NoteColor.lightRed);
+    noteBodies.put(secondVersion);
+
+    //then
+    Assert.assertSame("the latest version has not been kept", secondVersion, noteBodies.get(firstVersion.getId()));
+  }
+
+  @Test
+  public void shouldNotFindANoteThatIsntSaved() throws IOException {
+    Assert.assertNull("a note has been read out of nowhere", noteBodies.get(new Note("unsaved").getId()));
+  }
+
+  @Test
+  public void shouldTellWhenANoteToLoadIsntSaved() throws InterruptedException {
+    //given
+    CountDownLatch notFound = new CountDownLatch(1);
+
+    //when
+    noteBodies.load(new Note("unsaved").getId(), n -> Assert.fail("a note has been read out of nowhere"),
+            notFound::countDown);
+
+    //then
+    Assert.assertTrue("the missing note has not been reported", notFound.await(5, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,132 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This test class is used to test the NoteCommandLine class. Every test runs a command
+ * against a note folder inside a TemporaryFolder.
+ */
+
+public class NoteCommandLineTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File notesFolder;
+  private ByteArrayOutputStream output;
+  private NoteCommandLine commandLine;
+
+  @Before
+  public void setUp() throws IOException {
+    notesFolder = temporaryFolder.newFolder("notes");
+    output = new ByteArrayOutputStream();
+    commandLine = new NoteCommandLine(new PrintStream(output, true), new PrintStream(output, true));
+  }
+
+  private int run(String... args) {
+    return commandLine.run(args, notesFolder);
+  }
+
+  private static void write(File file, String text) throws IOException {
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The markdown files that are imported should come back out of the export, and importing
+   * the exported files again should replace the notes instead of adding them twice.
+   */
+
+  @Test
+  public void shouldExportTheImportedNotes() throws IOException {
+    //given
+    File importFolder = temporaryFolder.newFolder("import");
+    File exportFolder = temporaryFolder.newFolder("export");
+    for (int i = 0; i < NoteCommandLine.BATCH_SIZE + 5; i++) {
+      write(new File(importFolder, "note" + i + ".md"), "# note " + i + "\nsome text");
+    }
+    write(new File(importFolder, "ignored.txt"), "not markdown");
+
+    //when
+    int importStatus = run("import", importFolder.getPath());
+    int exportStatus = run("export", exportFolder.getPath());
+    int reimportStatus = run("import", exportFolder.getPath());
+
+    //then
+    Assert.assertEquals(NoteCommandLine.EXIT_OK, importStatus);
+    Assert.assertEquals(NoteCommandLine.EXIT_OK, exportStatus);
+    Assert.assertEquals(NoteCommandLine.EXIT_OK, reimportStatus);
+    File[] exportedFiles = exportFolder.listFiles();
+    Assert.assertNotNull(exportedFiles);
+    Assert.assertEquals("not every note has been exported", NoteCommandLine.BATCH_SIZE + 5, exportedFiles.length);
+    Assert.assertTrue(read(exportedFiles[0]).startsWith("# note "));
+    try (NoteJournal noteJournal = NoteJournal.open(notesFolder)) {
+      Assert.assertEquals("the re-imported notes have been added twice",
+              NoteCommandLine.BATCH_SIZE + 5, noteJournal.loadMetadata().size());
+    }
+  }
+
+  @Test
+  public void shouldExportTheNotesAsJson() throws IOException {
+    //given
+    Note note = new Note("a \"quoted\" line\nand a second one", NoteColor.lightGreen);
+    try (NoteJournal noteJournal = NoteJournal.open(notesFolder)) {
+      noteJournal.append(note);
+    }
+    File exportFolder = temporaryFolder.newFolder("export");
+
+    //when
+    int status = run("export", exportFolder.getPath(), "--json");
+
+    //then
+    Assert.assertEquals(NoteCommandLine.EXIT_OK, status);
+    Assert.assertEquals(
+            "[\n  {\"id\": \"" + note.getId() + "\", \"color\": \"lightGreen\", "
+                    + "\"text\": \"a \\\"quoted\\\" line\\nand a second one\"}\n]\n",
+            read(new File(exportFolder, "notes.json"))
+    );
+  }
+
+  @Test
+  public void shouldVerifyAndCompactTheJournal() throws IOException {
+    //given
+    try (NoteJournal noteJournal = NoteJournal.open(notesFolder)) {
+      Note note = new Note("kept");
+      noteJournal.append(note);
+      noteJournal.append(new Note(note.getId(), "kept and edited", NoteColor.lightRed));
+    }
+
+    //when
+    int compactStatus = run("compact");
+    int verifyStatus = run("verify");
+
+    //then
+    Assert.assertEquals(NoteCommandLine.EXIT_OK, compactStatus);
+    Assert.assertEquals(NoteCommandLine.EXIT_OK, verifyStatus);
+    Assert.assertTrue(output.toString().contains("verified 1 notes"));
+    try (NoteJournal noteJournal = NoteJournal.open(notesFolder)) {
+      List<Note> notes = noteJournal.replay();
+      Assert.assertEquals(Collections.singletonList(new Note("kept and edited", NoteColor.lightRed)), notes);
+    }
+  }
+
+  @Test
+  public void shouldPrintTheUsageForAnUnknownCommand() {
+    //when
+    int status = run("unknown");
+
+    //then
+    Assert.assertEquals(NoteCommandLine.EXIT_USAGE, status);
+    Assert.assertTrue(output.toString().startsWith("usage:"));
+  }
+}
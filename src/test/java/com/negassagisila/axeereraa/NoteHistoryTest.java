@@ -0,0 +1,230 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * This test class is used to test the NoteHistory class. Every test saves revisions of notes
+ * into a history inside a TemporaryFolder and reads them back.
+ */
+
+public class NoteHistoryTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File historyFolder;
+  private NoteHistory noteHistory;
+
+  @Before
+  public void setUp() throws IOException {
+    historyFolder = temporaryFolder.newFolder("history");
+    noteHistory = NoteHistory.open(historyFolder);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    noteHistory.close();
+    noteHistory = null;
+    historyFolder = null;
+  }
+
+  /**
+   * Every revision should be read back as it was saved, across several snapshots and after
+   * the history is re-opened.
+   */
+
+  @Test
+  public void shouldReadEveryRevisionBack() throws IOException {
+    //given
+    UUID id = UUID.randomUUID();
+    List<String> savedTexts = new ArrayList<>();
+    StringBuilder text = new StringBuilder("a shopping list\n");
+    for (int i = 0; i < NoteHistory.SNAPSHOT_INTERVAL * 2 + 3; i++) {
+      text.insert(text.length() / 2, "item " + i + "\n");
+      savedTexts.add(text.toString());
+      noteHistory.record(new Note(id, text.toString(), NoteColor.lightYellow));
+    }
+
+    //when
+    noteHistory.close();
+    noteHistory = NoteHistory.open(historyFolder);
+
+    //then
+    Assert.assertEquals("not every revision has been saved", savedTexts.size(), noteHistory.list(id).size());
+    for (int number = 1; number <= savedTexts.size(); number++) {
+      Assert.assertEquals("the revision " + number + " has not been read back",
+              savedTexts.get(number - 1), noteHistory.read(id, number));
+    }
+  }
+
+  @Test
+  public void shouldNotSaveARevisionWhenTheTextDidNotChange() throws IOException {
+    //given
+    Note note = new Note("unchanged");
+    noteHistory.record(note);
+
+    //when
+    boolean recorded = noteHistory.record(new Note(note.getId(), "unchanged", NoteColor.lightGreen));
+
+    //then
+    Assert.assertFalse("a revision of the same text has been saved", recorded);
+    Assert.assertEquals(1, noteHistory.list(note.getId()).size());
+  }
+
+  /**
+   * An edit that changes only one half of a surrogate pair, e.g. one emoji for the next one,
+   * should be read back as it was written, along with the revisions saved on top of it.
+   */
+
+  @Test
+  public void shouldReadBackAnEditInsideASurrogatePair() throws IOException {
+    //given
+    Note note = new Note("mood \ud83d\ude00 ok");
+    noteHistory.record(note);
+
+    //when
+    noteHistory.record(new Note(note.getId(), "mood \ud83d\ude01 ok", NoteColor.lightYellow));
+    noteHistory.record(new Note(note.getId(), "mood \ud83c\ude01 ok", NoteColor.lightYellow));
+    noteHistory.record(new Note(note.getId(), "mood \ud83c\ude01 ok!", NoteColor.lightYellow));
+
+    //then
+    Assert.assertEquals("mood \ud83d\ude01 ok", noteHistory.read(note.getId(), 2));
+    Assert.assertEquals("mood \ud83c\ude01 ok", noteHistory.read(note.getId(), 3));
+    Assert.assertEquals("mood \ud83c\ude01 ok!", noteHistory.read(note.getId(), 4));
+  }
+
+  /**
+   * A small edit of a long note should take about as much space as the edit itself.
+   */
+
+  @Test
+  public void shouldSaveASmallEditAsASmallDelta() throws IOException {
+    //given
+    StringBuilder longText = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      longText.append("line ").append(i).append('\n');
+    }
+    UUID id = UUID.randomUUID();
+    noteHistory.record(new Note(id, longText.toString(), NoteColor.lightYellow));
+    File historyFile = new File(historyFolder, NoteHistory.HISTORY_FILE_NAME);
+    long lengthBefore = historyFile.length();
+
+    //when
+    longText.insert(5000, "x");
+    noteHistory.record(new Note(id, longText.toString(), NoteColor.lightYellow));
+
+    //then
+    Assert.assertTrue("the edit has been saved as a full copy", historyFile.length() - lengthBefore < 64);
+  }
+
+  /**
+   * Without the index file, e.g. after a crash, the index should be built from the history.
+   */
+
+  @Test
+  public void shouldReadTheRevisionsBackWithoutTheIndexFile() throws IOException {
+    //given
+    UUID id = UUID.randomUUID();
+    List<String> savedTexts = new ArrayList<>();
+    for (int i = 0; i < NoteHistory.SNAPSHOT_INTERVAL + 3; i++) {
+      savedTexts.add("revision " + i);
+      noteHistory.record(new Note(id, "revision " + i, NoteColor.lightYellow));
+    }
+    noteHistory.close();
+    File indexFile = new File(historyFolder, NoteHistory.INDEX_FILE_NAME);
+    Assert.assertTrue("the index has not been written", indexFile.isFile());
+
+    //when
+    Assert.assertTrue(indexFile.delete());
+    noteHistory = NoteHistory.open(historyFolder);
+
+    //then
+    Assert.assertEquals(savedTexts.size(), noteHistory.list(id).size());
+    for (int number = 1; number <= savedTexts.size(); number++) {
+      Assert.assertEquals(savedTexts.get(number - 1), noteHistory.read(id, number));
+    }
+  }
+
+  /**
+   * The revisions of a deleted note should be gone, also after the history is re-opened
+   * with or without its index.
+   */
+
+  @Test
+  public void shouldForgetTheRevisionsOfADeletedNote() throws IOException {
+    //given
+    UUID deletedId = UUID.randomUUID();
+    UUID keptId = UUID.randomUUID();
+    noteHistory.record(new Note(deletedId, "to be deleted", NoteColor.lightYellow));
+    noteHistory.record(new Note(deletedId, "to be deleted soon", NoteColor.lightYellow));
+    noteHistory.record(new Note(keptId, "to be kept", NoteColor.lightGreen));
+
+    //when
+    noteHistory.delete(deletedId);
+
+    //then
+    Assert.assertTrue(noteHistory.list(deletedId).isEmpty());
+    noteHistory.close();
+    noteHistory = NoteHistory.open(historyFolder);
+    Assert.assertTrue(noteHistory.list(deletedId).isEmpty());
+    Assert.assertEquals("to be kept", noteHistory.read(keptId, 1));
+    noteHistory.close();
+    Assert.assertTrue(new File(historyFolder, NoteHistory.INDEX_FILE_NAME).delete());
+    noteHistory = NoteHistory.open(historyFolder);
+    Assert.assertTrue(noteHistory.list(deletedId).isEmpty());
+    Assert.assertEquals("to be kept", noteHistory.read(keptId, 1));
+  }
+
+  /**
+   * Once most of the history belongs to deleted notes, it should be compacted down to the
+   * revisions of the notes that are left.
+   */
+
+  @Test
+  public void shouldCompactTheHistoryOnceMostOfItIsDead() throws IOException {
+    //given
+    UUID deletedId = UUID.randomUUID();
+    UUID keptId = UUID.randomUUID();
+    StringBuilder longText = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      longText.append("line ").append(i).append('\n');
+    }
+    noteHistory.record(new Note(deletedId, longText.toString(), NoteColor.lightYellow));
+    noteHistory.record(new Note(keptId, "first", NoteColor.lightGreen));
+    noteHistory.record(new Note(keptId, "first\nsecond", NoteColor.lightGreen));
+    File historyFile = new File(historyFolder, NoteHistory.HISTORY_FILE_NAME);
+    long lengthBefore = historyFile.length();
+
+    //when
+    noteHistory.delete(deletedId);
+
+    //then
+    Assert.assertTrue("the history has not been compacted", historyFile.length() < lengthBefore / 100);
+    Assert.assertEquals("first\nsecond", noteHistory.read(keptId, 2));
+    noteHistory.record(new Note(keptId, "first\nsecond\nthird", NoteColor.lightGreen));
+    noteHistory.close();
+    noteHistory = NoteHistory.open(historyFolder);
+    Assert.assertEquals("first", noteHistory.read(keptId, 1));
+    Assert.assertEquals("first\nsecond\nthird", noteHistory.read(keptId, 3));
+  }
+
+  @Test
+  public void shouldDiffTwoTextsLineByLine() {
+    //given
+    String oldText = "first\nsecond\nthird";
+    String newText = "first\nchanged\nthird\nfourth";
+
+    //when
+    String output = NoteHistory.diff(oldText, newText);
+
+    //then
+    Assert.assertEquals("  first\n+ changed\n- second\n  third\n+ fourth\n", output);
+  }
+}
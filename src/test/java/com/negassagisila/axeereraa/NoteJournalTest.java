@@ -0,0 +1,557 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * This test class is used to test the NoteJournal class. Every test appends notes to
+ * a journal inside a TemporaryFolder, re-opens it and checks what the replay gives back.
+ */
+
+public class NoteJournalTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File journalFolder;
+  private NoteJournal noteJournal;
+
+  @Before
+  public void setUp() throws IOException {
+    journalFolder = temporaryFolder.newFolder("journal");
+    noteJournal = NoteJournal.open(journalFolder);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    noteJournal.close();
+    noteJournal = null;
+    journalFolder = null;
+  }
+
+  private List<Note> reopenAndReplay() throws IOException {
+    noteJournal.close();
+    noteJournal = NoteJournal.open(journalFolder);
+    return noteJournal.replay();
+  }
+
+  /**
+   * This test method tests the happy path, the appended notes should be replayed
+   * after the journal is re-opened.
+   */
+
+  @Test
+  public void shouldReplayTheAppendedNotes() throws IOException {
+    //given
+    List<Note> savedNotes = Arrays.asList(
+            new Note("some written text"),
+            new Note("some other written text", NoteColor.lightGreen)
+    );
+
+    //when
+    for (Note n : savedNotes) {
+      noteJournal.append(n);
+    }
+
+    //then
+    Assert.assertEquals(
+            "the appended notes have not been replayed",
+            savedNotes,
+            reopenAndReplay()
+    );
+  }
+
+  /**
+   * Reading the journal into the heap, e.g. on a file system that can't map it, should
+   * replay the same notes as mapping it.
+   */
+
+  @Test
+  public void shouldReplayTheSameNotesWhenNotMemoryMapped() throws IOException {
+    //given
+    List<Note> savedNotes = Arrays.asList(
+            new Note("mapped or not"),
+            new Note("the same notes", NoteColor.lightRed)
+    );
+    for (Note n : savedNotes) {
+      noteJournal.append(n);
+    }
+    List<Note> mappedReplay = reopenAndReplay();
+
+    //when
+    noteJournal.setMemoryMapped(false);
+    List<Note> heapReplay = noteJournal.replay();
+
+    //then
+    Assert.assertEquals("the mapped journal has not been replayed", savedNotes, mappedReplay);
+    Assert.assertEquals("the journal read into the heap has not been replayed", savedNotes, heapReplay);
+  }
+
+  @Test
+  public void shouldReplaceTheNoteSavedUnderTheSameId() throws IOException {
+    //given
+    Note firstVersion = new Note("first version");
+    Note secondVersion = new Note(firstVersion.getId(), "second version", NoteColor.lightRed);
+
+    //when
+    noteJournal.append(firstVersion);
+    noteJournal.append(secondVersion);
+
+    //then
+    List<Note> output = reopenAndReplay();
+    Assert.assertEquals("the note has been saved twice", 1, output.size());
+    Assert.assertEquals("the latest version has not been kept", "second version", output.get(0).getWrittenText());
+  }
+
+  @Test
+  public void shouldReadASingleNoteByItsKey() throws IOException {
+    //given
+    Note firstNote = new Note("first");
+    Note secondNote = new Note("second", NoteColor.lightGreen);
+    noteJournal.append(firstNote);
+    noteJournal.append(secondNote);
+    reopenAndReplay();
+
+    //when
+    Note output = noteJournal.read(NoteJournal.keyOf(secondNote));
+
+    //then
+    Assert.assertEquals("the wrong note has been read", secondNote, output);
+    Assert.assertNull("a note that isn't saved has been read", noteJournal.read("missing"));
+  }
+
+  /**
+   * After the journal was closed cleanly, the metadata should be read from the metadata file
+   * instead of replaying the journal, and the text of the notes should still be readable.
+   */
+
+  @Test
+  public void shouldLoadTheMetadataSavedWhenTheJournalWasClosed() throws IOException {
+    //given
+    Note firstNote = new Note("first line\nsecond line");
+    Note secondNote = new Note("  \n  a title after a blank line", NoteColor.lightRed);
+    noteJournal.append(firstNote);
+    noteJournal.append(secondNote);
+    noteJournal.setViewState(NoteJournal.keyOf(secondNote), new NoteViewState(
+            new Rectangle(10, 20, 300, 250), true, NoteViewState.ViewMode.LIVE_PREVIEW, 7, 42));
+    noteJournal.close();
+
+    //when
+    noteJournal = NoteJournal.open(journalFolder);
+    List<NoteMetadata> output = noteJournal.loadMetadata();
+
+    //then
+    Assert.assertTrue("the journal has been replayed", noteJournal.wasCleanlyClosed());
+    Assert.assertEquals("the notes have not been loaded", 2, output.size());
+    Assert.assertEquals("the title is not the first line", "first line", output.get(0).getTitle());
+    Assert.assertEquals("the title is not the first line", "a title after a blank line", output.get(1).getTitle());
+    Assert.assertEquals("the color has been lost", NoteColor.lightRed, output.get(1).getColor());
+    Assert.assertEquals("the bounds have been lost", new Rectangle(10, 20, 300, 250), output.get(1).getBounds());
+    NoteViewState viewState = output.get(1).getViewState();
+    Assert.assertTrue("the window is not on top anymore", viewState.isAlwaysOnTop());
+    Assert.assertEquals(NoteViewState.ViewMode.LIVE_PREVIEW, viewState.getViewMode());
+    Assert.assertEquals(7, viewState.getCaretPosition());
+    Assert.assertEquals(42, viewState.getScrollPosition());
+    Assert.assertNull("the first note has been given bounds", output.get(0).getBounds());
+    Assert.assertEquals("the text can't be read", secondNote, noteJournal.read(NoteJournal.keyOf(secondNote)));
+  }
+
+  /**
+   * A metadata file that was written before the last appends, e.g. because the application
+   * crashed after them, should be ignored and the journal replayed instead.
+   */
+
+  @Test
+  public void shouldReplayTheJournalWhenTheMetadataIsOutOfDate() throws IOException {
+    //given
+    Note savedBeforeTheClose = new Note("saved before the close");
+    noteJournal.append(savedBeforeTheClose);
+    noteJournal.setViewState(NoteJournal.keyOf(savedBeforeTheClose), NoteViewState.DEFAULT.withBounds(new Rectangle(1, 2, 3, 4)));
+    noteJournal.close();
+    File metadataFile = new File(journalFolder, NoteJournal.METADATA_FILE_NAME);
+    byte[] outdatedMetadata = Files.readAllBytes(metadataFile.toPath());
+
+    noteJournal = NoteJournal.open(journalFolder);
+    noteJournal.loadMetadata();
+    Note savedAfterTheClose = new Note("saved after the close");
+    noteJournal.append(savedAfterTheClose);
+    noteJournal.close();
+    Files.write(metadataFile.toPath(), outdatedMetadata);
+
+    //when
+    noteJournal = NoteJournal.open(journalFolder);
+    List<NoteMetadata> output = noteJournal.loadMetadata();
+
+    //then
+    Assert.assertFalse("the outdated metadata has been trusted", noteJournal.wasCleanlyClosed());
+    Assert.assertEquals("the note saved after the close has been lost", 2, output.size());
+    Assert.assertEquals("the bounds have been lost", new Rectangle(1, 2, 3, 4), output.get(0).getBounds());
+    Assert.assertEquals("the wrong note has been loaded", savedAfterTheClose.getId(), output.get(1).getId());
+  }
+
+  @Test
+  public void shouldNotReplayADeletedNote() throws IOException {
+    //given
+    Note keptNote = new Note("kept");
+    Note deletedNote = new Note("deleted", NoteColor.lightRed);
+    noteJournal.append(keptNote);
+    noteJournal.append(deletedNote);
+
+    //when
+    noteJournal.delete(NoteJournal.keyOf(deletedNote));
+
+    //then
+    Assert.assertEquals(
+            "the deleted note has been replayed",
+            Collections.singletonList(keptNote),
+            reopenAndReplay()
+    );
+  }
+
+  /**
+   * A crash in the middle of an append leaves a torn record at the end of the journal,
+   * the replay should stop right before it and keep every complete record.
+   */
+
+  @Test
+  public void shouldIgnoreATornRecordAtTheTail() throws IOException {
+    //given
+    Note completeNote = new Note("complete");
+    noteJournal.append(completeNote);
+    noteJournal.append(new Note("torn"));
+    noteJournal.close();
+
+    File journalFile = new File(journalFolder, NoteJournal.JOURNAL_FILE_NAME);
+    try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+      raf.setLength(raf.length() - 5);
+    }
+    noteJournal = NoteJournal.open(journalFolder);
+
+    //when
+    List<Note> output = noteJournal.replay();
+    noteJournal.append(new Note("after the crash"));
+
+    //then
+    Assert.assertEquals(
+            "the complete record has not been replayed",
+            Collections.singletonList(completeNote),
+            output
+    );
+    Assert.assertEquals(
+            "the journal is not appendable after a torn record",
+            Arrays.asList(completeNote, new Note("after the crash")),
+            reopenAndReplay()
+    );
+  }
+
+  @Test
+  public void shouldKeepTheLiveNotesWhenCompacted() throws IOException {
+    //given
+    Note liveNote = new Note("live", NoteColor.lightGreen);
+    noteJournal.append(liveNote);
+    for (int i = 0; i < 10; i++) {
+      Note shortLivedNote = new Note("short lived " + i);
+      noteJournal.append(shortLivedNote);
+      noteJournal.delete(NoteJournal.keyOf(shortLivedNote));
+    }
+    long sizeBeforeCompaction = new File(journalFolder, NoteJournal.JOURNAL_FILE_NAME).length();
+
+    //when
+    noteJournal.compact();
+
+    //then
+    Assert.assertTrue(
+            "the journal has not shrunk",
+            new File(journalFolder, NoteJournal.JOURNAL_FILE_NAME).length() < sizeBeforeCompaction
+    );
+    Assert.assertEquals(
+            "the live note has been lost in the compaction",
+            Collections.singletonList(liveNote),
+            reopenAndReplay()
+    );
+  }
+
+  @Test
+  public void shouldKeepABoundedNumberOfBackupGenerations() throws IOException {
+    //given
+    noteJournal.setBackupGenerations(2);
+    Note note = new Note("kept in the backups");
+
+    //when
+    for (int i = 0; i < 3; i++) {
+      noteJournal.append(note);
+      noteJournal.compact();
+    }
+
+    //then
+    Assert.assertTrue("the newest backup has not been kept", noteJournal.backupFileOf(1).isFile());
+    Assert.assertTrue("the older backup has not been kept", noteJournal.backupFileOf(2).isFile());
+    Assert.assertFalse("more backups have been kept than asked for", noteJournal.backupFileOf(3).exists());
+  }
+
+  /**
+   * A damaged record in the middle of the journal shouldn't take the records after it along,
+   * and the note it held should come back from the backup.
+   */
+
+  @Test
+  public void shouldRecoverACorruptedRecordFromTheBackup() throws IOException {
+    //given
+    Note firstNote = new Note("the first note that gets corrupted");
+    Note secondNote = new Note("the second note", NoteColor.lightGreen);
+    Note thirdNote = new Note("the third note");
+    noteJournal.append(firstNote);
+    noteJournal.append(secondNote);
+    noteJournal.compact();
+    noteJournal.append(thirdNote);
+    noteJournal.close();
+    corruptByteAt(40);
+    noteJournal = NoteJournal.open(journalFolder);
+
+    //when
+    List<Note> output = noteJournal.replay();
+
+    //then
+    Assert.assertEquals(
+            "the notes have not been recovered",
+            Arrays.asList(firstNote, secondNote, thirdNote),
+            output
+    );
+    Assert.assertTrue(
+            "the corrupted journal has not been kept",
+            new File(journalFolder, NoteJournal.JOURNAL_FILE_NAME + ".corrupted").isFile()
+    );
+    Assert.assertEquals(
+            "the recovered journal has not been written",
+            Arrays.asList(firstNote, secondNote, thirdNote),
+            reopenAndReplay()
+    );
+  }
+
+  @Test
+  public void shouldReadACorruptedNoteFromTheBackup() throws IOException {
+    //given
+    Note note = new Note("read from the backup");
+    noteJournal.append(note);
+    noteJournal.compact();
+    noteJournal.replay();
+    corruptByteAt(40);
+
+    //when
+    Note output = noteJournal.read(NoteJournal.keyOf(note));
+
+    //then
+    Assert.assertEquals("the note has not been read from the backup", note, output);
+  }
+
+  private void corruptByteAt(long offset) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(new File(journalFolder, NoteJournal.JOURNAL_FILE_NAME), "rw")) {
+      raf.seek(offset);
+      int value = raf.read();
+      raf.seek(offset);
+      raf.write(value ^ 0xff);
+    }
+  }
+
+  /**
+   * Journals written before the NoteCodec existed hold java serialized notes, they should
+   * still be replayed and get re-encoded on the way.
+   */
+
+  @Test
+  public void shouldMigrateTheJavaSerializedNotes() throws IOException {
+    //given
+    Note serializedNote = new Note("saved before the codec", NoteColor.lightGreen);
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(payload);
+    dataOutputStream.writeUTF(NoteJournal.keyOf(serializedNote));
+    ObjectOutputStream objectOutputStream = new ObjectOutputStream(dataOutputStream);
+    objectOutputStream.writeObject(serializedNote);
+    objectOutputStream.flush();
+    byte[] payloadBytes = payload.toByteArray();
+
+    CRC32 crc32 = new CRC32();
+    crc32.update(payloadBytes, 0, payloadBytes.length);
+    ByteBuffer record = ByteBuffer.allocate(9 + payloadBytes.length);
+    record.put((byte) 1).putInt(payloadBytes.length).putInt((int) crc32.getValue()).put(payloadBytes);
+
+    noteJournal.close();
+    try (FileOutputStream journalFile = new FileOutputStream(
+            new File(journalFolder, NoteJournal.JOURNAL_FILE_NAME), true)) {
+      journalFile.write(record.array());
+    }
+    noteJournal = NoteJournal.open(journalFolder);
+
+    //when
+    List<Note> migrated = noteJournal.replay();
+    noteJournal.compact();
+
+    //then
+    Assert.assertEquals("the serialized note has not been replayed",
+            Collections.singletonList(serializedNote), migrated);
+    Assert.assertEquals("the serialized note has been lost in the migration",
+            Collections.singletonList(serializedNote), reopenAndReplay());
+  }
+
+  /**
+   * Another process appending to the same journal shouldn't have its records written over,
+   * and the notes it changed should be handed out by refresh().
+   */
+
+  @Test
+  public void shouldPickUpTheNotesAppendedByAnotherJournal() throws IOException {
+    //given
+    Note ownNote = new Note("saved here");
+    noteJournal.append(ownNote);
+    noteJournal.replay();
+    Note otherNote = new Note("saved by another process", NoteColor.lightRed);
+    try (NoteJournal otherJournal = NoteJournal.open(journalFolder)) {
+      otherJournal.replay();
+      otherJournal.append(otherNote);
+    }
+
+    //when
+    noteJournal.append(new Note(ownNote.getId(), "saved here again", NoteColor.lightYellow));
+    List<NoteJournal.ExternalChange> changes = noteJournal.refresh();
+
+    //then
+    Assert.assertEquals(1, changes.size());
+    Assert.assertEquals(otherNote, changes.get(0).getNote());
+    Assert.assertTrue(changes.get(0).isCreated());
+    Assert.assertFalse(changes.get(0).isOverwritten());
+    Assert.assertTrue("refresh() handed out the same change twice", noteJournal.refresh().isEmpty());
+    Assert.assertEquals(Arrays.asList(new Note("saved here again"), otherNote), reopenAndReplay());
+  }
+
+  /**
+   * Another process compacting the journal replaces the file, which should be opened again,
+   * with only the notes whose records changed handed out.
+   */
+
+  @Test
+  public void shouldPickUpTheJournalCompactedByAnotherJournal() throws IOException {
+    //given
+    Note unchangedNote = new Note("unchanged");
+    Note editedNote = new Note("edited");
+    Note deletedNote = new Note("deleted");
+    noteJournal.appendAll(Arrays.asList(unchangedNote, editedNote, deletedNote));
+    noteJournal.replay();
+    try (NoteJournal otherJournal = NoteJournal.open(journalFolder)) {
+      otherJournal.replay();
+      otherJournal.append(new Note(editedNote.getId(), "edited elsewhere", NoteColor.lightGreen));
+      otherJournal.delete(NoteJournal.keyOf(deletedNote));
+      otherJournal.compact();
+    }
+
+    //when
+    List<NoteJournal.ExternalChange> changes = noteJournal.refresh();
+
+    //then
+    Assert.assertEquals(2, changes.size());
+    for (NoteJournal.ExternalChange change : changes) {
+      if (change.getKey().equals(NoteJournal.keyOf(editedNote))) {
+        Assert.assertEquals(new Note("edited elsewhere", NoteColor.lightGreen), change.getNote());
+      } else {
+        Assert.assertEquals(NoteJournal.keyOf(deletedNote), change.getKey());
+        Assert.assertNull(change.getNote());
+      }
+    }
+    Assert.assertEquals(unchangedNote, noteJournal.read(NoteJournal.keyOf(unchangedNote)));
+    Assert.assertFalse(noteJournal.contains(NoteJournal.keyOf(deletedNote)));
+  }
+
+  /**
+   * A note is streamed into the journal through a buffer much smaller than it, so its text
+   * should come back the way String.getBytes() would have encoded it, with every record that
+   * crosses the buffer still matching its checksum.
+   */
+
+  @Test
+  public void shouldStreamTheNotesLargerThanTheWriteBuffer() throws IOException {
+    //given
+    StringBuilder text = new StringBuilder();
+    while (text.length() < 200_000) {
+      text.append("plain text, caf\u00e9, \u4e2d\u6587, \ud83d\ude00 and a lone \udc00 surrogate\n");
+    }
+    text.append('\ud83d');
+    Note largeNote = new Note(text.toString(), NoteColor.lightGreen);
+    Note smallNote = new Note("small");
+
+    //when
+    noteJournal.appendAll(Arrays.asList(largeNote, smallNote, largeNote));
+    List<Note> output = reopenAndReplay();
+
+    //then
+    Assert.assertEquals(2, output.size());
+    Assert.assertEquals(new String(text.toString().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8),
+            output.get(0).getWrittenText());
+    Assert.assertEquals(smallNote, output.get(1));
+  }
+
+  /**
+   * A note above the compression threshold should take a lot less room in the journal than
+   * it would uncompressed, and still be read back as it was saved, while a small note next to
+   * it is left as it is.
+   */
+
+  @Test
+  public void shouldCompressTheNotesAboveTheThreshold() throws IOException {
+    //given
+    StringBuilder text = new StringBuilder();
+    while (text.length() < 100_000) {
+      text.append("# a heading\n\n* [ ] an open item with caf\u00e9 in it\n* [x] a closed item\n\n");
+    }
+    Note largeNote = new Note(text.toString(), NoteColor.lightRed);
+    Note smallNote = new Note("small");
+    File uncompressedFolder = temporaryFolder.newFolder("uncompressed");
+    try (NoteJournal uncompressedJournal = NoteJournal.open(uncompressedFolder)) {
+      uncompressedJournal.setCompressionThreshold(Integer.MAX_VALUE);
+      uncompressedJournal.appendAll(Arrays.asList(largeNote, smallNote));
+    }
+
+    //when
+    noteJournal.appendAll(Arrays.asList(largeNote, smallNote));
+    List<Note> output = reopenAndReplay();
+
+    //then
+    long compressedLength = new File(journalFolder, NoteJournal.JOURNAL_FILE_NAME).length();
+    long uncompressedLength = new File(uncompressedFolder, NoteJournal.JOURNAL_FILE_NAME).length();
+    Assert.assertTrue("the journal took " + compressedLength + " bytes", compressedLength < uncompressedLength / 4);
+    Assert.assertEquals(Arrays.asList(largeNote, smallNote), output);
+    Assert.assertEquals(largeNote.getWrittenText(), noteJournal.read(NoteJournal.keyOf(largeNote)).getWrittenText());
+  }
+
+  /**
+   * A compressed note appended by another process should be picked up just like one that
+   * isn't compressed.
+   */
+
+  @Test
+  public void shouldPickUpTheCompressedNotesAppendedByAnotherJournal() throws IOException {
+    //given
+    noteJournal.replay();
+    Note otherNote = new Note(new String(new char[10_000]).replace('\0', 'x'), NoteColor.lightGreen);
+    try (NoteJournal otherJournal = NoteJournal.open(journalFolder)) {
+      otherJournal.replay();
+      otherJournal.append(otherNote);
+    }
+
+    //when
+    List<NoteJournal.ExternalChange> changes = noteJournal.refresh();
+
+    //then
+    Assert.assertEquals(1, changes.size());
+    Assert.assertEquals(otherNote, changes.get(0).getNote());
+    Assert.assertEquals(otherNote.getWrittenText(), noteJournal.read(NoteJournal.keyOf(otherNote)).getWrittenText());
+  }
+}
@@ -0,0 +1,99 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * This test class is used to test the NoteLoader class, it loads the notes of a journal
+ * and the notes saved in their own .ser files inside a TemporaryFolder.
+ */
+
+public class NoteLoaderTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File notesFolder;
+  private NoteJournal noteJournal;
+
+  @Before
+  public void setUp() throws IOException {
+    notesFolder = temporaryFolder.newFolder("notes");
+    noteJournal = NoteJournal.open(notesFolder);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    noteJournal.close();
+    noteJournal = null;
+    notesFolder = null;
+  }
+
+  /**
+   * loads the metadata of the notes, and reads the text of every note the way it's read
+   * once the note is shown.
+   */
+
+  private List<Note> load() throws IOException {
+    List<NoteMetadata> loadedMetadata = new ArrayList<>();
+    int count = new NoteLoader(noteJournal, notesFolder).load(loadedMetadata::add);
+    Assert.assertEquals("the count doesn't match the loaded notes", loadedMetadata.size(), count);
+
+    List<Note> loadedNotes = new ArrayList<>();
+    for (NoteMetadata noteMetadata : loadedMetadata) {
+      Note note = noteJournal.read(noteMetadata.getId().toString());
+      Assert.assertEquals("the metadata doesn't match the note", note.getColor(), noteMetadata.getColor());
+      Assert.assertEquals("the metadata doesn't match the note", note.getWrittenText().length(), noteMetadata.getSize());
+      loadedNotes.add(note);
+    }
+    return loadedNotes;
+  }
+
+  @Test
+  public void shouldLoadEveryNoteOfTheJournal() throws IOException {
+    //given
+    Set<Note> savedNotes = new HashSet<>();
+    for (int i = 0; i < 50; i++) {
+      Note n = new Note("note number " + i, NoteColor.values()[i % NoteColor.values().length]);
+      noteJournal.append(n);
+      savedNotes.add(n);
+    }
+
+    //then
+    Assert.assertEquals(
+            "the notes of the journal have not been loaded",
+            savedNotes,
+            new HashSet<>(load())
+    );
+  }
+
+  @Test
+  public void shouldMoveTheLegacyNotesIntoTheJournal() throws IOException {
+    //given
+    Note legacyNote = new Note("saved in its own file", NoteColor.lightRed);
+    File legacyNoteFile = new File(notesFolder, "Axeereraa" + legacyNote.hashCode() + ".ser");
+    new NoteSaver(new FileOutputStream(legacyNoteFile)).save(legacyNote);
+
+    //when
+    List<Note> output = load();
+
+    //then
+    Assert.assertEquals("the legacy note has not been loaded", Collections.singletonList(legacyNote), output);
+    Assert.assertFalse("the legacy note file has not been deleted", legacyNoteFile.exists());
+    Assert.assertEquals(
+            "the legacy note has not been moved into the journal",
+            output,
+            noteJournal.replay()
+    );
+  }
+
+  @Test
+  public void shouldLoadNothingFromAnEmptyFolder() throws IOException {
+    Assert.assertTrue("it loaded notes out of nowhere", load().isEmpty());
+  }
+}
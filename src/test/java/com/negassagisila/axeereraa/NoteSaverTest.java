@@ -3,9 +3,13 @@ package com.negassagisila.axeereraa;
 import org.junit.*;
 import org.junit.rules.TemporaryFolder;
 
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * This test class is used to test the NoteSaver feature/class of the Axeereraa
@@ -174,4 +178,80 @@ public class NoteSaverTest {
     
     }
 
+
+    /**
+     * A large note saved straight from a snapshot of its text should be read back, together
+     * with its metadata, just like a note saved as a Note object, even after it's edited again.
+     */
+
+    @Test
+    public void shouldSaveTheNoteStraightFromTheSnapshotOfItsText() throws IOException, BadLocationException {
+      //given
+      PieceTableContent content = new PieceTableContent();
+      PlainDocument document = new PlainDocument(content);
+      document.insertString(0, "written in the window", null);
+      document.insertString(0, "a title\n", null);
+      UUID id = UUID.randomUUID();
+      File journalFolder = tempFolderToTest.newFolder("journal");
+
+      //when
+      try (NoteJournal noteJournal = NoteJournal.open(journalFolder)) {
+        PieceTableContent.Snapshot snapshot = content.snapshot();
+        document.insertString(0, "edited after the snapshot ", null);
+        Assert.assertTrue(new NoteSaver(noteJournal).save(id, NoteColor.lightGreen, snapshot));
+      }
+
+      //then
+      try (NoteJournal noteJournal = NoteJournal.open(journalFolder)) {
+        List<NoteMetadata> noteMetadata = noteJournal.loadMetadata();
+        Assert.assertEquals(1, noteMetadata.size());
+        Assert.assertEquals("a title", noteMetadata.get(0).getTitle());
+        Assert.assertEquals(new Note(id, "a title\nwritten in the window", NoteColor.lightGreen),
+                noteJournal.read(id.toString()));
+      }
+    }
+
+    /**
+     * Without a NoteJournal, a note saved from its text should be written into the
+     * FileOutputStream like a note saved as a Note object.
+     */
+
+    @Test
+    public void shouldSaveTheTextOfANoteWithoutAJournal() throws IOException, ClassNotFoundException {
+      //given
+      UUID id = UUID.randomUUID();
+
+      //when
+      boolean saved = noteSaverDummy.save(id, NoteColor.lightRed, NoteText.of("some written text"));
+
+      //then
+      Assert.assertTrue(saved);
+      objectInputStreamToTest = new ObjectInputStream(fileInputStreamToTest);
+      Assert.assertEquals(new Note(id, "some written text", NoteColor.lightRed), objectInputStreamToTest.readObject());
+    }
+
+    /**
+     * Without a NoteJournal, saving a batch of a single note should write it into the
+     * FileOutputStream, and a batch of more than one should be rejected.
+     */
+
+    @Test
+    public void shouldSaveASingleNoteBatchWithoutAJournal() throws IOException, ClassNotFoundException {
+      //given
+      Note note = exampleNotes.get(0);
+
+      //when
+      boolean saved = noteSaverDummy.saveAll(Collections.singletonList(note));
+
+      //then
+      Assert.assertTrue(saved);
+      objectInputStreamToTest = new ObjectInputStream(fileInputStreamToTest);
+      Assert.assertEquals(note, objectInputStreamToTest.readObject());
+      try {
+        noteSaverDummy.saveAll(exampleNotes.subList(0, 2));
+        Assert.fail("more than one note has been saved into a single FileOutputStream");
+      } catch (IllegalStateException e) {
+        // expected
+      }
+    }
 }
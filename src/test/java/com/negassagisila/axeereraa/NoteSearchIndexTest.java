@@ -0,0 +1,149 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * This test class is used to test the NoteSearchIndex class.
+ */
+
+public class NoteSearchIndexTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private NoteSearchIndex searchIndex;
+
+  @Before
+  public void setUp() {
+    searchIndex = new NoteSearchIndex();
+  }
+
+  private static List<UUID> idsOf(List<NoteSearchIndex.SearchResult> results) {
+    List<UUID> ids = new ArrayList<>();
+    for (NoteSearchIndex.SearchResult result : results) {
+      ids.add(result.getId());
+    }
+    return ids;
+  }
+
+  @Test
+  public void shouldSplitTheTextIntoLowerCasedWords() {
+    //when
+    Map<String, Integer> output = NoteSearchIndex.countWords("Buy MILK, buy eggs & 12 apples!");
+
+    //then
+    Map<String, Integer> expected = new HashMap<>();
+    expected.put("buy", 2);
+    expected.put("milk", 1);
+    expected.put("eggs", 1);
+    expected.put("12", 1);
+    expected.put("apples", 1);
+    Assert.assertEquals("the text has not been split into words", expected, output);
+  }
+
+  @Test
+  public void shouldFindTheNotesThatContainEveryWordOfTheQuery() {
+    //given
+    Note groceries = new Note("buy milk and eggs");
+    Note meeting = new Note("meeting about the milestone");
+    Note other = new Note("something else");
+    searchIndex.update(groceries);
+    searchIndex.update(meeting);
+    searchIndex.update(other);
+
+    //when
+    List<UUID> prefixOutput = idsOf(searchIndex.search("mil", 10));
+    List<UUID> allWordsOutput = idsOf(searchIndex.search("EGGS mil", 10));
+    List<UUID> finishedWordOutput = idsOf(searchIndex.search("mil ", 10));
+
+    //then
+    Assert.assertEquals("the prefix has not matched both notes",
+            new HashSet<>(Arrays.asList(groceries.getId(), meeting.getId())), new HashSet<>(prefixOutput));
+    Assert.assertEquals("a note without every word has been found",
+            Collections.singletonList(groceries.getId()), allWordsOutput);
+    Assert.assertTrue("a finished word has matched as a prefix", finishedWordOutput.isEmpty());
+  }
+
+  @Test
+  public void shouldRankAWholeWordAboveAPrefix() {
+    //given
+    Note prefixNote = new Note("milestone");
+    Note wholeWordNote = new Note("mile");
+    searchIndex.update(prefixNote);
+    searchIndex.update(wholeWordNote);
+
+    //when
+    List<UUID> output = idsOf(searchIndex.search("mile", 10));
+
+    //then
+    Assert.assertEquals("the whole word has not been ranked first",
+            Arrays.asList(wholeWordNote.getId(), prefixNote.getId()), output);
+  }
+
+  @Test
+  public void shouldForgetTheOldTextOfAnUpdatedNote() {
+    //given
+    Note firstVersion = new Note("first draft");
+    searchIndex.update(firstVersion);
+
+    //when
+    searchIndex.update(new Note(firstVersion.getId(), "second version", NoteColor.lightGreen));
+
+    //then
+    Assert.assertTrue("the old text is still found", searchIndex.search("draft", 10).isEmpty());
+    Assert.assertEquals("the new text is not found",
+            Collections.singletonList(firstVersion.getId()), idsOf(searchIndex.search("version", 10)));
+  }
+
+  @Test
+  public void shouldNotFindARemovedNote() {
+    //given
+    Note note = new Note("removed note");
+    searchIndex.update(note);
+
+    //when
+    searchIndex.remove(note.getId());
+
+    //then
+    Assert.assertTrue("the removed note has been found", searchIndex.search("removed", 10).isEmpty());
+    Assert.assertEquals("the removed note is still indexed", 0, searchIndex.size());
+  }
+
+  /**
+   * The saved index should find the same notes once it's loaded, and checking it against
+   * the notes should only re-index the ones that changed and drop the deleted ones.
+   */
+
+  @Test
+  public void shouldSaveAndLoadTheIndex() throws IOException {
+    //given
+    Note unchanged = new Note("unchanged note");
+    Note edited = new Note("before the edit");
+    Note deleted = new Note("deleted note");
+    searchIndex.update(unchanged);
+    searchIndex.update(edited);
+    searchIndex.update(deleted);
+    File indexFile = new File(temporaryFolder.getRoot(), NoteSearchIndex.INDEX_FILE_NAME);
+    searchIndex.save(indexFile);
+
+    //when
+    NoteSearchIndex loadedIndex = new NoteSearchIndex();
+    loadedIndex.load(indexFile);
+    Note afterTheEdit = new Note(edited.getId(), "after the edit", NoteColor.lightRed);
+    loadedIndex.ensureIndexed(unchanged);
+    loadedIndex.ensureIndexed(afterTheEdit);
+    loadedIndex.retainOnly(new HashSet<>(Arrays.asList(unchanged.getId(), edited.getId())));
+
+    //then
+    Assert.assertEquals("the unchanged note is not found",
+            Collections.singletonList(unchanged.getId()), idsOf(loadedIndex.search("unchanged", 10)));
+    Assert.assertEquals("the edited note has not been re-indexed",
+            Collections.singletonList(edited.getId()), idsOf(loadedIndex.search("after", 10)));
+    Assert.assertTrue("the deleted note has been found", loadedIndex.search("deleted", 10).isEmpty());
+  }
+}
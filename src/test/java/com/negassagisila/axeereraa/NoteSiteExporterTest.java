@@ -0,0 +1,89 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * This test class is used to test the NoteSiteExporter class. Every test exports the notes of
+ * a journal inside a TemporaryFolder into a site folder next to it.
+ */
+
+public class NoteSiteExporterTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private NoteJournal noteJournal;
+  private File siteFolder;
+  private NoteSiteExporter siteExporter;
+
+  @Before
+  public void setUp() throws IOException {
+    noteJournal = NoteJournal.open(temporaryFolder.newFolder("journal"));
+    siteFolder = new File(temporaryFolder.getRoot(), "site");
+    siteExporter = new NoteSiteExporter(siteFolder);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    noteJournal.close();
+    noteJournal = null;
+  }
+
+  private String read(String fileName) throws IOException {
+    return new String(Files.readAllBytes(new File(siteFolder, fileName).toPath()), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void shouldRenderAPagePerNoteAndAnIndex() throws IOException {
+    //given
+    Note note = new Note("# Groceries\n* milk & eggs");
+    noteJournal.append(note);
+
+    //when
+    NoteSiteExporter.Result result = siteExporter.export(noteJournal);
+
+    //then
+    Assert.assertEquals(1, result.getRendered());
+    Assert.assertTrue("the note has not been rendered",
+            read(note.getId() + ".html").contains("<h1>Groceries</h1>"));
+    Assert.assertTrue("the note is not in the index",
+            read(NoteSiteExporter.INDEX_FILE_NAME).contains("<a href=\"" + note.getId() + ".html\">Groceries</a>"));
+  }
+
+  /**
+   * Exporting again should only render the notes that were edited, and delete the pages of
+   * the notes that were deleted.
+   */
+
+  @Test
+  public void shouldOnlyRenderTheEditedNotesAgain() throws IOException {
+    //given
+    Note editedNote = new Note("edited");
+    Note unchangedNote = new Note("unchanged");
+    Note deletedNote = new Note("deleted");
+    noteJournal.append(editedNote);
+    noteJournal.append(unchangedNote);
+    noteJournal.append(deletedNote);
+    siteExporter.export(noteJournal);
+
+    noteJournal.append(new Note(editedNote.getId(), "edited again", NoteColor.lightYellow));
+    noteJournal.delete(NoteJournal.keyOf(deletedNote));
+
+    //when
+    NoteSiteExporter.Result result = siteExporter.export(noteJournal);
+
+    //then
+    Assert.assertEquals("not only the edited note has been rendered", 1, result.getRendered());
+    Assert.assertEquals(1, result.getUnchanged());
+    Assert.assertEquals(1, result.getDeleted());
+    Assert.assertTrue(read(editedNote.getId() + ".html").contains("edited again"));
+    Assert.assertFalse("the page of the deleted note is still there",
+            new File(siteFolder, deletedNote.getId() + ".html").exists());
+  }
+}
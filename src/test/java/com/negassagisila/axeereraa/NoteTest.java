@@ -3,6 +3,8 @@ package com.negassagisila.axeereraa;
 import org.hamcrest.Matchers;
 import org.junit.*;
 
+import java.util.UUID;
+
 public class NoteTest {
     private Note dummyNote;
     private Note anotherDummyNote;
@@ -56,4 +58,25 @@ public class NoteTest {
               anotherDummyNote.getNoteColor());
     }
 
+    @Test
+    public void shouldHaveAUniqueId() {
+      Assert.assertNotEquals(
+              "two notes have the same id",
+              dummyNote.getId(),
+              new Note("some text").getId()
+      );
+    }
+
+    @Test
+    public void shouldKeepItsIdWhenEdited() {
+      UUID idBeforeEdit = dummyNote.getId();
+      dummyNote.setWrittenText("some edited text");
+      dummyNote.setNoteColor(NoteColor.lightGreen);
+      Assert.assertEquals(
+              "the id changed with the content",
+              idBeforeEdit,
+              dummyNote.getId()
+      );
+    }
+
 }
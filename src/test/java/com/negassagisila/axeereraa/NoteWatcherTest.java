@@ -0,0 +1,74 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This test class is used to test the NoteWatcher class. Every test watches a journal inside
+ * a TemporaryFolder while a second journal, standing in for another process, writes to it.
+ */
+
+public class NoteWatcherTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File journalFolder;
+  private NoteJournal noteJournal;
+  private NoteWatcher noteWatcher;
+  private BlockingQueue<List<NoteJournal.ExternalChange>> handedOutChanges;
+
+  @Before
+  public void setUp() throws IOException {
+    journalFolder = temporaryFolder.newFolder("journal");
+    noteJournal = NoteJournal.open(journalFolder);
+    noteJournal.replay();
+    handedOutChanges = new ArrayBlockingQueue<>(16);
+    noteWatcher = new NoteWatcher(journalFolder, noteJournal, 50, handedOutChanges::add);
+    noteWatcher.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    noteWatcher.close();
+    noteJournal.close();
+  }
+
+  /**
+   * A burst of saves by another process should be handed out once it has settled, while the
+   * saves of the watched journal itself shouldn't be handed out at all.
+   */
+
+  @Test
+  public void shouldHandOutTheNotesChangedByAnotherProcess() throws Exception {
+    //given
+    noteJournal.append(new Note("saved here"));
+    Note otherNote = new Note("saved by another process");
+
+    //when
+    try (NoteJournal otherJournal = NoteJournal.open(journalFolder)) {
+      otherJournal.replay();
+      for (int i = 0; i < 5; i++) {
+        otherJournal.append(new Note(otherNote.getId(), "saved by another process " + i, NoteColor.lightGreen));
+      }
+    }
+
+    //then
+    NoteJournal.ExternalChange lastChange = null;
+    while (lastChange == null || !lastChange.getNote().getWrittenText().endsWith("4")) {
+      List<NoteJournal.ExternalChange> changes = handedOutChanges.poll(10, TimeUnit.SECONDS);
+      Assert.assertNotNull("the changes have not been handed out", changes);
+      Assert.assertEquals("not only the note of the other process has been handed out", 1, changes.size());
+      lastChange = changes.get(0);
+      Assert.assertEquals(NoteJournal.keyOf(otherNote), lastChange.getKey());
+    }
+    Assert.assertEquals(NoteColor.lightGreen, lastChange.getNote().getColor());
+  }
+}
@@ -0,0 +1,112 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.*;
+
+import javax.swing.text.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This test class is used to test the PieceTableContent class, by editing a PlainDocument on
+ * top of it the same way as one on top of the GapContent of Swing, and comparing the two.
+ */
+
+public class PieceTableContentTest {
+  private PlainDocument pieceTableDocument;
+  private PlainDocument gapDocument;
+
+  @Before
+  public void setUp() {
+    pieceTableDocument = new PlainDocument(new PieceTableContent());
+    gapDocument = new PlainDocument(new GapContent());
+  }
+
+  @After
+  public void tearDown() {
+    pieceTableDocument = null;
+    gapDocument = null;
+  }
+
+  @Test
+  public void shouldEditTheTextTheWayGapContentDoes() throws BadLocationException {
+    //given
+    Random random = new Random(42);
+    List<Position> pieceTablePositions = new ArrayList<>();
+    List<Position> gapPositions = new ArrayList<>();
+    String insertedText = "some text\nwith lines\n";
+
+    //when
+    for (int i = 0; i < 2000; i++) {
+      int length = gapDocument.getLength();
+      int where = random.nextInt(length + 1);
+      if (random.nextInt(3) == 0 && length > 0) {
+        int removedLength = Math.min(random.nextInt(30), length - where);
+        pieceTableDocument.remove(where, removedLength);
+        gapDocument.remove(where, removedLength);
+      } else {
+        String text = insertedText.substring(random.nextInt(insertedText.length()));
+        pieceTableDocument.insertString(where, text, null);
+        gapDocument.insertString(where, text, null);
+      }
+      if (i % 50 == 0) {
+        int offset = random.nextInt(gapDocument.getLength() + 1);
+        pieceTablePositions.add(pieceTableDocument.createPosition(offset));
+        gapPositions.add(gapDocument.createPosition(offset));
+      }
+    }
+
+    //then
+    Assert.assertEquals("the text is different",
+            gapDocument.getText(0, gapDocument.getLength()),
+            pieceTableDocument.getText(0, pieceTableDocument.getLength()));
+    Element gapLines = gapDocument.getDefaultRootElement();
+    Element pieceTableLines = pieceTableDocument.getDefaultRootElement();
+    Assert.assertEquals("the lines are different", gapLines.getElementCount(), pieceTableLines.getElementCount());
+    for (int i = 0; i < gapLines.getElementCount(); i++) {
+      Assert.assertEquals(gapLines.getElement(i).getStartOffset(), pieceTableLines.getElement(i).getStartOffset());
+      Assert.assertEquals(gapLines.getElement(i).getEndOffset(), pieceTableLines.getElement(i).getEndOffset());
+    }
+    for (int i = 0; i < gapPositions.size(); i++) {
+      Assert.assertEquals("the position " + i + " didn't follow the edits",
+              gapPositions.get(i).getOffset(), pieceTablePositions.get(i).getOffset());
+    }
+  }
+
+  @Test
+  public void shouldKeepTheTextOfTheSnapshotAfterItsEdited() throws BadLocationException {
+    //given
+    PieceTableContent content = new PieceTableContent();
+    PlainDocument document = new PlainDocument(content);
+    document.insertString(0, "a large note", null);
+
+    //when
+    PieceTableContent.Snapshot snapshot = content.snapshot();
+    document.insertString(2, "very ", null);
+    document.remove(0, 2);
+
+    //then
+    Assert.assertEquals("a large note", snapshot.toString());
+    Assert.assertEquals("very large note", document.getText(0, document.getLength()));
+  }
+
+  @Test
+  public void shouldReturnThePieceWithoutCopyingIt() throws BadLocationException {
+    //given
+    PieceTableContent content = new PieceTableContent();
+    content.insertString(0, "second");
+    content.insertString(0, "first");
+    Segment segment = new Segment();
+
+    //when
+    content.getChars(2, 6, segment);
+    String acrossThePieces = segment.toString();
+    segment.setPartialReturn(true);
+    content.getChars(2, 6, segment);
+
+    //then
+    Assert.assertEquals("rstsec", acrossThePieces);
+    Assert.assertEquals("the partial return copied the text", 3, segment.count);
+    Assert.assertEquals("rst", segment.toString());
+  }
+}
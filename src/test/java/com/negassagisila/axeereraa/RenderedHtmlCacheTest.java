@@ -0,0 +1,95 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This test class is used to test the RenderedHtmlCache class, its eviction and how
+ * it's saved next to the notes and loaded back.
+ */
+
+public class RenderedHtmlCacheTest {
+  private RenderedHtmlCache renderedHtmlCache;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Before
+  public void setUp() {
+    renderedHtmlCache = new RenderedHtmlCache(10);
+  }
+
+  @After
+  public void tearDown() {
+    renderedHtmlCache = null;
+  }
+
+  @Test
+  public void shouldChangeTheKeyWithTheText() {
+    Assert.assertEquals(
+            "the same text has different keys",
+            RenderedHtmlCache.keyOf("salt", "some text"),
+            RenderedHtmlCache.keyOf("salt", "some text")
+    );
+    Assert.assertNotEquals(
+            "an edited text has the same key",
+            RenderedHtmlCache.keyOf("salt", "some text"),
+            RenderedHtmlCache.keyOf("salt", "some edited text")
+    );
+    Assert.assertNotEquals(
+            "a different salt has the same key",
+            RenderedHtmlCache.keyOf("salt", "some text"),
+            RenderedHtmlCache.keyOf("other salt", "some text")
+    );
+  }
+
+  @Test
+  public void shouldEvictTheLeastRecentlyUsedHtml() {
+    //given
+    renderedHtmlCache.put("first", "aaaa");
+    renderedHtmlCache.put("second", "bbbb");
+    renderedHtmlCache.get("first");
+
+    //when
+    renderedHtmlCache.put("third", "cccc");
+
+    //then
+    Assert.assertEquals("the recently used html has been evicted", "aaaa", renderedHtmlCache.get("first"));
+    Assert.assertNull("the least recently used html is still cached", renderedHtmlCache.get("second"));
+    Assert.assertEquals("the new html hasn't been cached", "cccc", renderedHtmlCache.get("third"));
+  }
+
+  @Test
+  public void shouldNotCacheHtmlLargerThanTheCache() {
+    renderedHtmlCache.put("too large", "this is way too large");
+    Assert.assertEquals("the too large html has been cached", 0, renderedHtmlCache.size());
+  }
+
+  @Test
+  public void shouldLoadWhatWasSaved() throws IOException {
+    //given
+    File cacheFile = new File(temporaryFolder.getRoot(), RenderedHtmlCache.CACHE_FILE_NAME);
+    renderedHtmlCache.put("first", "<p>\u00e9</p>");
+    renderedHtmlCache.save(cacheFile);
+
+    //when
+    RenderedHtmlCache loadedCache = new RenderedHtmlCache(10);
+    loadedCache.load(cacheFile);
+
+    //then
+    Assert.assertEquals("the saved html hasn't been loaded", "<p>\u00e9</p>", loadedCache.get("first"));
+  }
+
+  @Test
+  public void shouldCacheTheRenderedMarkdown() {
+    String text = "# cached " + System.nanoTime();
+    Assert.assertSame(
+            "the same text has been rendered twice",
+            DisplayMarkdown.convertToMarkdown(text),
+            DisplayMarkdown.convertToMarkdown(text)
+    );
+  }
+}
@@ -0,0 +1,92 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This test class is used to test the SingleInstance class. Every test runs the instances
+ * against a notes folder inside a TemporaryFolder.
+ */
+
+public class SingleInstanceTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File appHome;
+  private SingleInstance runningInstance;
+
+  @Before
+  public void setUp() throws IOException {
+    appHome = temporaryFolder.newFolder("notes");
+    runningInstance = SingleInstance.acquire(appHome);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    if (runningInstance != null) {
+      runningInstance.close();
+    }
+  }
+
+  /**
+   * A later launch shouldn't become an instance of its own, and its request should reach the
+   * running instance, even when it came in before the running instance handled requests.
+   */
+
+  @Test
+  public void shouldHandTheRequestOverToTheRunningInstance() throws Exception {
+    //given
+    Assert.assertNotNull(runningInstance);
+    BlockingQueue<String> requests = new ArrayBlockingQueue<>(4);
+
+    //when
+    SingleInstance laterInstance = SingleInstance.acquire(appHome);
+    SingleInstance.handOff(appHome, SingleInstance.REQUEST_NEW);
+    runningInstance.setOnRequest(requests::add);
+    SingleInstance.handOff(appHome, SingleInstance.REQUEST_OPEN + " 1-2-3-4-5");
+
+    //then
+    Assert.assertNull("a later launch became an instance of its own", laterInstance);
+    Assert.assertEquals(SingleInstance.REQUEST_NEW, requests.poll(5, TimeUnit.SECONDS));
+    Assert.assertEquals(SingleInstance.REQUEST_OPEN + " 1-2-3-4-5", requests.poll(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldLetTheNextLaunchRunOnceClosed() throws IOException {
+    //when
+    runningInstance.close();
+    runningInstance = SingleInstance.acquire(appHome);
+
+    //then
+    Assert.assertNotNull("the lock has not been given up", runningInstance);
+    Assert.assertTrue(new File(appHome, SingleInstance.PORT_FILE_NAME).isFile());
+  }
+
+  /**
+   * An instance that can't listen for the later launches should still keep the lock, so that
+   * they don't run as instances of their own on the same notes.
+   */
+
+  @Test
+  public void shouldKeepTheLockWhenItCantListen() throws IOException {
+    //given
+    runningInstance.close();
+    Assert.assertTrue(new File(appHome, SingleInstance.PORT_FILE_NAME + ".tmp").mkdir());
+
+    //when
+    runningInstance = SingleInstance.acquire(appHome);
+    SingleInstance laterInstance = SingleInstance.acquire(appHome);
+
+    //then
+    Assert.assertNotNull("the instance has given up the lock", runningInstance);
+    Assert.assertNull("a later launch became an instance of its own", laterInstance);
+    Assert.assertFalse(new File(appHome, SingleInstance.PORT_FILE_NAME).exists());
+  }
+}
@@ -0,0 +1,40 @@
+package com.negassagisila.axeereraa;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.*;
+import java.io.IOException;
+
+/**
+ * This test class is used to test that the UIResources class loads every resource
+ * once and then keeps handing out the same one.
+ */
+
+public class UIResourcesTest {
+
+  @Test
+  public void shouldShareTheFont() throws IOException, FontFormatException {
+    Font font = UIResources.getFont(UIResources.NOTE_FONT_SIZE);
+    Assert.assertSame("the font has been loaded twice", font, UIResources.getFont(UIResources.NOTE_FONT_SIZE));
+    Assert.assertEquals("the font has the wrong size", UIResources.NOTE_FONT_SIZE, font.getSize2D(), 0);
+  }
+
+  @Test
+  public void shouldDeriveOtherSizesFromTheSameFont() throws IOException, FontFormatException {
+    Font smallFont = UIResources.getFont(12);
+    Assert.assertEquals("the font has the wrong size", 12, smallFont.getSize2D(), 0);
+    Assert.assertEquals(
+            "the derived font is a different font",
+            UIResources.getFont(UIResources.NOTE_FONT_SIZE).getFontName(),
+            smallFont.getFontName()
+    );
+  }
+
+  @Test
+  public void shouldShareTheIcons() throws IOException {
+    Assert.assertNotNull("the icon hasn't been loaded", UIResources.getIcon());
+    Assert.assertSame("the icon has been loaded twice", UIResources.getIcon(), UIResources.getIcon());
+    Assert.assertSame("the lock icon has been loaded twice", UIResources.getLockIcon(), UIResources.getLockIcon());
+  }
+}